@@ -0,0 +1,14 @@
+package com.raulrh.tiendatelevisiones.analytics;
+
+import org.bson.types.ObjectId;
+
+/**
+ * Totals of the sales grouped by a referenced entity, as ranked by {@link SalesColumnStore.Snapshot}.
+ *
+ * @param id       The id of the entity.
+ * @param sales    The number of sales.
+ * @param units    The number of televisions sold.
+ * @param revenue  The sum of the sale totals.
+ */
+public record Ranking(ObjectId id, long sales, long units, double revenue) {
+}
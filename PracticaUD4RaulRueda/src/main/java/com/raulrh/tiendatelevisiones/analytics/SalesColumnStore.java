@@ -0,0 +1,377 @@
+package com.raulrh.tiendatelevisiones.analytics;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import com.raulrh.tiendatelevisiones.entities.SaleRow;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory copy of the sales collection laid out by column for analytics. Each sale is a position in parallel
+ * primitive arrays holding its date as epoch day, its quantity, its total and the dictionary codes of its customer
+ * and television, so a query is a tight loop over a few arrays, split in chunks that run on the fork/join pool.
+ * <p>
+ * Loading is incremental: {@link #refresh(MongoCollection)} only reads the sales whose {@code _id} is greater than
+ * the last one loaded. Updates and deletions cannot be applied in place, so {@link #invalidate()} makes the next
+ * refresh load everything again. Queries run on an immutable {@link Snapshot}, never blocked by a refresh.
+ */
+public class SalesColumnStore {
+    public static final int BATCH_SIZE = 10_000;
+
+    private static final int INITIAL_CAPACITY = 1_024;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final Snapshot EMPTY = new Snapshot(new int[0], new int[0], new double[0], new int[0], new int[0],
+            0, new ObjectId[0], new ObjectId[0], Integer.MAX_VALUE, Integer.MIN_VALUE);
+
+    // Columns, only appended to beyond the size of the published snapshot
+    private int[] days;
+    private int[] quantities;
+    private double[] totals;
+    private int[] customers;
+    private int[] televisions;
+    private int size;
+    private int minDay;
+    private int maxDay;
+    private Dictionary customerIds;
+    private Dictionary televisionIds;
+    private ObjectId lastId;
+    private boolean stale;
+
+    private volatile Snapshot snapshot = EMPTY;
+
+    public SalesColumnStore() {
+        clear();
+    }
+
+    /**
+     * Loads the sales added since the last refresh, or every sale if the store has been invalidated,
+     * and publishes a new snapshot. It blocks, so it must not run on the EDT.
+     *
+     * @param sales The sales collection.
+     * @return The snapshot including the loaded sales.
+     */
+    public synchronized Snapshot refresh(MongoCollection<SaleRow> sales) {
+        if (stale) {
+            clear();
+        }
+
+        Bson filter = lastId != null ? Filters.gt("_id", lastId) : Filters.empty();
+        for (SaleRow row : sales.find(filter).sort(Sorts.ascending("_id")).batchSize(BATCH_SIZE)) {
+            append(row);
+        }
+        return publish();
+    }
+
+    /**
+     * Appends sales that are not stored in the database, such as generated ones, and publishes a new snapshot.
+     *
+     * @param rows The sales to append, in ascending id order.
+     * @return The snapshot including the appended sales.
+     */
+    public synchronized Snapshot append(Iterable<SaleRow> rows) {
+        for (SaleRow row : rows) {
+            append(row);
+        }
+        return publish();
+    }
+
+    /**
+     * Makes the next refresh load every sale again, as some loaded sale has been modified or deleted.
+     */
+    public synchronized void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * Returns whether a sale inserted with the given id would be missed by an incremental refresh.
+     *
+     * @param id The id of the inserted sale.
+     * @return {@code true} if the id is not greater than the last id loaded.
+     */
+    public synchronized boolean isBehind(ObjectId id) {
+        return lastId != null && id.compareTo(lastId) <= 0;
+    }
+
+    /**
+     * Returns the latest published snapshot, without loading anything.
+     *
+     * @return The snapshot.
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private void clear() {
+        // Published snapshots keep the previous arrays, so new ones are allocated
+        days = new int[INITIAL_CAPACITY];
+        quantities = new int[INITIAL_CAPACITY];
+        totals = new double[INITIAL_CAPACITY];
+        customers = new int[INITIAL_CAPACITY];
+        televisions = new int[INITIAL_CAPACITY];
+        size = 0;
+        minDay = Integer.MAX_VALUE;
+        maxDay = Integer.MIN_VALUE;
+        customerIds = new Dictionary();
+        televisionIds = new Dictionary();
+        lastId = null;
+        stale = false;
+    }
+
+    private void append(SaleRow row) {
+        if (size == days.length) {
+            int capacity = days.length * 2;
+            days = Arrays.copyOf(days, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            totals = Arrays.copyOf(totals, capacity);
+            customers = Arrays.copyOf(customers, capacity);
+            televisions = Arrays.copyOf(televisions, capacity);
+        }
+
+        days[size] = row.saleDay();
+        quantities[size] = row.quantity();
+        totals[size] = row.total();
+        customers[size] = customerIds.encode(row.customerId());
+        televisions[size] = televisionIds.encode(row.televisionId());
+        if (row.saleDay() != SaleRow.NO_DATE) {
+            minDay = Math.min(minDay, row.saleDay());
+            maxDay = Math.max(maxDay, row.saleDay());
+        }
+        size++;
+        lastId = row.id();
+    }
+
+    private Snapshot publish() {
+        snapshot = new Snapshot(days, quantities, totals, customers, televisions, size,
+                customerIds.values(), televisionIds.values(), minDay, maxDay);
+        return snapshot;
+    }
+
+    /**
+     * Dictionary encoding of the referenced ids: each distinct id gets the next code, so the columns hold ints.
+     */
+    private static class Dictionary {
+        private final Map<ObjectId, Integer> codes = new HashMap<>();
+        private ObjectId[] ids = new ObjectId[INITIAL_CAPACITY];
+
+        int encode(ObjectId id) {
+            if (id == null) {
+                return -1;
+            }
+
+            Integer code = codes.get(id);
+            if (code == null) {
+                code = codes.size();
+                if (code == ids.length) {
+                    ids = Arrays.copyOf(ids, ids.length * 2);
+                }
+                ids[code] = id;
+                codes.put(id, code);
+            }
+            return code;
+        }
+
+        ObjectId[] values() {
+            return ids;
+        }
+    }
+
+    /**
+     * Immutable view of the store at a point in time, on which queries run.
+     * Queries are answered by scanning the columns in parallel chunks and merging the partial results.
+     */
+    public static final class Snapshot {
+        // Codes of an entity filter that matches every sale or none of them
+        private static final int ANY = -1;
+        private static final int NO_MATCH = -2;
+
+        private final int[] days;
+        private final int[] quantities;
+        private final double[] totals;
+        private final int[] customers;
+        private final int[] televisions;
+        private final int size;
+        private final ObjectId[] customerIds;
+        private final ObjectId[] televisionIds;
+        private final int minDay;
+        private final int maxDay;
+
+        private Snapshot(int[] days, int[] quantities, double[] totals, int[] customers, int[] televisions, int size,
+                         ObjectId[] customerIds, ObjectId[] televisionIds, int minDay, int maxDay) {
+            this.days = days;
+            this.quantities = quantities;
+            this.totals = totals;
+            this.customers = customers;
+            this.televisions = televisions;
+            this.size = size;
+            this.customerIds = customerIds;
+            this.televisionIds = televisionIds;
+            this.minDay = minDay;
+            this.maxDay = maxDay;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Returns the revenue of the matching sales.
+         *
+         * @param filter The sales to include.
+         * @return The sum of their totals.
+         */
+        public double revenue(SalesFilter filter) {
+            return aggregate(filter, 1, i -> 0).revenue[0];
+        }
+
+        /**
+         * Returns the revenue of the matching sales by month. Sales without date are left out.
+         *
+         * @param filter The sales to include.
+         * @return The revenue of each month with sales, in chronological order.
+         */
+        public SortedMap<YearMonth, Double> revenueByMonth(SalesFilter filter) {
+            SortedMap<YearMonth, Double> result = new TreeMap<>();
+            if (minDay > maxDay) {
+                return result;
+            }
+
+            // Month of every day in range, so the scan does not convert dates
+            YearMonth first = YearMonth.from(LocalDate.ofEpochDay(minDay));
+            int[] monthOfDay = new int[maxDay - minDay + 1];
+            for (int day = minDay; day <= maxDay; day++) {
+                YearMonth month = YearMonth.from(LocalDate.ofEpochDay(day));
+                monthOfDay[day - minDay] = (int) first.until(month, ChronoUnit.MONTHS);
+            }
+
+            int months = monthOfDay[monthOfDay.length - 1] + 1;
+            Aggregate aggregate = aggregate(filter, months,
+                    i -> days[i] == SaleRow.NO_DATE ? -1 : monthOfDay[days[i] - minDay]);
+            for (int month = 0; month < months; month++) {
+                if (aggregate.sales[month] > 0) {
+                    result.put(first.plusMonths(month), aggregate.revenue[month]);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns the televisions with the most units sold among the matching sales.
+         *
+         * @param limit  The maximum number of televisions returned.
+         * @param filter The sales to include.
+         * @return The top televisions, by units sold and then revenue.
+         */
+        public List<Ranking> topTelevisions(int limit, SalesFilter filter) {
+            return top(aggregate(filter, televisionIds.length, i -> televisions[i]), televisionIds, limit);
+        }
+
+        /**
+         * Returns the customers with the most units bought among the matching sales.
+         *
+         * @param limit  The maximum number of customers returned.
+         * @param filter The sales to include.
+         * @return The top customers, by units bought and then revenue.
+         */
+        public List<Ranking> topCustomers(int limit, SalesFilter filter) {
+            return top(aggregate(filter, customerIds.length, i -> customers[i]), customerIds, limit);
+        }
+
+        private static List<Ranking> top(Aggregate aggregate, ObjectId[] ids, int limit) {
+            return IntStream.range(0, aggregate.sales.length)
+                    .filter(group -> aggregate.sales[group] > 0)
+                    .boxed()
+                    .sorted(Comparator.<Integer>comparingLong(group -> aggregate.units[group])
+                            .thenComparingDouble(group -> aggregate.revenue[group])
+                            .reversed())
+                    .limit(limit)
+                    .map(group -> new Ranking(ids[group], aggregate.sales[group], aggregate.units[group], aggregate.revenue[group]))
+                    .toList();
+        }
+
+        /**
+         * Groups the matching sales and sums their measures by group.
+         *
+         * @param filter  The sales to include.
+         * @param groups  The number of groups.
+         * @param groupOf The group of the sale at a position, or -1 to leave it out.
+         */
+        private Aggregate aggregate(SalesFilter filter, int groups, IntUnaryOperator groupOf) {
+            int fromDay = filter.from() != null ? (int) filter.from().toEpochDay() : Integer.MIN_VALUE;
+            int toDay = filter.to() != null ? (int) filter.to().toEpochDay() : Integer.MAX_VALUE;
+            int customer = code(customerIds, filter.customerId());
+            int television = code(televisionIds, filter.televisionId());
+            if (customer == NO_MATCH || television == NO_MATCH) {
+                return new Aggregate(groups);
+            }
+
+            int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            return IntStream.range(0, chunks).parallel()
+                    .mapToObj(chunk -> {
+                        Aggregate partial = new Aggregate(groups);
+                        int end = Math.min(size, (chunk + 1) * CHUNK_SIZE);
+                        for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                            int day = days[i];
+                            if (day < fromDay || day > toDay
+                                    || (customer != ANY && customers[i] != customer)
+                                    || (television != ANY && televisions[i] != television)) {
+                                continue;
+                            }
+
+                            int group = groupOf.applyAsInt(i);
+                            if (group >= 0) {
+                                partial.sales[group]++;
+                                partial.units[group] += quantities[i];
+                                partial.revenue[group] += totals[i];
+                            }
+                        }
+                        return partial;
+                    })
+                    .reduce(Aggregate::merge)
+                    .orElseGet(() -> new Aggregate(groups));
+        }
+
+        private static int code(ObjectId[] ids, ObjectId id) {
+            if (id == null) {
+                return ANY;
+            }
+            for (int code = 0; code < ids.length && ids[code] != null; code++) {
+                if (ids[code].equals(id)) {
+                    return code;
+                }
+            }
+            return NO_MATCH;
+        }
+    }
+
+    /**
+     * Measures summed by group.
+     */
+    private static final class Aggregate {
+        final long[] sales;
+        final long[] units;
+        final double[] revenue;
+
+        Aggregate(int groups) {
+            sales = new long[groups];
+            units = new long[groups];
+            revenue = new double[groups];
+        }
+
+        Aggregate merge(Aggregate other) {
+            for (int group = 0; group < sales.length; group++) {
+                sales[group] += other.sales[group];
+                units[group] += other.units[group];
+                revenue[group] += other.revenue[group];
+            }
+            return this;
+        }
+    }
+}
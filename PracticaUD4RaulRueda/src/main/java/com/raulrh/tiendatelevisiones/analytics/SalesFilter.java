@@ -0,0 +1,29 @@
+package com.raulrh.tiendatelevisiones.analytics;
+
+import org.bson.types.ObjectId;
+
+import java.time.LocalDate;
+
+/**
+ * Conditions on the sales aggregated by {@link SalesColumnStore}. Every condition left {@code null} matches any sale.
+ *
+ * @param from         The first sale date included.
+ * @param to           The last sale date included.
+ * @param customerId   The customer who bought.
+ * @param televisionId The television sold.
+ */
+public record SalesFilter(LocalDate from, LocalDate to, ObjectId customerId, ObjectId televisionId) {
+    public static final SalesFilter ALL = new SalesFilter(null, null, null, null);
+
+    public static SalesFilter between(LocalDate from, LocalDate to) {
+        return new SalesFilter(from, to, null, null);
+    }
+
+    public SalesFilter withCustomer(ObjectId customerId) {
+        return new SalesFilter(from, to, customerId, televisionId);
+    }
+
+    public SalesFilter withTelevision(ObjectId televisionId) {
+        return new SalesFilter(from, to, customerId, televisionId);
+    }
+}
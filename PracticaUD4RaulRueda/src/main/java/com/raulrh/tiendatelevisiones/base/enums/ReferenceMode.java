@@ -0,0 +1,20 @@
+package com.raulrh.tiendatelevisiones.base.enums;
+
+/**
+ * Enum representing how the televisions, customers and suppliers reference their sales and stock entries.
+ */
+public enum ReferenceMode {
+    FOREIGN_KEYS("Solo claves ajenas"),
+    EMBEDDED("Arrays de ids embebidos");
+
+    private final String label;
+
+    ReferenceMode(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
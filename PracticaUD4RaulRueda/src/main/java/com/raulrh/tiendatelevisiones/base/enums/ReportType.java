@@ -0,0 +1,21 @@
+package com.raulrh.tiendatelevisiones.base.enums;
+
+/**
+ * Enum representing the revenue reports available in the reports tab.
+ */
+public enum ReportType {
+    BY_TELEVISION("Ingresos por televisión"),
+    BY_CUSTOMER("Ingresos por cliente"),
+    BY_MONTH("Ingresos por mes");
+
+    private final String label;
+
+    ReportType(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
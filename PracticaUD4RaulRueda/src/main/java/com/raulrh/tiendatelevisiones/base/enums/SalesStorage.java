@@ -0,0 +1,20 @@
+package com.raulrh.tiendatelevisiones.base.enums;
+
+/**
+ * Enum representing how the sales collection is stored in the database.
+ */
+public enum SalesStorage {
+    STANDARD("Colección estándar"),
+    TIME_SERIES("Colección de series temporales");
+
+    private final String label;
+
+    SalesStorage(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
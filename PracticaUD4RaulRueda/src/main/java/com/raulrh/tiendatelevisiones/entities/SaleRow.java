@@ -0,0 +1,32 @@
+package com.raulrh.tiendatelevisiones.entities;
+
+import org.bson.types.ObjectId;
+
+import java.time.LocalDate;
+
+/**
+ * Read-only view of a sale used by tables and bulk reads. Quantities, totals and dates are held as primitives,
+ * the date as its epoch day, so each row is a single small object besides its ids. {@link Sale} remains the
+ * mutable representation used for edits.
+ *
+ * @param id           The id of the sale.
+ * @param customerId   The id of the customer.
+ * @param televisionId The id of the television.
+ * @param saleDay      The sale date as epoch day, or {@link #NO_DATE}.
+ * @param quantity     The number of televisions sold.
+ * @param total        The total price.
+ */
+public record SaleRow(ObjectId id, ObjectId customerId, ObjectId televisionId, int saleDay, int quantity, double total) {
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    public static SaleRow of(Sale sale) {
+        return new SaleRow(sale.getId(), sale.getCustomerId(), sale.getTelevisionId(),
+                sale.getSaleDate() != null ? (int) sale.getSaleDate().toEpochDay() : NO_DATE,
+                sale.getQuantity() != null ? sale.getQuantity() : 0,
+                sale.getTotal() != null ? sale.getTotal() : 0);
+    }
+
+    public LocalDate saleDate() {
+        return saleDay != NO_DATE ? LocalDate.ofEpochDay(saleDay) : null;
+    }
+}
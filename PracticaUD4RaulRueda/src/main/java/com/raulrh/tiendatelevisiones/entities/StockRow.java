@@ -0,0 +1,29 @@
+package com.raulrh.tiendatelevisiones.entities;
+
+import org.bson.types.ObjectId;
+
+import java.time.LocalDate;
+
+/**
+ * Read-only view of a stock entry used by tables and bulk reads. The quantity and the date are held as
+ * primitives, the date as its epoch day. {@link Stock} remains the mutable representation used for edits.
+ *
+ * @param id           The id of the stock entry.
+ * @param televisionId The id of the television.
+ * @param supplierId   The id of the supplier.
+ * @param quantity     The number of televisions received.
+ * @param entryDay     The entry date as epoch day, or {@link #NO_DATE}.
+ */
+public record StockRow(ObjectId id, ObjectId televisionId, ObjectId supplierId, int quantity, int entryDay) {
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    public static StockRow of(Stock stock) {
+        return new StockRow(stock.getId(), stock.getTelevisionId(), stock.getSupplierId(),
+                stock.getQuantity() != null ? stock.getQuantity() : 0,
+                stock.getEntryDate() != null ? (int) stock.getEntryDate().toEpochDay() : NO_DATE);
+    }
+
+    public LocalDate entryDate() {
+        return entryDay != NO_DATE ? LocalDate.ofEpochDay(entryDay) : null;
+    }
+}
@@ -0,0 +1,29 @@
+package com.raulrh.tiendatelevisiones.entities;
+
+import org.bson.types.ObjectId;
+
+/**
+ * Lightweight view of an entity holding only its id and display label,
+ * loaded through a projection to fill the combo boxes.
+ *
+ * @param id    The id of the entity.
+ * @param label The display label of the entity.
+ */
+public record Summary(ObjectId id, String label) {
+    public static Summary of(Television television) {
+        return new Summary(television.getId(), television.getBrand() + " " + television.getModel());
+    }
+
+    public static Summary of(Customer customer) {
+        return new Summary(customer.getId(), customer.getFirstName() + " " + customer.getLastName());
+    }
+
+    public static Summary of(Supplier supplier) {
+        return new Summary(supplier.getId(), supplier.getName());
+    }
+
+    @Override
+    public String toString() {
+        return id + " - " + label;
+    }
+}
@@ -12,6 +12,7 @@ public class Television {
     private LocalDate releaseDate;
     private Short type;
     private Boolean isSmart = false;
+    private Integer onHand;  // Maintained by the stock and sale writes
 
     // Constructors
     public Television() {
@@ -74,6 +75,14 @@ public class Television {
         this.isSmart = isSmart;
     }
 
+    public Integer getOnHand() {
+        return onHand;
+    }
+
+    public void setOnHand(Integer onHand) {
+        this.onHand = onHand;
+    }
+
     @Override
     public String toString() {
         return getId() + " - " + getModel();
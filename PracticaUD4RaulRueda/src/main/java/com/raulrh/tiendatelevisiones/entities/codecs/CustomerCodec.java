@@ -0,0 +1,40 @@
+package com.raulrh.tiendatelevisiones.entities.codecs;
+
+import com.raulrh.tiendatelevisiones.entities.Customer;
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+
+/**
+ * Codec of {@link Customer}, whose documents also hold the {@code saleIds} array.
+ */
+public class CustomerCodec extends EntityCodec<Customer> {
+    public CustomerCodec() {
+        super(Customer.class, Customer::new, Customer::getId, Customer::setId);
+    }
+
+    @Override
+    protected boolean decodeField(BsonReader reader, String name, Customer customer) {
+        switch (name) {
+            case "firstName" -> customer.setFirstName(readString(reader));
+            case "lastName" -> customer.setLastName(readString(reader));
+            case "email" -> customer.setEmail(readString(reader));
+            case "phone" -> customer.setPhone(readString(reader));
+            case "registrationDate" -> customer.setRegistrationDate(readLocalDate(reader));
+            case "type" -> customer.setType(readShort(reader));
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void encodeFields(BsonWriter writer, Customer customer) {
+        writeString(writer, "firstName", customer.getFirstName());
+        writeString(writer, "lastName", customer.getLastName());
+        writeString(writer, "email", customer.getEmail());
+        writeString(writer, "phone", customer.getPhone());
+        writeLocalDate(writer, "registrationDate", customer.getRegistrationDate());
+        writeInteger(writer, "type", customer.getType());
+    }
+}
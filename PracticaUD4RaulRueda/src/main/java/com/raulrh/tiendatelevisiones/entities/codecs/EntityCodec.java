@@ -0,0 +1,246 @@
+package com.raulrh.tiendatelevisiones.entities.codecs;
+
+import org.bson.*;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Base of the hand-written codecs of the entities. Documents are read and written field by field through the
+ * {@link BsonReader} and {@link BsonWriter}, without reflection nor intermediate documents. The stored format is
+ * the one the automatic POJO codec used: {@code _id} for the id, dates as UTC midnight and null fields omitted.
+ * Missing fields are left null, so projected documents decode into partial entities, and unknown fields, such as
+ * the {@code saleIds} and {@code stockIds} back-reference arrays, are skipped without being decoded.
+ *
+ * @param <T> The type of the entity.
+ */
+abstract class EntityCodec<T> implements CollectibleCodec<T> {
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final Class<T> type;
+    private final Supplier<T> factory;
+    private final Function<T, ObjectId> idOf;
+    private final BiConsumer<T, ObjectId> setId;
+
+    EntityCodec(Class<T> type, Supplier<T> factory, Function<T, ObjectId> idOf, BiConsumer<T, ObjectId> setId) {
+        this.type = type;
+        this.factory = factory;
+        this.idOf = idOf;
+        this.setId = setId;
+    }
+
+    /**
+     * Reads a field of the entity.
+     *
+     * @param reader The reader, positioned on the value of the field.
+     * @param name   The name of the field.
+     * @param entity The entity being decoded.
+     * @return {@code true} if the field has been read; {@code false} if it is not mapped and must be skipped.
+     */
+    protected abstract boolean decodeField(BsonReader reader, String name, T entity);
+
+    /**
+     * Writes every field of the entity but its id.
+     *
+     * @param writer The writer, inside the document of the entity.
+     * @param entity The entity being encoded.
+     */
+    protected abstract void encodeFields(BsonWriter writer, T entity);
+
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        T entity = factory.get();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (name.equals("_id")) {
+                setId.accept(entity, readObjectId(reader));
+            } else if (!decodeField(reader, name, entity)) {
+                reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return entity;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, T entity, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writeObjectId(writer, "_id", idOf.apply(entity));
+        encodeFields(writer, entity);
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<T> getEncoderClass() {
+        return type;
+    }
+
+    @Override
+    public T generateIdIfAbsentFromDocument(T entity) {
+        if (!documentHasId(entity)) {
+            setId.accept(entity, new ObjectId());
+        }
+        return entity;
+    }
+
+    @Override
+    public boolean documentHasId(T entity) {
+        return idOf.apply(entity) != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(T entity) {
+        if (!documentHasId(entity)) {
+            throw new IllegalStateException("The entity does not have an id");
+        }
+        return new BsonObjectId(idOf.apply(entity));
+    }
+
+    // Readers, which return null for BSON nulls and widen or narrow numbers written by other clients
+
+    private static boolean readIfNull(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.NULL) {
+            reader.readNull();
+            return true;
+        }
+        return false;
+    }
+
+    static ObjectId readObjectId(BsonReader reader) {
+        return readIfNull(reader) ? null : reader.readObjectId();
+    }
+
+    static String readString(BsonReader reader) {
+        return readIfNull(reader) ? null : reader.readString();
+    }
+
+    static Boolean readBoolean(BsonReader reader) {
+        return readIfNull(reader) ? null : reader.readBoolean();
+    }
+
+    static Double readDouble(BsonReader reader) {
+        BsonType type = reader.getCurrentBsonType();
+        return switch (type) {
+            case NULL -> {
+                reader.readNull();
+                yield null;
+            }
+            case DOUBLE -> reader.readDouble();
+            case INT32 -> (double) reader.readInt32();
+            case INT64 -> (double) reader.readInt64();
+            case DECIMAL128 -> reader.readDecimal128().bigDecimalValue().doubleValue();
+            default -> throw new BsonInvalidOperationException("Expected a number but found " + type);
+        };
+    }
+
+    static Integer readInteger(BsonReader reader) {
+        BsonType type = reader.getCurrentBsonType();
+        return switch (type) {
+            case NULL -> {
+                reader.readNull();
+                yield null;
+            }
+            case INT32 -> reader.readInt32();
+            case INT64 -> Math.toIntExact(reader.readInt64());
+            case DOUBLE -> (int) reader.readDouble();
+            default -> throw new BsonInvalidOperationException("Expected an integer but found " + type);
+        };
+    }
+
+    static Short readShort(BsonReader reader) {
+        Integer value = readInteger(reader);
+        return value != null ? value.shortValue() : null;
+    }
+
+    static LocalDate readLocalDate(BsonReader reader) {
+        return readIfNull(reader) ? null : Instant.ofEpochMilli(reader.readDateTime()).atZone(ZoneOffset.UTC).toLocalDate();
+    }
+
+    // Primitive readers for the row codecs, which return the given default for BSON nulls
+
+    static int readInt(BsonReader reader, int defaultValue) {
+        BsonType type = reader.getCurrentBsonType();
+        return switch (type) {
+            case NULL -> {
+                reader.readNull();
+                yield defaultValue;
+            }
+            case INT32 -> reader.readInt32();
+            case INT64 -> Math.toIntExact(reader.readInt64());
+            case DOUBLE -> (int) reader.readDouble();
+            default -> throw new BsonInvalidOperationException("Expected an integer but found " + type);
+        };
+    }
+
+    static double readDouble(BsonReader reader, double defaultValue) {
+        BsonType type = reader.getCurrentBsonType();
+        return switch (type) {
+            case NULL -> {
+                reader.readNull();
+                yield defaultValue;
+            }
+            case DOUBLE -> reader.readDouble();
+            case INT32 -> reader.readInt32();
+            case INT64 -> reader.readInt64();
+            case DECIMAL128 -> reader.readDecimal128().bigDecimalValue().doubleValue();
+            default -> throw new BsonInvalidOperationException("Expected a number but found " + type);
+        };
+    }
+
+    static int readEpochDay(BsonReader reader, int defaultValue) {
+        return readIfNull(reader) ? defaultValue : (int) Math.floorDiv(reader.readDateTime(), MILLIS_PER_DAY);
+    }
+
+    // Writers, which omit null values
+
+    static void writeObjectId(BsonWriter writer, String name, ObjectId value) {
+        if (value != null) {
+            writer.writeObjectId(name, value);
+        }
+    }
+
+    static void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) {
+            writer.writeString(name, value);
+        }
+    }
+
+    static void writeBoolean(BsonWriter writer, String name, Boolean value) {
+        if (value != null) {
+            writer.writeBoolean(name, value);
+        }
+    }
+
+    static void writeDouble(BsonWriter writer, String name, Double value) {
+        if (value != null) {
+            writer.writeDouble(name, value);
+        }
+    }
+
+    static void writeInteger(BsonWriter writer, String name, Number value) {
+        if (value != null) {
+            writer.writeInt32(name, value.intValue());
+        }
+    }
+
+    static void writeLocalDate(BsonWriter writer, String name, LocalDate value) {
+        if (value != null) {
+            writer.writeDateTime(name, value.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli());
+        }
+    }
+
+    static void writeEpochDay(BsonWriter writer, String name, int epochDay, int noDate) {
+        if (epochDay != noDate) {
+            writer.writeDateTime(name, epochDay * MILLIS_PER_DAY);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.raulrh.tiendatelevisiones.entities.codecs;
+
+import com.raulrh.tiendatelevisiones.entities.*;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.util.Map;
+
+/**
+ * Provides the hand-written codecs of the entities and their read-only rows,
+ * replacing the reflection-based automatic POJO codec.
+ */
+public class EntityCodecProvider implements CodecProvider {
+    private final Map<Class<?>, Codec<?>> codecs = Map.of(
+            Television.class, new TelevisionCodec(),
+            Customer.class, new CustomerCodec(),
+            Sale.class, new SaleCodec(),
+            Supplier.class, new SupplierCodec(),
+            Stock.class, new StockCodec(),
+            SaleRow.class, new SaleRowCodec(),
+            StockRow.class, new StockRowCodec()
+    );
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
+        return (Codec<T>) codecs.get(clazz);
+    }
+}
@@ -0,0 +1,29 @@
+package com.raulrh.tiendatelevisiones.entities.codecs;
+
+import org.bson.types.ObjectId;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances of the foreign keys read by the row codecs. Rows referencing the same entity share
+ * one {@link ObjectId} instead of holding a copy each, so the heap retained by a scan grows with the number
+ * of referenced entities rather than with the number of rows. The pool is emptied when it reaches its bound.
+ */
+class ObjectIdPool {
+    private static final int MAX_IDS = 100_000;
+
+    private final Map<ObjectId, ObjectId> ids = new ConcurrentHashMap<>();
+
+    ObjectId canonical(ObjectId id) {
+        if (id == null) {
+            return null;
+        }
+        if (ids.size() >= MAX_IDS) {
+            ids.clear();
+        }
+
+        ObjectId existing = ids.putIfAbsent(id, id);
+        return existing != null ? existing : id;
+    }
+}
@@ -0,0 +1,38 @@
+package com.raulrh.tiendatelevisiones.entities.codecs;
+
+import com.raulrh.tiendatelevisiones.entities.Sale;
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+
+/**
+ * Codec of {@link Sale}.
+ */
+public class SaleCodec extends EntityCodec<Sale> {
+    public SaleCodec() {
+        super(Sale.class, Sale::new, Sale::getId, Sale::setId);
+    }
+
+    @Override
+    protected boolean decodeField(BsonReader reader, String name, Sale sale) {
+        switch (name) {
+            case "customerId" -> sale.setCustomerId(readObjectId(reader));
+            case "televisionId" -> sale.setTelevisionId(readObjectId(reader));
+            case "saleDate" -> sale.setSaleDate(readLocalDate(reader));
+            case "quantity" -> sale.setQuantity(readInteger(reader));
+            case "total" -> sale.setTotal(readDouble(reader));
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void encodeFields(BsonWriter writer, Sale sale) {
+        writeObjectId(writer, "customerId", sale.getCustomerId());
+        writeObjectId(writer, "televisionId", sale.getTelevisionId());
+        writeLocalDate(writer, "saleDate", sale.getSaleDate());
+        writeInteger(writer, "quantity", sale.getQuantity());
+        writeDouble(writer, "total", sale.getTotal());
+    }
+}
@@ -0,0 +1,62 @@
+package com.raulrh.tiendatelevisiones.entities.codecs;
+
+import com.raulrh.tiendatelevisiones.entities.SaleRow;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import static com.raulrh.tiendatelevisiones.entities.codecs.EntityCodec.*;
+
+/**
+ * Codec of {@link SaleRow}, reading the documents of the sales collection straight into primitives
+ * and sharing the instances of the foreign keys between rows.
+ */
+public class SaleRowCodec implements Codec<SaleRow> {
+    private final ObjectIdPool foreignKeys = new ObjectIdPool();
+
+    @Override
+    public SaleRow decode(BsonReader reader, DecoderContext decoderContext) {
+        ObjectId id = null;
+        ObjectId customerId = null;
+        ObjectId televisionId = null;
+        int saleDay = SaleRow.NO_DATE;
+        int quantity = 0;
+        double total = 0;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> id = readObjectId(reader);
+                case "customerId" -> customerId = foreignKeys.canonical(readObjectId(reader));
+                case "televisionId" -> televisionId = foreignKeys.canonical(readObjectId(reader));
+                case "saleDate" -> saleDay = readEpochDay(reader, SaleRow.NO_DATE);
+                case "quantity" -> quantity = readInt(reader, 0);
+                case "total" -> total = readDouble(reader, 0);
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return new SaleRow(id, customerId, televisionId, saleDay, quantity, total);
+    }
+
+    @Override
+    public void encode(BsonWriter writer, SaleRow row, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writeObjectId(writer, "_id", row.id());
+        writeObjectId(writer, "customerId", row.customerId());
+        writeObjectId(writer, "televisionId", row.televisionId());
+        writeEpochDay(writer, "saleDate", row.saleDay(), SaleRow.NO_DATE);
+        writer.writeInt32("quantity", row.quantity());
+        writer.writeDouble("total", row.total());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<SaleRow> getEncoderClass() {
+        return SaleRow.class;
+    }
+}
@@ -0,0 +1,36 @@
+package com.raulrh.tiendatelevisiones.entities.codecs;
+
+import com.raulrh.tiendatelevisiones.entities.Stock;
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+
+/**
+ * Codec of {@link Stock}.
+ */
+public class StockCodec extends EntityCodec<Stock> {
+    public StockCodec() {
+        super(Stock.class, Stock::new, Stock::getId, Stock::setId);
+    }
+
+    @Override
+    protected boolean decodeField(BsonReader reader, String name, Stock stock) {
+        switch (name) {
+            case "televisionId" -> stock.setTelevisionId(readObjectId(reader));
+            case "supplierId" -> stock.setSupplierId(readObjectId(reader));
+            case "quantity" -> stock.setQuantity(readInteger(reader));
+            case "entryDate" -> stock.setEntryDate(readLocalDate(reader));
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void encodeFields(BsonWriter writer, Stock stock) {
+        writeObjectId(writer, "televisionId", stock.getTelevisionId());
+        writeObjectId(writer, "supplierId", stock.getSupplierId());
+        writeInteger(writer, "quantity", stock.getQuantity());
+        writeLocalDate(writer, "entryDate", stock.getEntryDate());
+    }
+}
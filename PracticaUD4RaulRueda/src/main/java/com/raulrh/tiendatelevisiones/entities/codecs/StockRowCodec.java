@@ -0,0 +1,59 @@
+package com.raulrh.tiendatelevisiones.entities.codecs;
+
+import com.raulrh.tiendatelevisiones.entities.StockRow;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import static com.raulrh.tiendatelevisiones.entities.codecs.EntityCodec.*;
+
+/**
+ * Codec of {@link StockRow}, reading the documents of the stock collection straight into primitives
+ * and sharing the instances of the foreign keys between rows.
+ */
+public class StockRowCodec implements Codec<StockRow> {
+    private final ObjectIdPool foreignKeys = new ObjectIdPool();
+
+    @Override
+    public StockRow decode(BsonReader reader, DecoderContext decoderContext) {
+        ObjectId id = null;
+        ObjectId televisionId = null;
+        ObjectId supplierId = null;
+        int quantity = 0;
+        int entryDay = StockRow.NO_DATE;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> id = readObjectId(reader);
+                case "televisionId" -> televisionId = foreignKeys.canonical(readObjectId(reader));
+                case "supplierId" -> supplierId = foreignKeys.canonical(readObjectId(reader));
+                case "quantity" -> quantity = readInt(reader, 0);
+                case "entryDate" -> entryDay = readEpochDay(reader, StockRow.NO_DATE);
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return new StockRow(id, televisionId, supplierId, quantity, entryDay);
+    }
+
+    @Override
+    public void encode(BsonWriter writer, StockRow row, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writeObjectId(writer, "_id", row.id());
+        writeObjectId(writer, "televisionId", row.televisionId());
+        writeObjectId(writer, "supplierId", row.supplierId());
+        writer.writeInt32("quantity", row.quantity());
+        writeEpochDay(writer, "entryDate", row.entryDay(), StockRow.NO_DATE);
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<StockRow> getEncoderClass() {
+        return StockRow.class;
+    }
+}
@@ -0,0 +1,36 @@
+package com.raulrh.tiendatelevisiones.entities.codecs;
+
+import com.raulrh.tiendatelevisiones.entities.Supplier;
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+
+/**
+ * Codec of {@link Supplier}, whose documents also hold the {@code stockIds} array.
+ */
+public class SupplierCodec extends EntityCodec<Supplier> {
+    public SupplierCodec() {
+        super(Supplier.class, Supplier::new, Supplier::getId, Supplier::setId);
+    }
+
+    @Override
+    protected boolean decodeField(BsonReader reader, String name, Supplier supplier) {
+        switch (name) {
+            case "name" -> supplier.setName(readString(reader));
+            case "phone" -> supplier.setPhone(readString(reader));
+            case "address" -> supplier.setAddress(readString(reader));
+            case "email" -> supplier.setEmail(readString(reader));
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void encodeFields(BsonWriter writer, Supplier supplier) {
+        writeString(writer, "name", supplier.getName());
+        writeString(writer, "phone", supplier.getPhone());
+        writeString(writer, "address", supplier.getAddress());
+        writeString(writer, "email", supplier.getEmail());
+    }
+}
@@ -0,0 +1,42 @@
+package com.raulrh.tiendatelevisiones.entities.codecs;
+
+import com.raulrh.tiendatelevisiones.entities.Television;
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+
+/**
+ * Codec of {@link Television}, whose documents also hold the {@code saleIds} and {@code stockIds} arrays.
+ */
+public class TelevisionCodec extends EntityCodec<Television> {
+    public TelevisionCodec() {
+        super(Television.class, Television::new, Television::getId, Television::setId);
+    }
+
+    @Override
+    protected boolean decodeField(BsonReader reader, String name, Television television) {
+        switch (name) {
+            case "model" -> television.setModel(readString(reader));
+            case "brand" -> television.setBrand(readString(reader));
+            case "price" -> television.setPrice(readDouble(reader));
+            case "releaseDate" -> television.setReleaseDate(readLocalDate(reader));
+            case "type" -> television.setType(readShort(reader));
+            case "isSmart" -> television.setIsSmart(readBoolean(reader));
+            case "onHand" -> television.setOnHand(readInteger(reader));
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void encodeFields(BsonWriter writer, Television television) {
+        writeString(writer, "model", television.getModel());
+        writeString(writer, "brand", television.getBrand());
+        writeDouble(writer, "price", television.getPrice());
+        writeLocalDate(writer, "releaseDate", television.getReleaseDate());
+        writeInteger(writer, "type", television.getType());
+        writeBoolean(writer, "isSmart", television.getIsSmart());
+        writeInteger(writer, "onHand", television.getOnHand());
+    }
+}
@@ -0,0 +1,441 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.raulrh.tiendatelevisiones.analytics.SalesColumnStore;
+import com.raulrh.tiendatelevisiones.analytics.SalesFilter;
+import com.raulrh.tiendatelevisiones.base.enums.ReferenceMode;
+import com.raulrh.tiendatelevisiones.entities.*;
+import com.raulrh.tiendatelevisiones.util.Util;
+import org.bson.types.ObjectId;
+
+import javax.swing.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The {@code AsyncModel} class is an asynchronous facade over {@link Model}.
+ * Every call runs on a virtual thread so the Swing Event Dispatch Thread never waits for MongoDB,
+ * and results are handed back to the EDT through {@link #onEdt(CompletableFuture, Consumer)}.
+ * It also tracks the tasks in flight to drive a busy indicator, to cancel the reads on demand and to let the
+ * writes finish before disconnecting.
+ */
+public class AsyncModel {
+    private final Model model;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<CompletableFuture<?>> pending = ConcurrentHashMap.newKeySet();
+    private final Set<CompletableFuture<?>> writes = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger running = new AtomicInteger();
+    private final List<Consumer<Boolean>> busyListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs an AsyncModel that delegates to the given model.
+     *
+     * @param model The synchronous model every task runs against.
+     */
+    public AsyncModel(Model model) {
+        this.model = model;
+    }
+
+    /**
+     * Runs a read against the model on a virtual thread.
+     * Cancelling the returned future interrupts the thread running the task.
+     *
+     * @param task The task to run.
+     * @param <T>  The type of the task result.
+     * @return A future completed with the task result.
+     */
+    public <T> CompletableFuture<T> submit(Function<Model, T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        pending.add(future);
+        Future<?> worker = start(future, task);
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                worker.cancel(true);
+            }
+            pending.remove(future);
+        });
+        return future;
+    }
+
+    /**
+     * Runs a read without result against the model on a virtual thread.
+     *
+     * @param task The task to run.
+     * @return A future completed once the task finishes.
+     */
+    public CompletableFuture<Void> execute(Consumer<Model> task) {
+        return submit(m -> {
+            task.accept(m);
+            return null;
+        });
+    }
+
+    /**
+     * Runs a write against the model on a virtual thread. Writes are never interrupted, since stopping one half way
+     * would leave the references and counters it corrects out of step: cancelling the returned future only stops
+     * waiting for it, and {@link #disconnect()} waits for the writes still in flight.
+     *
+     * @param task The task to run.
+     * @param <T>  The type of the task result.
+     * @return A future completed with the task result.
+     */
+    public <T> CompletableFuture<T> submitWrite(Function<Model, T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        writes.add(future);
+        future.whenComplete((result, error) -> writes.remove(future));
+        start(future, task);
+        return future.copy();
+    }
+
+    /**
+     * Runs a write without result against the model on a virtual thread, as {@link #submitWrite(Function)} does.
+     *
+     * @param task The task to run.
+     * @return A future completed once the task finishes.
+     */
+    public CompletableFuture<Void> executeWrite(Consumer<Model> task) {
+        return submitWrite(m -> {
+            task.accept(m);
+            return null;
+        });
+    }
+
+    private <T> Future<?> start(CompletableFuture<T> future, Function<Model, T> task) {
+        if (running.getAndIncrement() == 0) {
+            fireBusy(true);
+        }
+        future.whenComplete((result, error) -> {
+            if (running.decrementAndGet() == 0) {
+                fireBusy(false);
+            }
+        });
+
+        return executor.submit(() -> {
+            try {
+                future.complete(task.apply(model));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+    }
+
+    /**
+     * Delivers the result of a future to the Event Dispatch Thread.
+     * Failures are reported with an error dialog, cancellations are ignored.
+     *
+     * @param future    The future to wait for.
+     * @param onSuccess The callback run on the EDT with the result.
+     * @param <T>       The type of the result.
+     * @return The same future, to allow further chaining.
+     */
+    public static <T> CompletableFuture<T> onEdt(CompletableFuture<T> future, Consumer<T> onSuccess) {
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                onSuccess.accept(result);
+                return;
+            }
+
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (!(cause instanceof CancellationException)) {
+                Util.showErrorDialog("Error al acceder a la base de datos: " + cause.getMessage());
+            }
+        }));
+        return future;
+    }
+
+    /**
+     * Cancels every read still in flight. Writes are left to finish.
+     */
+    public void cancelAll() {
+        for (CompletableFuture<?> future : pending) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Returns whether there are tasks in flight.
+     *
+     * @return {@code true} if at least one task is running; {@code false} otherwise.
+     */
+    public boolean isBusy() {
+        return running.get() > 0;
+    }
+
+    /**
+     * Registers a listener notified on the EDT when the model becomes busy or idle.
+     *
+     * @param listener The listener, receiving {@code true} when busy and {@code false} when idle.
+     */
+    public void addBusyListener(Consumer<Boolean> listener) {
+        busyListeners.add(listener);
+    }
+
+    private void fireBusy(boolean busy) {
+        SwingUtilities.invokeLater(() -> {
+            // Another transition may have happened before this one reached the EDT
+            if (busy == isBusy()) {
+                busyListeners.forEach(listener -> listener.accept(busy));
+            }
+        });
+    }
+
+    /**
+     * Registers a listener for the changes of the collection holding the given entity type,
+     * made by this application or any other client. The listener is called on the EDT.
+     *
+     * @param type     The type of the entities.
+     * @param listener The listener.
+     * @param <T>      The type of the entities.
+     */
+    public <T> void addChangeListener(Class<T> type, Consumer<ChangeEvent<T>> listener) {
+        model.addChangeListener(type, event -> SwingUtilities.invokeLater(() -> listener.accept(event)));
+    }
+
+    // Reference Methods
+    public ReferenceResolver<Television> getTelevisionNames() {
+        return model.getTelevisionNames();
+    }
+
+    public ReferenceResolver<Customer> getCustomerNames() {
+        return model.getCustomerNames();
+    }
+
+    public ReferenceResolver<Supplier> getSupplierNames() {
+        return model.getSupplierNames();
+    }
+
+    // Connection Methods
+    public CompletableFuture<Void> connect() {
+        return execute(Model::connect);
+    }
+
+    /**
+     * Cancels the reads in flight and disconnects once the writes in flight have finished, whether they succeeded
+     * or not.
+     *
+     * @return A future completed once disconnected.
+     */
+    public CompletableFuture<Void> disconnect() {
+        cancelAll();
+        CompletableFuture<?>[] inFlight = writes.toArray(new CompletableFuture<?>[0]);
+        return CompletableFuture.allOf(inFlight)
+                .handle((result, error) -> null)
+                .thenCompose(ignored -> execute(Model::disconnect));
+    }
+
+    // Television Methods
+    public CompletableFuture<List<Television>> getTelevisions() {
+        return submit(Model::getTelevisions);
+    }
+
+    public CompletableFuture<List<Television>> getTelevisions(SortOrder order) {
+        return submit(m -> m.getTelevisions(order));
+    }
+
+    public CompletableFuture<List<Summary>> getTelevisionSummaries(String prefix, int limit) {
+        return submit(m -> m.getTelevisionSummaries(prefix, limit));
+    }
+
+    public CompletableFuture<List<Television>> searchTelevisions(String brand, SortOrder order) {
+        return submit(m -> m.searchTelevisions(brand, order));
+    }
+
+    public CompletableFuture<WriteResult<Television>> addTelevision(String model, String brand, double price, LocalDate releaseDate, short type, boolean isSmart) {
+        return submitWrite(m -> m.addTelevision(model, brand, price, releaseDate, type, isSmart));
+    }
+
+    public CompletableFuture<WriteResult<Television>> modifyTelevision(ObjectId id, String model, String brand, double price, LocalDate releaseDate, int type, boolean isSmart) {
+        return submitWrite(m -> m.modifyTelevision(id, model, brand, price, releaseDate, type, isSmart));
+    }
+
+    public CompletableFuture<Void> deleteTelevision(ObjectId id) {
+        return executeWrite(m -> m.deleteTelevision(id));
+    }
+
+    public CompletableFuture<List<Television>> modifyTelevisions(Collection<ObjectId> ids, BulkEdit edit) {
+        return submitWrite(m -> m.modifyTelevisions(ids, edit));
+    }
+
+    public CompletableFuture<Void> deleteTelevisions(Collection<ObjectId> ids) {
+        return executeWrite(m -> m.deleteTelevisions(ids));
+    }
+
+    // Customer Methods
+    public CompletableFuture<List<Customer>> getCustomers() {
+        return submit(Model::getCustomers);
+    }
+
+    public CompletableFuture<List<Customer>> getCustomers(SortOrder order) {
+        return submit(m -> m.getCustomers(order));
+    }
+
+    public CompletableFuture<List<Summary>> getCustomerSummaries(String prefix, int limit) {
+        return submit(m -> m.getCustomerSummaries(prefix, limit));
+    }
+
+    public CompletableFuture<List<Customer>> searchCustomers(String email, SortOrder order) {
+        return submit(m -> m.searchCustomers(email, order));
+    }
+
+    public CompletableFuture<WriteResult<Customer>> addCustomer(String name, String surname, String mail, String phone, LocalDate birthDate, short type) {
+        return submitWrite(m -> m.addCustomer(name, surname, mail, phone, birthDate, type));
+    }
+
+    public CompletableFuture<WriteResult<Customer>> modifyCustomer(ObjectId id, String name, String surname, String mail, String phone, LocalDate birthDate, int type) {
+        return submitWrite(m -> m.modifyCustomer(id, name, surname, mail, phone, birthDate, type));
+    }
+
+    public CompletableFuture<Void> deleteCustomer(ObjectId id) {
+        return executeWrite(m -> m.deleteCustomer(id));
+    }
+
+    public CompletableFuture<List<Customer>> modifyCustomers(Collection<ObjectId> ids, BulkEdit edit) {
+        return submitWrite(m -> m.modifyCustomers(ids, edit));
+    }
+
+    public CompletableFuture<Void> deleteCustomers(Collection<ObjectId> ids) {
+        return executeWrite(m -> m.deleteCustomers(ids));
+    }
+
+    // Sale Methods
+    public CompletableFuture<List<SaleRow>> getSales() {
+        return submit(Model::getSales);
+    }
+
+    public CompletableFuture<WriteResult<Sale>> addSale(ObjectId customerId, ObjectId televisionId, LocalDate saleDate, int quantity, double totalPrice) {
+        return submitWrite(m -> m.addSale(customerId, televisionId, saleDate, quantity, totalPrice));
+    }
+
+    public CompletableFuture<List<Sale>> addSales(List<Sale> sales) {
+        return submitWrite(m -> m.addSales(sales));
+    }
+
+    public CompletableFuture<WriteResult<Sale>> modifySale(ObjectId id, ObjectId customerId, ObjectId televisionId, LocalDate saleDate, int quantity, double totalPrice) {
+        return submitWrite(m -> m.modifySale(id, customerId, televisionId, saleDate, quantity, totalPrice));
+    }
+
+    public CompletableFuture<Void> deleteSale(ObjectId id) {
+        return executeWrite(m -> m.deleteSale(id));
+    }
+
+    public CompletableFuture<List<Sale>> modifySales(Collection<ObjectId> ids, BulkEdit edit) {
+        return submitWrite(m -> m.modifySales(ids, edit));
+    }
+
+    public CompletableFuture<Void> deleteSales(Collection<ObjectId> ids) {
+        return executeWrite(m -> m.deleteSales(ids));
+    }
+
+    public CompletableFuture<SalesColumnStore.Snapshot> getSalesSnapshot() {
+        return submit(Model::refreshSalesStore);
+    }
+
+    // Report Methods
+    public CompletableFuture<List<Revenue<ObjectId>>> getRevenueByTelevision(SalesFilter filter, int limit) {
+        return submit(m -> {
+            List<Revenue<ObjectId>> report = m.getReportService().revenueByTelevision(filter, limit);
+            m.getTelevisionNames().resolve(report.stream().map(Revenue::key).toList());
+            return report;
+        });
+    }
+
+    public CompletableFuture<List<Revenue<ObjectId>>> getRevenueByCustomer(SalesFilter filter, int limit) {
+        return submit(m -> {
+            List<Revenue<ObjectId>> report = m.getReportService().revenueByCustomer(filter, limit);
+            m.getCustomerNames().resolve(report.stream().map(Revenue::key).toList());
+            return report;
+        });
+    }
+
+    public CompletableFuture<List<Revenue<YearMonth>>> getRevenueByMonth(SalesFilter filter) {
+        return submit(m -> m.getReportService().revenueByMonth(filter));
+    }
+
+    public CompletableFuture<Long> rebuildSalesRollup() {
+        return submitWrite(Model::rebuildSalesRollup);
+    }
+
+    public CompletableFuture<Long> migrateReferences(ReferenceMode referenceMode) {
+        return submitWrite(m -> m.migrateReferences(referenceMode));
+    }
+
+    public CompletableFuture<Integer> reconcileStock() {
+        return submitWrite(Model::reconcileStock);
+    }
+
+    public CompletableFuture<Integer> getOnHand(ObjectId televisionId) {
+        return submit(m -> m.getOnHand(televisionId));
+    }
+
+    // Supplier Methods
+    public CompletableFuture<List<Supplier>> getSuppliers() {
+        return submit(Model::getSuppliers);
+    }
+
+    public CompletableFuture<List<Supplier>> getSuppliers(SortOrder order) {
+        return submit(m -> m.getSuppliers(order));
+    }
+
+    public CompletableFuture<List<Summary>> getSupplierSummaries(String prefix, int limit) {
+        return submit(m -> m.getSupplierSummaries(prefix, limit));
+    }
+
+    public CompletableFuture<List<Supplier>> searchSuppliers(String name, SortOrder order) {
+        return submit(m -> m.searchSuppliers(name, order));
+    }
+
+    public CompletableFuture<WriteResult<Supplier>> addSupplier(String name, String phone, String address, String mail) {
+        return submitWrite(m -> m.addSupplier(name, phone, address, mail));
+    }
+
+    public CompletableFuture<WriteResult<Supplier>> modifySupplier(ObjectId id, String name, String phone, String address, String mail) {
+        return submitWrite(m -> m.modifySupplier(id, name, phone, address, mail));
+    }
+
+    public CompletableFuture<Void> deleteSupplier(ObjectId id) {
+        return executeWrite(m -> m.deleteSupplier(id));
+    }
+
+    public CompletableFuture<List<Supplier>> modifySuppliers(Collection<ObjectId> ids, BulkEdit edit) {
+        return submitWrite(m -> m.modifySuppliers(ids, edit));
+    }
+
+    public CompletableFuture<Void> deleteSuppliers(Collection<ObjectId> ids) {
+        return executeWrite(m -> m.deleteSuppliers(ids));
+    }
+
+    // Stock Methods
+    public CompletableFuture<List<StockRow>> getStock() {
+        return submit(Model::getStock);
+    }
+
+    public CompletableFuture<WriteResult<Stock>> addStock(ObjectId televisionId, ObjectId supplierId, LocalDate stockDate, int total) {
+        return submitWrite(m -> m.addStock(televisionId, supplierId, stockDate, total));
+    }
+
+    public CompletableFuture<List<Stock>> addStockEntries(List<Stock> entries) {
+        return submitWrite(m -> m.addStockEntries(entries));
+    }
+
+    public CompletableFuture<WriteResult<Stock>> modifyStock(ObjectId id, ObjectId televisionId, ObjectId supplierId, LocalDate stockDate, int total) {
+        return submitWrite(m -> m.modifyStock(id, televisionId, supplierId, stockDate, total));
+    }
+
+    public CompletableFuture<Void> deleteStock(ObjectId id) {
+        return executeWrite(m -> m.deleteStock(id));
+    }
+
+    public CompletableFuture<List<Stock>> modifyStockEntries(Collection<ObjectId> ids, BulkEdit edit) {
+        return submitWrite(m -> m.modifyStockEntries(ids, edit));
+    }
+
+    public CompletableFuture<Void> deleteStockEntries(Collection<ObjectId> ids) {
+        return executeWrite(m -> m.deleteStockEntries(ids));
+    }
+}
@@ -0,0 +1,77 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.mongodb.client.model.Updates;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+
+import java.util.*;
+
+/**
+ * Fields to set on every document selected for a bulk edit on {@link Model}.
+ * Fields left out, or given a {@code null} or blank value, keep the value each document already has.
+ */
+public class BulkEdit {
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    /**
+     * Sets a field on every document, unless the value is {@code null} or a blank string.
+     *
+     * @param field The name of the field in the documents.
+     * @param value The new value, or {@code null} or a blank string to keep the current one.
+     * @return This edit, to chain calls.
+     */
+    public BulkEdit set(String field, Object value) {
+        if (value != null && !(value instanceof String text && text.isBlank())) {
+            values.put(field, value);
+        }
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * Returns whether the edit sets any of the given fields.
+     *
+     * @param fields The names of the fields.
+     * @return {@code true} if at least one of them is set.
+     */
+    public boolean sets(String... fields) {
+        return Arrays.stream(fields).anyMatch(values::containsKey);
+    }
+
+    public Set<String> fields() {
+        return Collections.unmodifiableSet(values.keySet());
+    }
+
+    Bson toUpdate() {
+        List<Bson> updates = new ArrayList<>();
+        values.forEach((field, value) -> updates.add(Updates.set(field, value)));
+        updates.add(ChangeFeed.touch());
+        return Updates.combine(updates);
+    }
+
+    /**
+     * Returns the state a document has after the edit, without reading it again from the server.
+     *
+     * @param document The document before the edit.
+     * @param type     The class of the document.
+     * @param registry The registry holding the codec of the class.
+     * @return A new document with the fields of the edit set.
+     */
+    <T> T applyTo(T document, Class<T> type, CodecRegistry registry) {
+        Codec<T> codec = registry.get(type);
+        BsonDocument state = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(state), document, EncoderContext.builder().build());
+        state.putAll(new Document(values).toBsonDocument(Document.class, registry));
+        return codec.decode(new BsonDocumentReader(state), DecoderContext.builder().build());
+    }
+}
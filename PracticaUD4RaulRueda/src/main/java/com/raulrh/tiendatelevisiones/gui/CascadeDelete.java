@@ -0,0 +1,207 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.raulrh.tiendatelevisiones.base.enums.ReferenceMode;
+import com.raulrh.tiendatelevisiones.base.enums.SalesStorage;
+import com.raulrh.tiendatelevisiones.entities.SaleRow;
+import com.raulrh.tiendatelevisiones.entities.StockRow;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The {@code CascadeDelete} class deletes televisions, customers and suppliers along with the sales and stock
+ * entries that reference them, leaving no dangling id in the {@code saleIds} and {@code stockIds} arrays of the
+ * other side, when the {@link ReferenceMode} keeps them. The dependents are read once with a projection of their
+ * keys, and their ids are pulled with one {@code $pullAll} per referenced document, grouped in a single bulk write
+ * per collection by a {@link ReferenceBatch}. Deleting a television with any number of sales takes a fixed number of round trips.
+ * <p>
+ * On a replica set or a sharded cluster the whole cascade runs in a multi-document transaction, so it is
+ * applied entirely or not at all. A standalone server does not support transactions, and neither do the sales
+ * stored as a time series, so there each step is applied on its own, in an order that never leaves an id pointing
+ * to a deleted document. The sale and stock writes of {@link Model} run through the same path.
+ */
+public class CascadeDelete {
+    // The projected dependents are small, so large batches save the getMore round trips
+    public static final int BATCH_SIZE = 100_000;
+
+    private static final System.Logger LOGGER = System.getLogger(CascadeDelete.class.getName());
+
+    private final Supplier<MongoClient> client;
+    private final Supplier<MongoDatabase> database;
+    private final IndexManager indexManager;
+    private final DailySalesRollup salesRollup;
+    private final Supplier<ReferenceMode> referenceMode;
+    private volatile boolean transactional;
+
+    /**
+     * Constructs a CascadeDelete.
+     *
+     * @param client        The client of the current connection.
+     * @param database      The database of the current connection.
+     * @param indexManager  The index manager auditing the filters of the dependents.
+     * @param salesRollup   The daily rollup the deleted sales are subtracted from.
+     * @param referenceMode The reference mode of the database, telling whether there are arrays to clean.
+     */
+    public CascadeDelete(Supplier<MongoClient> client, Supplier<MongoDatabase> database, IndexManager indexManager,
+                         DailySalesRollup salesRollup, Supplier<ReferenceMode> referenceMode) {
+        this.client = client;
+        this.database = database;
+        this.indexManager = indexManager;
+        this.salesRollup = salesRollup;
+        this.referenceMode = referenceMode;
+    }
+
+    /**
+     * Checks whether the server and the sales collection of the current connection support transactions. It must
+     * be called on connect; the storage of the sales only changes with the application closed.
+     */
+    public void detectTransactions() {
+        try {
+            MongoDatabase db = database.get();
+            Document hello = db.runCommand(new Document("hello", 1));
+            transactional = (hello.containsKey("setName") || "isdbgrid".equals(hello.getString("msg")))
+                    && SalesStorageMigration.detect(db, SalesStorageMigration.COLLECTION) == SalesStorage.STANDARD;
+        } catch (Exception e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Could not check the support of transactions", e);
+            transactional = false;
+        }
+    }
+
+    /**
+     * Returns whether the cascades run in a transaction.
+     *
+     * @return {@code true} on a replica set or sharded cluster; {@code false} on a standalone server or with the
+     * sales stored as a time series.
+     */
+    public boolean isTransactional() {
+        return transactional;
+    }
+
+    /**
+     * Deletes televisions along with their sales, their stock entries and their daily rollup. The sales are
+     * pulled from their customers and the stock entries from their suppliers.
+     *
+     * @param ids The ids of the televisions.
+     */
+    public void televisions(Collection<ObjectId> ids) {
+        run(session -> {
+            MongoDatabase db = database.get();
+            MongoCollection<SaleRow> sales = db.getCollection("sales", SaleRow.class);
+            MongoCollection<StockRow> stock = db.getCollection("stock", StockRow.class);
+            Bson salesFilter = indexManager.audit(sales, Filters.in("televisionId", ids));
+            Bson stockFilter = indexManager.audit(stock, Filters.in("televisionId", ids));
+
+            // Without back-reference arrays there is nothing to pull, so the dependents are not even read
+            if (referenceMode.get() == ReferenceMode.EMBEDDED) {
+                ReferenceBatch customers = ReferenceBatch.of("saleIds", ReferenceMode.EMBEDDED);
+                for (SaleRow sale : dependents(session, sales, salesFilter, "customerId")) {
+                    customers.pull(sale.customerId(), sale.id());
+                }
+                ReferenceBatch suppliers = ReferenceBatch.of("stockIds", ReferenceMode.EMBEDDED);
+                for (StockRow entry : dependents(session, stock, stockFilter, "supplierId")) {
+                    suppliers.pull(entry.supplierId(), entry.id());
+                }
+
+                customers.write(session, db.getCollection("customers"));
+                suppliers.write(session, db.getCollection("suppliers"));
+            }
+            sales.deleteMany(session, salesFilter);
+            stock.deleteMany(session, stockFilter);
+            salesRollup.deleteTelevisions(session, ids);
+            db.getCollection("televisions").deleteMany(session, Filters.in("_id", ids));
+            return null;
+        });
+    }
+
+    /**
+     * Deletes customers along with their sales. The sales are pulled from their televisions, which get their
+     * units back, and subtracted from the daily rollup.
+     *
+     * @param ids The ids of the customers.
+     * @return The ids of the televisions whose units on hand changed.
+     */
+    public Set<ObjectId> customers(Collection<ObjectId> ids) {
+        return run(session -> {
+            MongoDatabase db = database.get();
+            MongoCollection<SaleRow> sales = db.getCollection("sales", SaleRow.class);
+            Bson filter = indexManager.audit(sales, Filters.in("customerId", ids));
+
+            List<SaleRow> deleted = dependents(session, sales, filter, "televisionId", "saleDate", "quantity", "total");
+            ReferenceBatch televisions = ReferenceBatch.of("saleIds", referenceMode.get());
+            for (SaleRow sale : deleted) {
+                televisions.pull(sale.televisionId(), sale.id());
+                televisions.changeOnHand(sale.televisionId(), sale.quantity());
+            }
+
+            televisions.write(session, db.getCollection("televisions"));
+            salesRollup.applyAll(session, deleted, List.of());
+            sales.deleteMany(session, filter);
+            db.getCollection("customers").deleteMany(session, Filters.in("_id", ids));
+            return televisions.counted();
+        });
+    }
+
+    /**
+     * Deletes suppliers along with their stock entries. The entries are pulled from their televisions, which
+     * lose their units.
+     *
+     * @param ids The ids of the suppliers.
+     * @return The ids of the televisions whose units on hand changed.
+     */
+    public Set<ObjectId> suppliers(Collection<ObjectId> ids) {
+        return run(session -> {
+            MongoDatabase db = database.get();
+            MongoCollection<StockRow> stock = db.getCollection("stock", StockRow.class);
+            Bson filter = indexManager.audit(stock, Filters.in("supplierId", ids));
+
+            ReferenceBatch televisions = ReferenceBatch.of("stockIds", referenceMode.get());
+            for (StockRow entry : dependents(session, stock, filter, "televisionId", "quantity")) {
+                televisions.pull(entry.televisionId(), entry.id());
+                televisions.changeOnHand(entry.televisionId(), -entry.quantity());
+            }
+
+            televisions.write(session, db.getCollection("televisions"));
+            stock.deleteMany(session, filter);
+            db.getCollection("suppliers").deleteMany(session, Filters.in("_id", ids));
+            return televisions.counted();
+        });
+    }
+
+    /**
+     * Reads the dependents about to be deleted, with only their id and the given fields.
+     */
+    private static <T> List<T> dependents(ClientSession session, MongoCollection<T> collection, Bson filter, String... fields) {
+        return collection.find(session, filter)
+                .projection(Projections.include(fields))
+                .batchSize(BATCH_SIZE)
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * Runs a write on a session of the current connection, in a transaction when the server and the sales support
+     * them. {@link Model} runs the sale and stock writes through it too, so the document written and the
+     * references, counters and rollup it changes are applied together. A transaction may be retried on a
+     * transient error, so the write must not keep state across attempts.
+     *
+     * @param write The write, given the session to run every command on.
+     * @return The result of the write.
+     */
+    <T> T run(Function<ClientSession, T> write) {
+        try (ClientSession session = client.get().startSession()) {
+            return transactional ? session.withTransaction(() -> write.apply(session)) : write.apply(session);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import org.bson.types.ObjectId;
+
+/**
+ * Change made to a collection, by this application or any other client, as published by {@link ChangeFeed}.
+ *
+ * @param type   The kind of change.
+ * @param id     The id of the changed entity, or {@code null} for {@link Type#RESYNC}.
+ * @param entity The entity as stored after the change, or {@code null} for deletions and resyncs.
+ * @param <T>    The type of the changed entity.
+ */
+public record ChangeEvent<T>(Type type, ObjectId id, T entity) {
+    /**
+     * Kind of change.
+     */
+    public enum Type {
+        INSERT,  // The entity has been created
+        UPDATE,  // The entity has been modified
+        DELETE,  // The entity has been removed
+        RESYNC   // Changes may have been missed, so everything shown must be loaded again
+    }
+
+    public static <T> ChangeEvent<T> resync() {
+        return new ChangeEvent<>(Type.RESYNC, null, null);
+    }
+}
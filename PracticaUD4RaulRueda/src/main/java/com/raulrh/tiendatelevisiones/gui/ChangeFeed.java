@@ -0,0 +1,357 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The {@code ChangeFeed} class publishes the changes made to the watched collections by any client as typed
+ * {@link ChangeEvent}s. Each collection is watched on its own virtual thread through a MongoDB change stream,
+ * which requires a replica set (a single-node one is enough). The stream is resumed with its resume token after
+ * a failure. On a standalone server, where change streams are not available, the collection is polled instead:
+ * the newest {@code _id} seen acts as resume point to find the inserted documents, and the newest
+ * {@link #LAST_MODIFIED} stamp seen to find the updated ones, as every update made by {@link Model} sets it through
+ * {@link #touch()}. Deletions leave no trace, so a document count that does not add up publishes a
+ * {@link ChangeEvent.Type#RESYNC}; updates made by other applications without the stamp are only seen then.
+ * Time-series collections do not support change streams at all, so they are always polled.
+ * Listeners are called on the watching threads.
+ */
+public class ChangeFeed {
+    public static final Duration POLL_INTERVAL = Duration.ofSeconds(2);
+    public static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    public static final String LAST_MODIFIED = "lastModified";
+    // Stamps are taken when a write starts, so one committed later may fall behind the newest stamp already seen
+    public static final Duration UPDATE_OVERLAP = Duration.ofSeconds(10);
+
+    private static final int CHANGE_STREAM_NOT_SUPPORTED = 40573;
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    // Back-reference arrays maintained by Model but not mapped by the entities
+    private static final Set<String> IGNORED_FIELDS = Set.of("saleIds", "stockIds");
+
+    private static final System.Logger LOGGER = System.getLogger(ChangeFeed.class.getName());
+
+    private final Map<Class<?>, List<Consumer<ChangeEvent<?>>>> listeners = new ConcurrentHashMap<>();
+    private final Map<String, Mode> modes = new ConcurrentHashMap<>();
+    private final Set<MongoChangeStreamCursor<?>> cursors = ConcurrentHashMap.newKeySet();
+    private final List<Thread> threads = new CopyOnWriteArrayList<>();
+    // Bumped by stop(), so the threads of a previous connection exit even if a new one has started
+    private volatile long session;
+
+    /**
+     * How a collection is being watched.
+     */
+    public enum Mode {
+        CHANGE_STREAM, POLLING
+    }
+
+    /**
+     * Returns the update setting the {@link #LAST_MODIFIED} stamp to the time of the server, to combine with every
+     * update of a watched document, so the update is found when the collection is polled.
+     *
+     * @return The {@code $currentDate} update.
+     */
+    public static Bson touch() {
+        return Updates.currentDate(LAST_MODIFIED);
+    }
+
+    /**
+     * Registers a listener for the changes of the collection holding the given entity type.
+     *
+     * @param type     The type of the entities.
+     * @param listener The listener, called on a background thread.
+     * @param <T>      The type of the entities.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void addListener(Class<T> type, Consumer<ChangeEvent<T>> listener) {
+        listeners.computeIfAbsent(type, key -> new CopyOnWriteArrayList<>())
+                .add(event -> listener.accept((ChangeEvent<T>) event));
+    }
+
+    /**
+     * Starts watching a collection on a virtual thread.
+     *
+     * @param collection The collection to watch.
+     * @param type       The type of its entities.
+     * @param idOf       The id of an entity.
+     * @param <T>        The type of the entities.
+     */
+    public <T> void watch(MongoCollection<T> collection, Class<T> type, Function<T, ObjectId> idOf) {
+        long current = session;
+        String name = collection.getNamespace().getCollectionName();
+        threads.add(Thread.ofVirtual().name("change-feed-" + name).start(() -> streamChanges(current, collection, type, idOf)));
+    }
+
+    /**
+     * Starts polling a collection on a virtual thread, for the collections that cannot be watched through a
+     * change stream.
+     *
+     * @param collection The collection to poll.
+     * @param type       The type of its entities.
+     * @param idOf       The id of an entity.
+     * @param <T>        The type of the entities.
+     */
+    public <T> void poll(MongoCollection<T> collection, Class<T> type, Function<T, ObjectId> idOf) {
+        long current = session;
+        String name = collection.getNamespace().getCollectionName();
+        threads.add(Thread.ofVirtual().name("change-feed-" + name).start(() -> pollChanges(current, collection, type, idOf)));
+    }
+
+    /**
+     * Stops watching every collection.
+     */
+    public void stop() {
+        session++;
+        cursors.forEach(MongoChangeStreamCursor::close);
+        threads.forEach(Thread::interrupt);
+        threads.clear();
+        modes.clear();
+    }
+
+    /**
+     * Returns how each watched collection is being watched.
+     *
+     * @return The mode of each collection, by collection name.
+     */
+    public Map<String, Mode> getModes() {
+        return new TreeMap<>(modes);
+    }
+
+    private boolean isRunning(long current) {
+        return session == current;
+    }
+
+    private <T> void streamChanges(long current, MongoCollection<T> collection, Class<T> type, Function<T, ObjectId> idOf) {
+        String name = collection.getNamespace().getCollectionName();
+        BsonDocument resumeToken = null;
+        boolean missedChanges = false;
+
+        while (isRunning(current)) {
+            MongoChangeStreamCursor<ChangeStreamDocument<T>> cursor = null;
+            try {
+                var stream = collection.watch().fullDocument(FullDocument.UPDATE_LOOKUP);
+                if (resumeToken != null) {
+                    stream = stream.resumeAfter(resumeToken);
+                }
+                cursor = stream.cursor();
+                cursors.add(cursor);
+                modes.put(name, Mode.CHANGE_STREAM);
+
+                // Reopened without a resume token, so whatever happened in between is unknown
+                if (missedChanges) {
+                    publish(type, ChangeEvent.resync());
+                    missedChanges = false;
+                }
+
+                while (isRunning(current)) {
+                    ChangeStreamDocument<T> change = cursor.next();
+                    resumeToken = change.getResumeToken();
+                    ChangeEvent<T> event = toEvent(change);
+                    if (event != null) {
+                        publish(type, event);
+                    }
+                    if (event != null && event.type() == ChangeEvent.Type.RESYNC) {
+                        // The stream has been invalidated and cannot be resumed
+                        resumeToken = null;
+                        break;
+                    }
+                }
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == CHANGE_STREAM_NOT_SUPPORTED) {
+                    LOGGER.log(System.Logger.Level.INFO, "Change streams not supported, polling " + name);
+                    pollChanges(current, collection, type, idOf);
+                    return;
+                }
+                if (e.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) {
+                    resumeToken = null;
+                    missedChanges = true;
+                    continue;
+                }
+                if (retryLater(current, name, e)) {
+                    missedChanges |= resumeToken == null;
+                } else {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                if (retryLater(current, name, e)) {
+                    missedChanges |= resumeToken == null;
+                } else {
+                    return;
+                }
+            } finally {
+                if (cursor != null) {
+                    cursors.remove(cursor);
+                    cursor.close();
+                }
+            }
+        }
+    }
+
+    private <T> ChangeEvent<T> toEvent(ChangeStreamDocument<T> change) {
+        BsonDocument key = change.getDocumentKey();
+        BsonValue id = key != null ? key.get("_id") : null;
+        ObjectId objectId = id != null && id.isObjectId() ? id.asObjectId().getValue() : null;
+
+        return switch (change.getOperationType()) {
+            case INSERT -> new ChangeEvent<>(ChangeEvent.Type.INSERT, objectId, change.getFullDocument());
+            case UPDATE, REPLACE -> {
+                // The document may have been deleted before the lookup; its deletion follows
+                if (change.getFullDocument() == null || onlyIgnoredFields(change.getUpdateDescription())) {
+                    yield null;
+                }
+                yield new ChangeEvent<>(ChangeEvent.Type.UPDATE, objectId, change.getFullDocument());
+            }
+            case DELETE -> new ChangeEvent<>(ChangeEvent.Type.DELETE, objectId, null);
+            default -> ChangeEvent.resync();
+        };
+    }
+
+    private static boolean onlyIgnoredFields(UpdateDescription description) {
+        if (description == null) {
+            return false;
+        }
+
+        Set<String> fields = new HashSet<>();
+        if (description.getUpdatedFields() != null) {
+            fields.addAll(description.getUpdatedFields().keySet());
+        }
+        if (description.getRemovedFields() != null) {
+            fields.addAll(description.getRemovedFields());
+        }
+        // Array updates may be reported by element, such as "saleIds.3"
+        return !fields.isEmpty() && fields.stream().allMatch(field -> IGNORED_FIELDS.contains(field.split("\\.")[0]));
+    }
+
+    private <T> void pollChanges(long current, MongoCollection<T> collection, Class<T> type, Function<T, ObjectId> idOf) {
+        String name = collection.getNamespace().getCollectionName();
+        modes.put(name, Mode.POLLING);
+
+        MongoCollection<Document> stamps = collection.withDocumentClass(Document.class);
+        ObjectId lastId = null;
+        Date lastModified = null;
+        // Stamps published within the overlap, so the same update is published once
+        Map<ObjectId, Date> published = new HashMap<>();
+        long count = -1;
+        while (isRunning(current)) {
+            try {
+                if (count < 0) {
+                    T newest = collection.find().sort(Sorts.descending("_id")).first();
+                    lastId = newest != null ? idOf.apply(newest) : null;
+                    Document newestStamp = stamps.find(Filters.exists(LAST_MODIFIED))
+                            .projection(Projections.include(LAST_MODIFIED))
+                            .sort(Sorts.descending(LAST_MODIFIED))
+                            .first();
+                    lastModified = newestStamp != null ? newestStamp.getDate(LAST_MODIFIED) : new Date(0);
+                    published.clear();
+                    count = collection.estimatedDocumentCount();
+                } else {
+                    Bson filter = lastId != null ? Filters.gt("_id", lastId) : Filters.empty();
+                    long inserted = 0;
+                    for (T entity : collection.find(filter).sort(Sorts.ascending("_id"))) {
+                        lastId = idOf.apply(entity);
+                        inserted++;
+                        publish(type, new ChangeEvent<>(ChangeEvent.Type.INSERT, lastId, entity));
+                    }
+                    lastModified = pollUpdates(collection, stamps, type, idOf, lastModified, published);
+
+                    long documents = collection.estimatedDocumentCount();
+                    if (documents != count + inserted) {
+                        publish(type, ChangeEvent.resync());
+                    }
+                    count = documents;
+                }
+            } catch (RuntimeException e) {
+                if (!isRunning(current)) {
+                    return;
+                }
+                LOGGER.log(System.Logger.Level.WARNING, "Could not poll " + name, e);
+            }
+
+            if (!sleep(POLL_INTERVAL)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Publishes the documents stamped since the given time, minus the overlap, that have not been published yet.
+     *
+     * @return The newest stamp seen.
+     */
+    private <T> Date pollUpdates(MongoCollection<T> collection, MongoCollection<Document> stamps, Class<T> type,
+                                 Function<T, ObjectId> idOf, Date lastModified, Map<ObjectId, Date> published) {
+        Date from = new Date(lastModified.getTime() - UPDATE_OVERLAP.toMillis());
+        List<ObjectId> updated = new ArrayList<>();
+        Date newest = lastModified;
+        for (Document stamp : stamps.find(Filters.gte(LAST_MODIFIED, from))
+                .projection(Projections.include("_id", LAST_MODIFIED))
+                .sort(Sorts.ascending(LAST_MODIFIED))) {
+            ObjectId id = stamp.getObjectId("_id");
+            Date modified = stamp.getDate(LAST_MODIFIED);
+            if (!modified.equals(published.put(id, modified))) {
+                updated.add(id);
+            }
+            if (modified.after(newest)) {
+                newest = modified;
+            }
+        }
+        published.values().removeIf(modified -> modified.before(from));
+
+        // Documents deleted since are missing here, and caught by the document count
+        if (!updated.isEmpty()) {
+            for (T entity : collection.find(Filters.in("_id", updated))) {
+                publish(type, new ChangeEvent<>(ChangeEvent.Type.UPDATE, idOf.apply(entity), entity));
+            }
+        }
+        return newest;
+    }
+
+    private boolean retryLater(long current, String name, RuntimeException e) {
+        if (!isRunning(current)) {
+            return false;
+        }
+
+        LOGGER.log(System.Logger.Level.WARNING, "Change stream on " + name + " failed, retrying", e);
+        return sleep(RETRY_DELAY);
+    }
+
+    private static boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private <T> void publish(Class<T> type, ChangeEvent<T> event) {
+        for (Consumer<ChangeEvent<?>> listener : listeners.getOrDefault(type, List.of())) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Change listener failed", e);
+            }
+        }
+    }
+}
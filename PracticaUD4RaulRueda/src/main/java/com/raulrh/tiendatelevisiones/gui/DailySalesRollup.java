@@ -0,0 +1,205 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.*;
+import com.raulrh.tiendatelevisiones.entities.SaleRow;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * The {@code DailySalesRollup} class maintains the {@code sales_daily} collection, which holds the totals of the
+ * sales of each television on each day: number of sales, units and revenue. {@link Model} applies every sale write
+ * to it as an atomic {@code $inc} upsert of the difference, so dashboards read one document per day and television
+ * instead of aggregating the raw sales. Sales without date are not rolled up.
+ * <p>
+ * Writes made outside the application, or lost between the write of a sale and the write of its rollup, are
+ * corrected by {@link #rebuild()}, which recomputes the whole collection from the sales.
+ */
+public class DailySalesRollup {
+    public static final String COLLECTION = "sales_daily";
+    public static final int BATCH_SIZE = 10_000;
+
+    private static final String REBUILD_COLLECTION = COLLECTION + "_rebuild";
+
+    private final Supplier<MongoDatabase> database;
+
+    /**
+     * Constructs a DailySalesRollup.
+     *
+     * @param database The database of the current connection.
+     */
+    public DailySalesRollup(Supplier<MongoDatabase> database) {
+        this.database = database;
+    }
+
+    /**
+     * Applies the write of a sale to the rollup: the old state is subtracted and the new one added.
+     * When both fall on the same day and television a single {@code $inc} applies the difference.
+     *
+     * @param before The sale before the write, or {@code null} if it has been inserted.
+     * @param after  The sale after the write, or {@code null} if it has been deleted.
+     */
+    public void apply(SaleRow before, SaleRow after) {
+        applyAll(before != null ? List.of(before) : List.of(), after != null ? List.of(after) : List.of());
+    }
+
+    /**
+     * Applies the write of many sales to the rollup with a single bulk write. The differences are added up by
+     * day and television first, so each rollup document gets one {@code $inc} however many sales it covers.
+     *
+     * @param before The sales before the write; empty for inserts.
+     * @param after  The sales after the write; empty for deletions.
+     */
+    public void applyAll(Collection<SaleRow> before, Collection<SaleRow> after) {
+        applyAll(null, before, after);
+    }
+
+    /**
+     * Applies the write of many sales to the rollup with a single bulk write, within a session.
+     *
+     * @param session The session of the write, or {@code null} to write outside any session.
+     * @param before  The sales before the write; empty for inserts.
+     * @param after   The sales after the write; empty for deletions.
+     */
+    public void applyAll(ClientSession session, Collection<SaleRow> before, Collection<SaleRow> after) {
+        Map<DayKey, Totals> changes = new HashMap<>();
+        for (SaleRow sale : before) {
+            if (sale.saleDay() != SaleRow.NO_DATE) {
+                changes.computeIfAbsent(new DayKey(sale.saleDay(), sale.televisionId()), key -> new Totals()).remove(sale);
+            }
+        }
+        for (SaleRow sale : after) {
+            if (sale.saleDay() != SaleRow.NO_DATE) {
+                changes.computeIfAbsent(new DayKey(sale.saleDay(), sale.televisionId()), key -> new Totals()).add(sale);
+            }
+        }
+        flush(session, collection(), changes);
+    }
+
+    /**
+     * Removes the rollup of some televisions, once all their sales are deleted.
+     *
+     * @param session       The session of the write.
+     * @param televisionIds The ids of the televisions.
+     */
+    public void deleteTelevisions(ClientSession session, Collection<ObjectId> televisionIds) {
+        collection().deleteMany(session, Filters.in("televisionId", televisionIds));
+    }
+
+    /**
+     * Returns whether there are sales but no rollup yet, as in a database written before the rollup existed. It is
+     * not built on connect: {@link #rebuild()} would lose the sales written while it runs, so it is left to the user.
+     *
+     * @return {@code true} if the rollup has to be built.
+     */
+    public boolean isMissing() {
+        MongoDatabase db = database.get();
+        return db.getCollection(COLLECTION).estimatedDocumentCount() == 0
+                && db.getCollection("sales").estimatedDocumentCount() > 0;
+    }
+
+    /**
+     * Recomputes the rollup from the sales. The sales are read in {@code _id} order and folded into the totals
+     * of each day and television in batches of {@link #BATCH_SIZE}, which are written to a new collection with
+     * {@code $inc} upserts. The new collection then replaces the current one in a single rename, so dashboards
+     * never see a partial rollup. The changes applied to the current rollup meanwhile are dropped with it, so it must
+     * run while no sale is being written. It blocks, so it must not run on the EDT.
+     *
+     * @return The number of sales read.
+     */
+    public long rebuild() {
+        MongoDatabase db = database.get();
+        MongoCollection<Document> target = db.getCollection(REBUILD_COLLECTION);
+        target.drop();
+        target.createIndex(Indexes.ascending("day", "televisionId"),
+                new IndexOptions().name("day_televisionId_unique").unique(true));
+        target.createIndex(Indexes.ascending("televisionId", "day"), new IndexOptions().name("televisionId_day"));
+
+        long count = 0;
+        Map<DayKey, Totals> batch = new HashMap<>();
+        for (SaleRow sale : db.getCollection("sales", SaleRow.class).find()
+                .projection(Projections.include("televisionId", "saleDate", "quantity", "total"))
+                .sort(Sorts.ascending("_id"))
+                .batchSize(BATCH_SIZE)) {
+            if (sale.saleDay() != SaleRow.NO_DATE) {
+                batch.computeIfAbsent(new DayKey(sale.saleDay(), sale.televisionId()), key -> new Totals()).add(sale);
+            }
+            if (++count % BATCH_SIZE == 0) {
+                flush(null, target, batch);
+            }
+        }
+        flush(null, target, batch);
+
+        target.renameCollection(new MongoNamespace(db.getName(), COLLECTION), new RenameCollectionOptions().dropTarget(true));
+        return count;
+    }
+
+    private static void flush(ClientSession session, MongoCollection<Document> target, Map<DayKey, Totals> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<WriteModel<Document>> writes = new ArrayList<>(batch.size());
+        batch.forEach((key, totals) -> {
+            if (!totals.isZero()) {
+                increment(writes, key.day(), key.televisionId(), totals.sales, totals.units, totals.revenue);
+            }
+        });
+        if (!writes.isEmpty()) {
+            BulkWriteOptions options = new BulkWriteOptions().ordered(false);
+            if (session != null) {
+                target.bulkWrite(session, writes, options);
+            } else {
+                target.bulkWrite(writes, options);
+            }
+        }
+        batch.clear();
+    }
+
+    private static void increment(List<WriteModel<Document>> writes, int day, ObjectId televisionId, long sales, long units, double revenue) {
+        if (day == SaleRow.NO_DATE) {
+            return;
+        }
+
+        writes.add(new UpdateOneModel<>(
+                Filters.and(Filters.eq("day", LocalDate.ofEpochDay(day)), Filters.eq("televisionId", televisionId)),
+                Updates.combine(Updates.inc("sales", sales), Updates.inc("units", units), Updates.inc("revenue", revenue)),
+                new UpdateOptions().upsert(true)));
+    }
+
+    private MongoCollection<Document> collection() {
+        return database.get().getCollection(COLLECTION);
+    }
+
+    private record DayKey(int day, ObjectId televisionId) {
+    }
+
+    private static final class Totals {
+        long sales;
+        long units;
+        double revenue;
+
+        void add(SaleRow sale) {
+            sales++;
+            units += sale.quantity();
+            revenue += sale.total();
+        }
+
+        void remove(SaleRow sale) {
+            sales--;
+            units -= sale.quantity();
+            revenue -= sale.total();
+        }
+
+        boolean isZero() {
+            return sales == 0 && units == 0 && revenue == 0;
+        }
+    }
+}
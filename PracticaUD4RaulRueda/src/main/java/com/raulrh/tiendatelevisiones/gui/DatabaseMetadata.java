@@ -0,0 +1,78 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.Document;
+
+import java.util.function.Supplier;
+
+/**
+ * The {@code DatabaseMetadata} class keeps the settings and markers that belong to the whole database rather than
+ * to a workstation, such as the schema of the documents, in the {@link #COLLECTION} collection. Each one is a
+ * document holding a single string value, with its key as {@code _id}, so every client connected to the database
+ * reads the same value.
+ */
+public class DatabaseMetadata {
+    public static final String COLLECTION = "metadata";
+
+    private final Supplier<MongoDatabase> database;
+
+    /**
+     * Constructs a DatabaseMetadata.
+     *
+     * @param database The database of the current connection.
+     */
+    public DatabaseMetadata(Supplier<MongoDatabase> database) {
+        this.database = database;
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key The key.
+     * @return The value, or {@code null} if it has never been set.
+     */
+    public String get(String key) {
+        Document document = collection().find(Filters.eq("_id", key)).first();
+        return document != null ? document.getString("value") : null;
+    }
+
+    /**
+     * Sets the value of a key, replacing the previous one.
+     *
+     * @param key   The key.
+     * @param value The value.
+     */
+    public void set(String key, String value) {
+        collection().replaceOne(Filters.eq("_id", key), new Document("_id", key).append("value", value),
+                new ReplaceOptions().upsert(true));
+    }
+
+    /**
+     * Returns the value of a key as a constant of an enum.
+     *
+     * @param key          The key.
+     * @param type         The enum the value belongs to.
+     * @param defaultValue The value returned if the key has never been set or holds an unknown constant.
+     * @param <E>          The type of the enum.
+     * @return The value of the key.
+     */
+    public <E extends Enum<E>> E getEnum(String key, Class<E> type, E defaultValue) {
+        String value = get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Enum.valueOf(type, value);
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+
+    private MongoCollection<Document> collection() {
+        return database.get().getCollection(COLLECTION);
+    }
+}
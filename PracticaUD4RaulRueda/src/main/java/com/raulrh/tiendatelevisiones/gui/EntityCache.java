@@ -0,0 +1,253 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import org.bson.types.ObjectId;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the entities of a collection, placed by {@link Model} in front of its queries. Entities are kept once
+ * per id and query results are kept as lists of ids, so queries served from memory share the entity last stored for
+ * each id. A query loaded from the database or a write stores new instances, replacing the cached ones, and the
+ * instances handed out before are not updated: callers must not rely on identity to see later changes. Both maps
+ * are bounded LRUs whose entries expire after a time to live. Writes go through the cache: storing or invalidating
+ * an entity drops every cached query, as its results may have changed. All methods are thread-safe.
+ *
+ * @param <T> The type of the cached entities.
+ */
+public class EntityCache<T> {
+    public static final int DEFAULT_MAX_ENTITIES = 5_000;
+    public static final int DEFAULT_MAX_QUERIES = 64;
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    private final Function<T, ObjectId> idOf;
+    private final long ttlNanos;
+    private final Map<ObjectId, Entry<T>> entities;
+    private final Map<String, Entry<List<ObjectId>>> queries;
+
+    // Bumped by every write, so a query loaded meanwhile is not cached
+    private long version;
+
+    // Statistics
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs an EntityCache with the default bounds and time to live.
+     *
+     * @param idOf The id of an entity.
+     */
+    public EntityCache(Function<T, ObjectId> idOf) {
+        this(idOf, DEFAULT_MAX_ENTITIES, DEFAULT_MAX_QUERIES, DEFAULT_TTL);
+    }
+
+    /**
+     * Constructs an EntityCache.
+     *
+     * @param idOf        The id of an entity.
+     * @param maxEntities The maximum number of entities kept.
+     * @param maxQueries  The maximum number of query results kept.
+     * @param ttl         The time an entry is served before it is loaded again.
+     */
+    public EntityCache(Function<T, ObjectId> idOf, int maxEntities, int maxQueries, Duration ttl) {
+        this.idOf = idOf;
+        this.ttlNanos = ttl.toNanos();
+        this.entities = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ObjectId, Entry<T>> eldest) {
+                boolean evict = size() > maxEntities;
+                if (evict) {
+                    evictions++;
+                }
+                return evict;
+            }
+        };
+        this.queries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<List<ObjectId>>> eldest) {
+                return size() > maxQueries;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached entity.
+     *
+     * @param id The id of the entity.
+     * @return The entity, or {@code null} if it is not cached or has expired.
+     */
+    public synchronized T get(ObjectId id) {
+        T entity = lookup(id);
+        if (entity != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return entity;
+    }
+
+    /**
+     * Returns the result of a query, running it only if it is not cached or any of its entities has expired.
+     * The loader runs without holding the cache lock.
+     *
+     * @param key    The key identifying the query and its parameters.
+     * @param loader The query to run on a miss.
+     * @return The entities returned by the query.
+     */
+    public List<T> query(String key, Supplier<List<T>> loader) {
+        long loadVersion;
+        synchronized (this) {
+            List<T> cached = lookupQuery(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            loadVersion = version;
+        }
+
+        List<T> loaded = loader.get();
+        synchronized (this) {
+            if (loadVersion == version) {
+                List<ObjectId> ids = new ArrayList<>(loaded.size());
+                for (T entity : loaded) {
+                    ObjectId id = idOf.apply(entity);
+                    entities.put(id, new Entry<>(entity, expiry()));
+                    ids.add(id);
+                }
+                queries.put(key, new Entry<>(ids, expiry()));
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Stores an entity that has just been written and drops the cached queries.
+     *
+     * @param entity The entity as stored.
+     */
+    public synchronized void put(T entity) {
+        entities.put(idOf.apply(entity), new Entry<>(entity, expiry()));
+        queries.clear();
+        version++;
+    }
+
+    /**
+     * Removes an entity that has just been deleted and drops the cached queries.
+     *
+     * @param id The id of the entity.
+     */
+    public synchronized void invalidate(ObjectId id) {
+        entities.remove(id);
+        queries.clear();
+        version++;
+    }
+
+    /**
+     * Discards every cached entity and query.
+     */
+    public synchronized void clear() {
+        entities.clear();
+        queries.clear();
+        version++;
+    }
+
+    private T lookup(ObjectId id) {
+        Entry<T> entry = entities.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry)) {
+            entities.remove(id);
+            return null;
+        }
+        return entry.value();
+    }
+
+    private List<T> lookupQuery(String key) {
+        Entry<List<ObjectId>> entry = queries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        List<T> result = new ArrayList<>(entry.value().size());
+        if (!isExpired(entry)) {
+            for (ObjectId id : entry.value()) {
+                T entity = lookup(id);
+                if (entity == null) {
+                    break;
+                }
+                result.add(entity);
+            }
+            if (result.size() == entry.value().size()) {
+                return result;
+            }
+        }
+
+        queries.remove(key);
+        return null;
+    }
+
+    private long expiry() {
+        return System.nanoTime() + ttlNanos;
+    }
+
+    private boolean isExpired(Entry<?> entry) {
+        return System.nanoTime() - entry.expiresAt() > 0;
+    }
+
+    /**
+     * Returns the number of lookups and queries served from memory.
+     *
+     * @return The number of hits.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups and queries that had to go to the database.
+     *
+     * @return The number of misses.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of entities dropped to keep the cache within its bounds.
+     *
+     * @return The number of evictions.
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Returns the share of lookups and queries served from memory.
+     *
+     * @return The hit rate between 0 and 1, or 0 if the cache has not been used yet.
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Returns the number of entities currently cached.
+     *
+     * @return The number of entities.
+     */
+    public synchronized int size() {
+        return entities.size();
+    }
+}
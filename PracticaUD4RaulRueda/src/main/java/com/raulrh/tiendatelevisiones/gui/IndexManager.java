@@ -0,0 +1,282 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Collation;
+import com.mongodb.client.model.CollationStrength;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code IndexManager} class declares the indexes every collection needs, creates the missing ones
+ * in the background when connecting and keeps track of their build status.
+ * It also audits the queries issued by {@link Model} and flags those that no declared index supports.
+ */
+public class IndexManager {
+    /**
+     * Case and accent insensitive comparison, shared by the search indexes and the search queries.
+     */
+    public static final Collation SEARCH_COLLATION = Collation.builder()
+            .locale("es")
+            .collationStrength(CollationStrength.PRIMARY)
+            .build();
+
+    private static final System.Logger LOGGER = System.getLogger(IndexManager.class.getName());
+
+    private static final List<IndexSpec> REQUIRED_INDEXES = List.of(
+            // Unique indexes also serve the prefix searches on their leading field
+            new IndexSpec("televisions", "brand_model_unique", List.of("brand", "model"), SEARCH_COLLATION, true),
+            new IndexSpec("customers", "email_unique", List.of("email"), SEARCH_COLLATION, true),
+            new IndexSpec("suppliers", "email_unique", List.of("email"), SEARCH_COLLATION, true),
+            new IndexSpec("suppliers", "name_search", List.of("name"), SEARCH_COLLATION, false),
+            new IndexSpec("customers", "name_search", List.of("firstName", "lastName"), SEARCH_COLLATION, false),
+            new IndexSpec("televisions", "price", List.of("price"), null, false),
+            // Time-series collections have no _id index; on a standard one this matches the default _id index
+            new IndexSpec("sales", "id", List.of("_id"), null, false),
+            // Sorts on paged tables break ties by _id, so it is part of their index
+            new IndexSpec("sales", "saleDate_id", List.of("saleDate", "_id"), null, false),
+            new IndexSpec("sales", "total_id", List.of("total", "_id"), null, false),
+            new IndexSpec("stock", "entryDate_id", List.of("entryDate", "_id"), null, false),
+            // Foreign keys end in _id so the rows of one entity can be paged without sorting
+            new IndexSpec("sales", "customerId_id", List.of("customerId", "_id"), null, false),
+            new IndexSpec("sales", "televisionId_id", List.of("televisionId", "_id"), null, false),
+            new IndexSpec("stock", "televisionId_id", List.of("televisionId", "_id"), null, false),
+            new IndexSpec("stock", "supplierId_id", List.of("supplierId", "_id"), null, false),
+            // Polling finds the updated documents by their stamp, reading only the index
+            new IndexSpec("televisions", "lastModified_id", List.of("lastModified", "_id"), null, false),
+            new IndexSpec("customers", "lastModified_id", List.of("lastModified", "_id"), null, false),
+            new IndexSpec("suppliers", "lastModified_id", List.of("lastModified", "_id"), null, false),
+            new IndexSpec("sales", "lastModified_id", List.of("lastModified", "_id"), null, false),
+            new IndexSpec("stock", "lastModified_id", List.of("lastModified", "_id"), null, false),
+            // The daily rollup is upserted by day and television, and read by either
+            new IndexSpec("sales_daily", "day_televisionId_unique", List.of("day", "televisionId"), null, true),
+            new IndexSpec("sales_daily", "televisionId_day", List.of("televisionId", "day"), null, false)
+    );
+
+    private final Map<IndexSpec, Status> status = new ConcurrentHashMap<>();
+    private final Set<String> unindexedQueries = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Build status of a declared index.
+     */
+    public enum Status {
+        PENDING, BUILDING, READY, FAILED
+    }
+
+    /**
+     * Declaration of an ascending index.
+     *
+     * @param collection The collection the index belongs to.
+     * @param name       The name of the index.
+     * @param fields     The indexed fields, in key order.
+     * @param collation  The collation of the index, or {@code null} for binary comparison.
+     * @param unique     Whether the index rejects duplicate keys.
+     */
+    public record IndexSpec(String collection, String name, List<String> fields, Collation collation, boolean unique) {
+        public Bson keys() {
+            return Indexes.ascending(fields);
+        }
+
+        @Override
+        public String toString() {
+            return collection + "." + name + " " + fields
+                    + (unique ? " unique" : "")
+                    + (collation != null ? " (collation " + collation.getLocale() + ")" : "");
+        }
+    }
+
+    /**
+     * Returns the indexes declared for every collection.
+     *
+     * @return The declared indexes.
+     */
+    public List<IndexSpec> getRequiredIndexes() {
+        return REQUIRED_INDEXES;
+    }
+
+    /**
+     * Creates the declared indexes missing in the database on a background thread.
+     * Existing indexes matching the key pattern, uniqueness and collation of a declared one are left untouched.
+     *
+     * @param database The database to create the indexes in.
+     * @return A future completed once every index has been processed.
+     */
+    public CompletableFuture<Void> createMissingIndexes(MongoDatabase database) {
+        REQUIRED_INDEXES.forEach(spec -> status.put(spec, Status.PENDING));
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Thread.ofVirtual().name("index-bootstrap").start(() -> {
+            Map<String, List<Document>> existing = new HashMap<>();
+            for (IndexSpec spec : REQUIRED_INDEXES) {
+                try {
+                    List<Document> indexes = existing.computeIfAbsent(spec.collection(),
+                            name -> database.getCollection(name).listIndexes().into(new ArrayList<>()));
+                    if (exists(spec, indexes)) {
+                        status.put(spec, Status.READY);
+                        continue;
+                    }
+
+                    status.put(spec, Status.BUILDING);
+                    IndexOptions options = new IndexOptions()
+                            .name(spec.name())
+                            .collation(spec.collation())
+                            .unique(spec.unique());
+                    database.getCollection(spec.collection()).createIndex(spec.keys(), options);
+                    status.put(spec, Status.READY);
+                } catch (Exception e) {
+                    status.put(spec, Status.FAILED);
+                    LOGGER.log(System.Logger.Level.WARNING, "Could not create index " + spec, e);
+                }
+            }
+            done.complete(null);
+        });
+        return done;
+    }
+
+    /**
+     * Returns whether an existing index matches the whole spec: keys, uniqueness and collation locale and strength.
+     * An index with the name of the spec but another definition does not match, so its creation fails and is
+     * reported instead of the index being taken as built.
+     */
+    private static boolean exists(IndexSpec spec, List<Document> indexes) {
+        Document keys = new Document();
+        spec.fields().forEach(field -> keys.append(field, 1));
+
+        for (Document index : indexes) {
+            boolean sameUniqueness = spec.unique() == index.getBoolean("unique", false);
+            if (sameUniqueness && sameCollation(spec.collation(), index.get("collation", Document.class))
+                    && keys.equals(index.get("key", Document.class))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean sameCollation(Collation expected, Document actual) {
+        if (expected == null || actual == null) {
+            return expected == null && actual == null;
+        }
+        // The server lists the strength of every collation, tertiary when none was given
+        int strength = expected.getStrength() != null
+                ? expected.getStrength().getIntRepresentation()
+                : CollationStrength.TERTIARY.getIntRepresentation();
+        return expected.getLocale().equals(actual.getString("locale"))
+                && strength == actual.get("strength", Number.class).intValue();
+    }
+
+    /**
+     * Returns the build status of every declared index.
+     *
+     * @return The status of each index, in declaration order.
+     */
+    public Map<IndexSpec, Status> getStatus() {
+        Map<IndexSpec, Status> result = new LinkedHashMap<>();
+        for (IndexSpec spec : REQUIRED_INDEXES) {
+            result.put(spec, status.getOrDefault(spec, Status.PENDING));
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the unique indexes declared for a collection are built, so they reject duplicates by
+     * themselves.
+     *
+     * @param collection The name of the collection.
+     * @return {@code true} if every unique index of the collection is {@link Status#READY}, or it declares none.
+     */
+    public boolean isUniqueReady(String collection) {
+        return REQUIRED_INDEXES.stream()
+                .filter(spec -> spec.unique() && spec.collection().equals(collection))
+                .allMatch(spec -> status.get(spec) == Status.READY);
+    }
+
+    /**
+     * Returns the declared indexes whose creation failed, as when the existing documents hold duplicates of the
+     * keys of a unique index.
+     *
+     * @return The failed indexes, in declaration order.
+     */
+    public List<IndexSpec> getFailedIndexes() {
+        return REQUIRED_INDEXES.stream().filter(spec -> status.get(spec) == Status.FAILED).toList();
+    }
+
+    /**
+     * Returns the queries flagged by {@link #audit} because no declared index supports them.
+     *
+     * @return The description of each unsupported query.
+     */
+    public Set<String> getUnindexedQueries() {
+        return Collections.unmodifiableSet(unindexedQueries);
+    }
+
+    /**
+     * Checks that a filter is supported by a declared index, flagging it otherwise.
+     *
+     * @param collection The collection the filter is run against.
+     * @param filter     The filter of the query.
+     * @return The same filter, so the call can wrap the query argument.
+     */
+    public Bson audit(MongoCollection<?> collection, Bson filter) {
+        return audit(collection, filter, null);
+    }
+
+    /**
+     * Checks that a filter run with the given collation is supported by a declared index, flagging it otherwise.
+     * An index supports the query when its leading field is constrained by the filter and its collation matches.
+     *
+     * @param collection The collection the filter is run against.
+     * @param filter     The filter of the query.
+     * @param collation  The collation of the query, or {@code null} for binary comparison.
+     * @return The same filter, so the call can wrap the query argument.
+     */
+    public Bson audit(MongoCollection<?> collection, Bson filter, Collation collation) {
+        String name = collection.getNamespace().getCollectionName();
+        BsonDocument document = filter.toBsonDocument(BsonDocument.class, collection.getCodecRegistry());
+        Set<String> fields = new HashSet<>();
+        collectFields(document, fields);
+
+        // Lookups by primary key are always served by the _id index
+        if (fields.contains("_id")) {
+            return filter;
+        }
+
+        boolean supported = REQUIRED_INDEXES.stream()
+                .filter(spec -> spec.collection().equals(name))
+                .filter(spec -> Objects.equals(spec.collation(), collation))
+                .anyMatch(spec -> fields.contains(spec.fields().get(0)));
+
+        if (!supported && unindexedQueries.add(name + " " + document.toJson())) {
+            LOGGER.log(System.Logger.Level.WARNING, "Query without supporting index on " + name + ": " + document.toJson());
+        }
+        return filter;
+    }
+
+    private static void collectFields(BsonDocument filter, Set<String> fields) {
+        for (Map.Entry<String, BsonValue> entry : filter.entrySet()) {
+            String key = entry.getKey();
+            if (key.equals("$and") || key.equals("$or") || key.equals("$nor")) {
+                BsonArray clauses = entry.getValue().asArray();
+                for (BsonValue clause : clauses) {
+                    collectFields(clause.asDocument(), fields);
+                }
+            } else if (!key.startsWith("$") && !isNegation(entry.getValue())) {
+                fields.add(key);
+            }
+        }
+    }
+
+    // Negated conditions cannot be turned into index bounds
+    private static boolean isNegation(BsonValue condition) {
+        return condition.isDocument()
+                && (condition.asDocument().containsKey("$ne") || condition.asDocument().containsKey("$nin"));
+    }
+}
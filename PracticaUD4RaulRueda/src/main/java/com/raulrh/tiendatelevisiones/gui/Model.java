@@ -1,21 +1,37 @@
 package com.raulrh.tiendatelevisiones.gui;
 
+import com.mongodb.ErrorCategory;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoException;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.*;
+import com.raulrh.tiendatelevisiones.analytics.SalesColumnStore;
+import com.raulrh.tiendatelevisiones.base.enums.ReferenceMode;
+import com.raulrh.tiendatelevisiones.base.enums.SalesStorage;
 import com.raulrh.tiendatelevisiones.entities.*;
+import com.raulrh.tiendatelevisiones.entities.codecs.EntityCodecProvider;
 import org.bson.codecs.configuration.CodecRegistry;
-import org.bson.codecs.pojo.PojoCodecProvider;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static org.bson.codecs.configuration.CodecRegistries.fromProviders;
 import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
@@ -25,50 +41,612 @@ import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
  * It supports operations related to televisions, customers, sales, suppliers, and stock.
  */
 public class Model {
-    private MongoClient mongoClient;
-    private MongoDatabase database;
+    /**
+     * Maximum number of documents returned by the search methods.
+     */
+    public static final int SEARCH_LIMIT = 100;
+    public static final String DATABASE = "TelevisionStore";
+
+    private static final String REFERENCE_MODE_KEY = "referenceMode";
+
+    private final IndexManager indexManager = new IndexManager();
+    private final EntityCache<Television> televisionCache = new EntityCache<>(Television::getId);
+    private final EntityCache<Customer> customerCache = new EntityCache<>(Customer::getId);
+    private final EntityCache<Supplier> supplierCache = new EntityCache<>(Supplier::getId);
+    private final ReferenceResolver<Television> televisionNames = new ReferenceResolver<>(
+            ids -> findByIds(televisionCache, "televisions", Television.class, ids, "brand", "model"),
+            Television::getId, television -> television.getBrand() + " " + television.getModel());
+    private final ReferenceResolver<Customer> customerNames = new ReferenceResolver<>(
+            ids -> findByIds(customerCache, "customers", Customer.class, ids, "firstName", "lastName"),
+            Customer::getId, customer -> customer.getFirstName() + " " + customer.getLastName());
+    private final ReferenceResolver<Supplier> supplierNames = new ReferenceResolver<>(
+            ids -> findByIds(supplierCache, "suppliers", Supplier.class, ids, "name"),
+            Supplier::getId, Supplier::getName);
+    private final ChangeFeed changeFeed = new ChangeFeed();
+    private final RoundTripCounter roundTrips = new RoundTripCounter();
+    private final SalesColumnStore salesStore = new SalesColumnStore();
+    private volatile MongoClient mongoClient;
+    private volatile MongoDatabase database;
+    private final ReportService reportService = new ReportService(indexManager, () -> database);
+    private final DailySalesRollup salesRollup = new DailySalesRollup(() -> database);
+    private volatile boolean salesRollupMissing;
+    private volatile CompletableFuture<Void> indexBuild = CompletableFuture.completedFuture(null);
+    private final DatabaseMetadata metadata = new DatabaseMetadata(() -> database);
+    private final ReferenceMigration referenceMigration = new ReferenceMigration(() -> database);
+    // Databases written before the mode existed keep the arrays
+    private volatile ReferenceMode referenceMode = ReferenceMode.EMBEDDED;
+    private final SalesStorageMigration salesMigration = new SalesStorageMigration(() -> database);
+    private volatile SalesStorage salesStorage = SalesStorage.STANDARD;
+    private final CascadeDelete cascade = new CascadeDelete(() -> mongoClient, () -> database, indexManager, salesRollup,
+            () -> referenceMode);
+    private final StockLedger stockLedger = new StockLedger(() -> database, metadata, cascade);
 
     /**
      * Constructs a new Model instance with MongoDB connection and codec registration.
      */
     public Model() {
-
+        // Keep the caches coherent with the changes made by other clients
+        changeFeed.addListener(Television.class, event -> applyChange(televisionCache, televisionNames, event));
+        changeFeed.addListener(Customer.class, event -> applyChange(customerCache, customerNames, event));
+        changeFeed.addListener(Supplier.class, event -> applyChange(supplierCache, supplierNames, event));
+        // New sales are loaded by the next refresh of the sales store, any other change needs a full reload
+        changeFeed.addListener(Sale.class, event -> {
+            if (event.type() != ChangeEvent.Type.INSERT || salesStore.isBehind(event.id())) {
+                salesStore.invalidate();
+            }
+        });
     }
 
-    public void connect() {
+    /**
+     * Returns the settings of a client of the database of the application, with the entity codecs registered. The
+     * maintenance tools that must not start the background work of {@link #connect()} open their client with them.
+     *
+     * @return A builder of the settings, to add the tool's own.
+     */
+    public static MongoClientSettings.Builder clientSettings() {
         String username = "root";  // Replace with your MongoDB username
         String password = "example";  // Replace with your MongoDB password
-        String connectionString = "mongodb://" + username + ":" + password + "@localhost:27017/TelevisionStore?authSource=admin";
+        String connectionString = "mongodb://" + username + ":" + password + "@localhost:27017/" + DATABASE + "?authSource=admin";
 
-        // Register POJO codec provider
-        CodecRegistry pojoCodecRegistry = fromRegistries(
+        // Register the hand-written entity codecs
+        CodecRegistry codecRegistry = fromRegistries(
                 MongoClientSettings.getDefaultCodecRegistry(),
-                fromProviders(PojoCodecProvider.builder().automatic(true).build())
+                fromProviders(new EntityCodecProvider())
         );
 
         // Configure MongoClient with the codec registry and connection string
-        MongoClientSettings settings = MongoClientSettings.builder()
+        return MongoClientSettings.builder()
                 .applyConnectionString(new com.mongodb.ConnectionString(connectionString))
-                .codecRegistry(pojoCodecRegistry)
-                .build();
+                .codecRegistry(codecRegistry);
+    }
+
+    public void connect() {
+        mongoClient = MongoClients.create(clientSettings().addCommandListener(roundTrips).build());
+        database = mongoClient.getDatabase(DATABASE);
+        salesStorage = salesMigration.detect();
+        indexBuild = indexManager.createMissingIndexes(database);
+        cascade.detectTransactions();
+        referenceMode = metadata.getEnum(REFERENCE_MODE_KEY, ReferenceMode.class, ReferenceMode.EMBEDDED);
+        salesRollupMissing = salesRollup.isMissing();
+        stockLedger.bootstrapOnce();
+
+        televisionCache.clear();
+        customerCache.clear();
+        supplierCache.clear();
+        televisionNames.clear();
+        customerNames.clear();
+        supplierNames.clear();
+        salesStore.invalidate();
+        watchCollections();
+    }
+
+    /**
+     * Watches every collection through the change feed. Time-series collections do not support change streams,
+     * so the sales are polled when stored as a time series.
+     */
+    private void watchCollections() {
+        changeFeed.watch(database.getCollection("televisions", Television.class), Television.class, Television::getId);
+        changeFeed.watch(database.getCollection("customers", Customer.class), Customer.class, Customer::getId);
+        changeFeed.watch(database.getCollection("suppliers", Supplier.class), Supplier.class, Supplier::getId);
+        changeFeed.watch(database.getCollection("stock", Stock.class), Stock.class, Stock::getId);
+
+        MongoCollection<Sale> sales = database.getCollection("sales", Sale.class);
+        if (salesStorage == SalesStorage.TIME_SERIES) {
+            changeFeed.poll(sales, Sale.class, Sale::getId);
+        } else {
+            changeFeed.watch(sales, Sale.class, Sale::getId);
+        }
+    }
+
+    /**
+     * Returns the database of the current connection, for the tools that work on their own scratch collections.
+     *
+     * @return The database of the current connection.
+     */
+    public MongoDatabase getDatabase() {
+        return database;
+    }
+
+    /**
+     * Returns the index manager, which reports the build status of the indexes and the unindexed queries.
+     *
+     * @return The index manager of this model.
+     */
+    public IndexManager getIndexManager() {
+        return indexManager;
+    }
+
+    /**
+     * Returns the creation of the missing indexes started on connect, which runs in the background.
+     *
+     * @return A future completed once every declared index has been processed.
+     */
+    public CompletableFuture<Void> getIndexBuild() {
+        return indexBuild;
+    }
+
+    /**
+     * Returns the counter of the commands sent to the server, to check how many round trips each write takes.
+     *
+     * @return The round trip counter of this model.
+     */
+    public RoundTripCounter getRoundTrips() {
+        return roundTrips;
+    }
+
+    /**
+     * Returns whether the sale and stock writes and the cascade deletes run in a transaction, which takes one more
+     * round trip to commit.
+     *
+     * @return {@code true} on a replica set or sharded cluster with the sales stored as standard documents.
+     */
+    public boolean isTransactional() {
+        return cascade.isTransactional();
+    }
+
+    /**
+     * Returns the feed publishing the changes made to the collections by any client.
+     *
+     * @return The change feed of this model.
+     */
+    public ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    /**
+     * Returns the service computing the revenue reports on the database.
+     *
+     * @return The report service of this model.
+     */
+    public ReportService getReportService() {
+        return reportService;
+    }
+
+    /**
+     * Recomputes the units on hand of every television from the stock entries and the sales.
+     *
+     * @return The number of counters corrected.
+     */
+    public int reconcileStock() {
+        int corrected = stockLedger.reconcile();
+        if (corrected > 0) {
+            televisionCache.clear();
+        }
+        return corrected;
+    }
+
+    /**
+     * Returns the units on hand of a television, read from the database.
+     *
+     * @param televisionId The id of the television.
+     * @return The units on hand, or 0 if the television does not exist.
+     */
+    public int getOnHand(ObjectId televisionId) {
+        Television television = database.getCollection("televisions", Television.class)
+                .find(Filters.eq("_id", televisionId))
+                .projection(Projections.include(StockLedger.FIELD))
+                .first();
+        return television != null && television.getOnHand() != null ? television.getOnHand() : 0;
+    }
+
+    /**
+     * Recomputes the daily sales rollup read by the reports from the sales collection.
+     *
+     * @return The number of sales read.
+     */
+    public long rebuildSalesRollup() {
+        long count = salesRollup.rebuild();
+        salesRollupMissing = false;
+        return count;
+    }
+
+    /**
+     * Returns whether the database had sales but no daily rollup on connect, so the reports miss those sales until
+     * the rollup is rebuilt.
+     *
+     * @return {@code true} if the rollup has to be rebuilt.
+     */
+    public boolean isSalesRollupMissing() {
+        return salesRollupMissing;
+    }
+
+    /**
+     * Returns how the televisions, customers and suppliers reference their sales and stock entries. The mode
+     * belongs to the database, so it is read from its metadata on connect.
+     *
+     * @return The reference mode of the database.
+     */
+    public ReferenceMode getReferenceMode() {
+        return referenceMode;
+    }
+
+    /**
+     * Changes how the televisions, customers and suppliers of the database reference their sales and stock
+     * entries, and rewrites the existing documents to it in batches. The mode is stored in the database before
+     * the rewrite, so the writes made meanwhile already follow it; other clients apply it once they reconnect.
+     *
+     * @param referenceMode The new reference mode.
+     * @return The number of documents rewritten.
+     */
+    public long migrateReferences(ReferenceMode referenceMode) {
+        metadata.set(REFERENCE_MODE_KEY, referenceMode.name());
+        this.referenceMode = referenceMode;
+        return referenceMigration.migrate(referenceMode);
+    }
+
+    public SalesStorage getSalesStorage() {
+        return salesStorage;
+    }
+
+    /**
+     * Loads the sales added since the last call into the in-memory sales store, or all of them if any loaded sale
+     * has changed, and returns the resulting snapshot to run analytics queries on.
+     *
+     * @return The up-to-date snapshot of the sales store.
+     */
+    public SalesColumnStore.Snapshot refreshSalesStore() {
+        return salesStore.refresh(database.getCollection("sales", SaleRow.class));
+    }
+
+    /**
+     * Registers a listener for the changes of the collection holding the given entity type.
+     *
+     * @param type     The type of the entities.
+     * @param listener The listener, called on a background thread.
+     * @param <T>      The type of the entities.
+     */
+    public <T> void addChangeListener(Class<T> type, Consumer<ChangeEvent<T>> listener) {
+        changeFeed.addListener(type, listener);
+    }
+
+    private static <T> void applyChange(EntityCache<T> cache, ReferenceResolver<T> names, ChangeEvent<T> event) {
+        switch (event.type()) {
+            case INSERT, UPDATE -> {
+                cache.put(event.entity());
+                names.update(event.entity());
+            }
+            case DELETE -> cache.invalidate(event.id());
+            case RESYNC -> {
+                cache.clear();
+                names.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the cache of television names shown by the tables that reference televisions.
+     *
+     * @return The television name resolver.
+     */
+    public ReferenceResolver<Television> getTelevisionNames() {
+        return televisionNames;
+    }
 
-        mongoClient = MongoClients.create(settings);
-        database = mongoClient.getDatabase("TelevisionStore");
+    /**
+     * Returns the cache of customer names shown by the tables that reference customers.
+     *
+     * @return The customer name resolver.
+     */
+    public ReferenceResolver<Customer> getCustomerNames() {
+        return customerNames;
+    }
+
+    /**
+     * Returns the cache of supplier names shown by the tables that reference suppliers.
+     *
+     * @return The supplier name resolver.
+     */
+    public ReferenceResolver<Supplier> getSupplierNames() {
+        return supplierNames;
+    }
+
+    /**
+     * Returns the caches of the catalog collections, to read their hit and miss counters.
+     *
+     * @return The cache of each collection, by collection name.
+     */
+    public Map<String, EntityCache<?>> getCaches() {
+        return Map.of("televisions", televisionCache, "customers", customerCache, "suppliers", supplierCache);
+    }
+
+    /**
+     * Returns the entities with the given ids, taking them from the cache when possible and fetching the rest
+     * in a single query, projected to the given fields. Projected entities are incomplete, so they are not cached.
+     */
+    private <T> List<T> findByIds(EntityCache<T> cache, String collectionName, Class<T> type, Collection<ObjectId> ids, String... fields) {
+        List<T> found = new ArrayList<>();
+        List<ObjectId> missing = new ArrayList<>();
+        for (ObjectId id : ids) {
+            T cached = cache.get(id);
+            if (cached != null) {
+                found.add(cached);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            database.getCollection(collectionName, type)
+                    .find(Filters.in("_id", missing))
+                    .projection(Projections.include(fields))
+                    .into(found);
+        }
+        return found;
+    }
+
+    /**
+     * Returns the id and display label of the first entities of a collection whose label starts with the given
+     * prefix, in label order. Only the fields of the label are read from the server, so the entities are never fully
+     * decoded, and the label fields must lead a {@link IndexManager#SEARCH_COLLATION} index.
+     */
+    private <T> List<Summary> summaries(String collectionName, Class<T> type, Function<T, Summary> summaryOf,
+                                        String prefix, int limit, String... fields) {
+        MongoCollection<T> collection = database.getCollection(collectionName, type);
+        Bson filter = prefix.isEmpty()
+                ? Filters.empty()
+                : indexManager.audit(collection, labelStartsWith(prefix, fields), IndexManager.SEARCH_COLLATION);
+        return collection.find(filter)
+                .collation(IndexManager.SEARCH_COLLATION)
+                .projection(Projections.include(fields))
+                .sort(Sorts.ascending(fields))
+                .limit(limit)
+                .map(summaryOf::apply)
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * Builds a filter matching the documents whose label, the given fields joined by spaces, starts with the given
+     * prefix. The prefix may end within the first field, which can hold spaces itself, or at any of its spaces go
+     * on into the second one, so each split is a range on the index of both fields.
+     */
+    private static Bson labelStartsWith(String prefix, String... fields) {
+        List<Bson> splits = new ArrayList<>();
+        splits.add(startsWith(fields[0], prefix));
+        if (fields.length > 1) {
+            for (int space = prefix.indexOf(' '); space != -1; space = prefix.indexOf(' ', space + 1)) {
+                splits.add(Filters.and(Filters.eq(fields[0], prefix.substring(0, space)),
+                        startsWith(fields[1], prefix.substring(space + 1))));
+            }
+        }
+        return splits.size() == 1 ? splits.getFirst() : Filters.or(splits);
+    }
+
+    /**
+     * Builds a filter matching the documents whose field starts with the given prefix.
+     * It is expressed as a range so that, together with {@link IndexManager#SEARCH_COLLATION}, it can be answered from an index.
+     */
+    private static Bson startsWith(String field, String prefix) {
+        // U+FFFF sorts after every other character in ICU collations
+        return Filters.and(Filters.gte(field, prefix), Filters.lt(field, prefix + '\uffff'));
+    }
+
+    private <T> List<T> search(MongoCollection<T> collection, String field, String prefix, SortOrder order) {
+        return collection.find(indexManager.audit(collection, startsWith(field, prefix), IndexManager.SEARCH_COLLATION))
+                .collation(IndexManager.SEARCH_COLLATION)
+                .sort(order != null ? order.toBson(false) : Sorts.ascending(field))
+                .limit(SEARCH_LIMIT)
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * Returns every document of the collection sorted on the server, so the sort can be answered from an index.
+     * Without sort order, the documents are returned in natural order.
+     */
+    private static <T> List<T> sorted(MongoCollection<T> collection, SortOrder order) {
+        FindIterable<T> find = collection.find();
+        if (order == null) {
+            return find.into(new ArrayList<>());
+        }
+
+        find = find.sort(order.toBson(false));
+        if (order.text()) {
+            find = find.collation(IndexManager.SEARCH_COLLATION);
+        }
+        return find.into(new ArrayList<>());
+    }
+
+    /**
+     * Returns a page of the collection in a stable order, so consecutive pages neither overlap nor miss documents.
+     * Ties are broken by {@code _id}, which the compound sort indexes declared by {@link IndexManager} include.
+     * Without sort order, the documents are sorted by {@code _id}.
+     */
+    private static <T> List<T> page(MongoCollection<T> collection, Bson filter, Bson after, int skip, int limit, SortOrder order) {
+        if (order == null) {
+            order = SortOrder.BY_ID;
+        }
+
+        FindIterable<T> find = collection.find(after != null ? Filters.and(filter, after) : filter)
+                .sort(order.toBson(true))
+                .skip(skip)
+                .limit(limit);
+        if (order.text()) {
+            find = find.collation(IndexManager.SEARCH_COLLATION);
+        }
+        return find.into(new ArrayList<>());
+    }
+
+    private <T> long countBy(MongoCollection<T> collection, String foreignKey, ObjectId id) {
+        return collection.countDocuments(indexManager.audit(collection, Filters.eq(foreignKey, id)));
+    }
+
+    /**
+     * Returns a page of the documents referencing the given entity, sorted by {@code _id}, after the given id.
+     * The foreign key indexes end in {@code _id}, so the page is read from the index without sorting.
+     */
+    private <T> List<T> pageBy(MongoCollection<T> collection, String foreignKey, ObjectId id, ObjectId after, int skip, int limit) {
+        return page(collection, indexManager.audit(collection, Filters.eq(foreignKey, id)),
+                after != null ? SortOrder.BY_ID.after(null, after) : null, skip, limit, SortOrder.BY_ID);
+    }
+
+    /**
+     * Returns the filter of the sales sorted after the given one, or {@code null} to start from the first sale.
+     */
+    private static Bson saleAfter(SaleRow after, SortOrder order) {
+        if (after == null) {
+            return null;
+        }
+        return order.after(switch (order.field()) {
+            case "_id" -> after.id();
+            case "saleDate" -> after.saleDate();
+            case "total" -> after.total();
+            default -> throw new IllegalArgumentException("Sales cannot be paged by " + order.field());
+        }, after.id());
+    }
+
+    /**
+     * Returns the filter of the stock entries sorted after the given one, or {@code null} to start from the first.
+     */
+    private static Bson stockAfter(StockRow after, SortOrder order) {
+        if (after == null) {
+            return null;
+        }
+        return order.after(switch (order.field()) {
+            case "_id" -> after.id();
+            case "entryDate" -> after.entryDate();
+            case "quantity" -> after.quantity();
+            default -> throw new IllegalArgumentException("Stock cannot be paged by " + order.field());
+        }, after.id());
     }
 
     public void disconnect() {
+        changeFeed.stop();
         if (mongoClient != null) {
             mongoClient.close();
         }
     }
 
+    /**
+     * Inserts an entity, reporting a violation of a unique index as a duplicate instead of failing.
+     *
+     * @param keys The filter matching the documents with the same keys in the unique index of the collection.
+     */
+    private <T> WriteResult<T> insert(MongoCollection<T> collection, T entity, Bson keys) {
+        if (isDuplicateBeforeIndex(collection, keys)) {
+            return WriteResult.duplicate();
+        }
+        try {
+            collection.insertOne(entity);
+            return WriteResult.ok(entity);
+        } catch (MongoException e) {
+            if (isDuplicateKey(e)) {
+                return WriteResult.duplicate();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Updates an entity in a single round-trip, returning it as stored after the update.
+     * A violation of a unique index is reported as a duplicate instead of failing.
+     *
+     * @param keys The filter matching the documents with the same keys in the unique index of the collection.
+     */
+    private <T> WriteResult<T> update(MongoCollection<T> collection, Bson filter, Bson updates, Bson keys) {
+        if (isDuplicateBeforeIndex(collection, Filters.and(keys, Filters.not(filter)))) {
+            return WriteResult.duplicate();
+        }
+        try {
+            T updated = collection.findOneAndUpdate(filter, Updates.combine(updates, ChangeFeed.touch()),
+                    new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
+            return updated != null ? WriteResult.ok(updated) : WriteResult.notFound();
+        } catch (MongoException e) {
+            if (isDuplicateKey(e)) {
+                return WriteResult.duplicate();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a successfully stored entity through to its cache and its cached name.
+     */
+    private static <T> WriteResult<T> cached(EntityCache<T> cache, ReferenceResolver<T> names, WriteResult<T> result) {
+        if (result.isOk()) {
+            cache.put(result.entity());
+            names.update(result.entity());
+        }
+        return result;
+    }
+
+    /**
+     * Sets the same fields on many entities with a single update, then reads them back to keep their cache and
+     * cached names coherent.
+     */
+    private static <T> List<T> updateMany(MongoCollection<T> collection, EntityCache<T> cache, ReferenceResolver<T> names,
+                                          Collection<ObjectId> ids, BulkEdit edit) {
+        Bson filter = Filters.in("_id", ids);
+        collection.updateMany(filter, edit.toUpdate());
+        List<T> updated = collection.find(filter).into(new ArrayList<>());
+        for (T entity : updated) {
+            cache.put(entity);
+            names.update(entity);
+        }
+        return updated;
+    }
+
+    /**
+     * Checks for a duplicate by querying while the unique index of the collection is not ready, as it is still
+     * being built or its build failed on existing duplicates, and cannot reject the write itself. Two concurrent
+     * writes may still both pass the check, but no single one is let through. Once the index is ready it is the
+     * only check, and the write takes no extra round trip.
+     */
+    private boolean isDuplicateBeforeIndex(MongoCollection<?> collection, Bson keys) {
+        if (indexManager.isUniqueReady(collection.getNamespace().getCollectionName())) {
+            return false;
+        }
+        return collection.find(keys)
+                .collation(IndexManager.SEARCH_COLLATION)
+                .projection(Projections.include("_id"))
+                .first() != null;
+    }
+
+    private static boolean isDuplicateKey(MongoException e) {
+        return ErrorCategory.fromErrorCode(e.getCode()) == ErrorCategory.DUPLICATE_KEY;
+    }
+
     // Television Methods
     public List<Television> getTelevisions() {
-        MongoCollection<Television> collection = database.getCollection("televisions", Television.class);
-        return collection.find().into(new ArrayList<>());
+        return getTelevisions(null);
+    }
+
+    public List<Television> getTelevisions(SortOrder order) {
+        return televisionCache.query("all " + order, () -> sorted(database.getCollection("televisions", Television.class), order));
+    }
+
+    public List<Summary> getTelevisionSummaries(String prefix, int limit) {
+        return summaries("televisions", Television.class, Summary::of, prefix, limit, "brand", "model");
     }
 
-    public void addTelevision(String model, String brand, double price, LocalDate releaseDate, short type, boolean isSmart) {
+    public List<Television> searchTelevisions(String brand) {
+        return searchTelevisions(brand, null);
+    }
+
+    public List<Television> searchTelevisions(String brand, SortOrder order) {
+        return televisionCache.query("search " + brand + " " + order,
+                () -> search(database.getCollection("televisions", Television.class), "brand", brand, order));
+    }
+
+    public WriteResult<Television> addTelevision(String model, String brand, double price, LocalDate releaseDate, short type, boolean isSmart) {
         MongoCollection<Television> collection = database.getCollection("televisions", Television.class);
         Television television = new Television();
         television.setId(new ObjectId());
@@ -78,10 +656,11 @@ public class Model {
         television.setReleaseDate(releaseDate);
         television.setType(type);
         television.setIsSmart(isSmart);
-        collection.insertOne(television);
+        television.setOnHand(0);
+        return cached(televisionCache, televisionNames, insert(collection, television, televisionKeys(brand, model)));
     }
 
-    public void modifyTelevision(ObjectId id, String model, String brand, double price, LocalDate releaseDate, int type, boolean isSmart) {
+    public WriteResult<Television> modifyTelevision(ObjectId id, String model, String brand, double price, LocalDate releaseDate, int type, boolean isSmart) {
         MongoCollection<Television> collection = database.getCollection("televisions", Television.class);
         Bson filter = Filters.eq("_id", id);
         Bson updates = Updates.combine(
@@ -92,36 +671,62 @@ public class Model {
                 Updates.set("type", (short) type),
                 Updates.set("isSmart", isSmart)
         );
-        collection.updateOne(filter, updates);
+        return cached(televisionCache, televisionNames, update(collection, filter, updates, televisionKeys(brand, model)));
     }
 
-    public void deleteTelevision(ObjectId id) {
-        MongoCollection<Television> tvCollection = database.getCollection("televisions", Television.class);
-        MongoCollection<Sale> saleCollection = database.getCollection("sales", Sale.class);
-        MongoCollection<Stock> stockCollection = database.getCollection("stock", Stock.class);
+    private static Bson televisionKeys(String brand, String model) {
+        return Filters.and(Filters.eq("brand", brand), Filters.eq("model", model));
+    }
 
-        saleCollection.deleteMany(Filters.eq("televisionId", id));
-        stockCollection.deleteMany(Filters.eq("televisionId", id));
-        tvCollection.deleteOne(Filters.eq("_id", id));
+    /**
+     * Sets the same fields on many televisions with a single update.
+     *
+     * @param ids  The ids of the televisions.
+     * @param edit The fields to set.
+     * @return The updated televisions.
+     */
+    public List<Television> modifyTelevisions(Collection<ObjectId> ids, BulkEdit edit) {
+        return updateMany(database.getCollection("televisions", Television.class), televisionCache, televisionNames, ids, edit);
     }
 
-    public boolean checkTelevisionExists(String model, String brand, ObjectId id) {
-        MongoCollection<Television> collection = database.getCollection("televisions", Television.class);
-        Television television = collection.find(Filters.and(
-                Filters.eq("model", model),
-                Filters.eq("brand", brand),
-                Filters.ne("_id", id)
-        )).first();
-        return television != null;
+    public void deleteTelevision(ObjectId id) {
+        deleteTelevisions(List.of(id));
+    }
+
+    /**
+     * Deletes many televisions along with their sales and stock, pulling them from the customers and suppliers
+     * that reference them.
+     *
+     * @param ids The ids of the televisions.
+     */
+    public void deleteTelevisions(Collection<ObjectId> ids) {
+        cascade.televisions(ids);
+        ids.forEach(televisionCache::invalidate);
     }
 
     // Customer Methods
     public List<Customer> getCustomers() {
-        MongoCollection<Customer> collection = database.getCollection("customers", Customer.class);
-        return collection.find().into(new ArrayList<>());
+        return getCustomers(null);
+    }
+
+    public List<Customer> getCustomers(SortOrder order) {
+        return customerCache.query("all " + order, () -> sorted(database.getCollection("customers", Customer.class), order));
+    }
+
+    public List<Summary> getCustomerSummaries(String prefix, int limit) {
+        return summaries("customers", Customer.class, Summary::of, prefix, limit, "firstName", "lastName");
     }
 
-    public void addCustomer(String name, String surname, String mail, String phone, LocalDate birthDate, short type) {
+    public List<Customer> searchCustomers(String email) {
+        return searchCustomers(email, null);
+    }
+
+    public List<Customer> searchCustomers(String email, SortOrder order) {
+        return customerCache.query("search " + email + " " + order,
+                () -> search(database.getCollection("customers", Customer.class), "email", email, order));
+    }
+
+    public WriteResult<Customer> addCustomer(String name, String surname, String mail, String phone, LocalDate birthDate, short type) {
         MongoCollection<Customer> collection = database.getCollection("customers", Customer.class);
         Customer customer = new Customer();
         customer.setId(new ObjectId());
@@ -131,10 +736,10 @@ public class Model {
         customer.setPhone(phone);
         customer.setRegistrationDate(birthDate);
         customer.setType(type);
-        collection.insertOne(customer);
+        return cached(customerCache, customerNames, insert(collection, customer, Filters.eq("email", mail)));
     }
 
-    public void modifyCustomer(ObjectId id, String name, String surname, String mail, String phone, LocalDate birthDate, int type) {
+    public WriteResult<Customer> modifyCustomer(ObjectId id, String name, String surname, String mail, String phone, LocalDate birthDate, int type) {
         MongoCollection<Customer> collection = database.getCollection("customers", Customer.class);
         Bson filter = Filters.eq("_id", id);
         Bson updates = Updates.combine(
@@ -145,37 +750,66 @@ public class Model {
                 Updates.set("registrationDate", birthDate),
                 Updates.set("type", (short) type)
         );
-        collection.updateOne(filter, updates);
+        return cached(customerCache, customerNames, update(collection, filter, updates, Filters.eq("email", mail)));
     }
 
-    public void deleteCustomer(ObjectId id) {
-        MongoCollection<Customer> customerCollection = database.getCollection("customers", Customer.class);
-        MongoCollection<Sale> saleCollection = database.getCollection("sales", Sale.class);
+    /**
+     * Sets the same fields on many customers with a single update.
+     *
+     * @param ids  The ids of the customers.
+     * @param edit The fields to set.
+     * @return The updated customers.
+     */
+    public List<Customer> modifyCustomers(Collection<ObjectId> ids, BulkEdit edit) {
+        return updateMany(database.getCollection("customers", Customer.class), customerCache, customerNames, ids, edit);
+    }
 
-        saleCollection.deleteMany(Filters.eq("customerId", id));
-        customerCollection.deleteOne(Filters.eq("_id", id));
+    public void deleteCustomer(ObjectId id) {
+        deleteCustomers(List.of(id));
     }
 
-    public boolean checkCustomerExists(String email, ObjectId id) {
-        MongoCollection<Customer> collection = database.getCollection("customers", Customer.class);
-        Customer customer = collection.find(Filters.and(
-                Filters.eq("email", email),
-                Filters.ne("_id", id)
-        )).first();
-        return customer != null;
+    /**
+     * Deletes many customers along with their sales, pulling them from the televisions that reference them.
+     *
+     * @param ids The ids of the customers.
+     */
+    public void deleteCustomers(Collection<ObjectId> ids) {
+        cascade.customers(ids).forEach(televisionCache::invalidate);
+        ids.forEach(customerCache::invalidate);
     }
 
     // Sale Methods
-    public List<Sale> getSales() {
-        MongoCollection<Sale> collection = database.getCollection("sales", Sale.class);
+    public List<SaleRow> getSales() {
+        MongoCollection<SaleRow> collection = database.getCollection("sales", SaleRow.class);
         return collection.find().into(new ArrayList<>());
     }
 
-    public void addSale(ObjectId customerId, ObjectId televisionId, LocalDate saleDate, int quantity, double totalPrice) {
-        MongoCollection<Sale> saleCollection = database.getCollection("sales", Sale.class);
-        MongoCollection<Customer> customerCollection = database.getCollection("customers", Customer.class);
-        MongoCollection<Television> tvCollection = database.getCollection("televisions", Television.class);
+    public long countSales() {
+        return database.getCollection("sales", Sale.class).estimatedDocumentCount();
+    }
+
+    public List<SaleRow> getSales(SaleRow after, int skip, int limit, SortOrder order) {
+        order = order != null ? order : SortOrder.BY_ID;
+        return page(database.getCollection("sales", SaleRow.class), Filters.empty(), saleAfter(after, order), skip, limit, order);
+    }
+
+    public long countSalesByCustomer(ObjectId customerId) {
+        return countBy(database.getCollection("sales", Sale.class), "customerId", customerId);
+    }
+
+    public List<SaleRow> getSalesByCustomer(ObjectId customerId, SaleRow after, int skip, int limit) {
+        return pageBy(database.getCollection("sales", SaleRow.class), "customerId", customerId, after != null ? after.id() : null, skip, limit);
+    }
+
+    public long countSalesByTelevision(ObjectId televisionId) {
+        return countBy(database.getCollection("sales", Sale.class), "televisionId", televisionId);
+    }
+
+    public List<SaleRow> getSalesByTelevision(ObjectId televisionId, SaleRow after, int skip, int limit) {
+        return pageBy(database.getCollection("sales", SaleRow.class), "televisionId", televisionId, after != null ? after.id() : null, skip, limit);
+    }
 
+    public WriteResult<Sale> addSale(ObjectId customerId, ObjectId televisionId, LocalDate saleDate, int quantity, double totalPrice) {
         Sale sale = new Sale();
         sale.setId(new ObjectId());
         sale.setCustomerId(customerId);
@@ -183,84 +817,284 @@ public class Model {
         sale.setSaleDate(saleDate);
         sale.setQuantity(quantity);
         sale.setTotal(totalPrice);
-        saleCollection.insertOne(sale);
-
-        customerCollection.updateOne(
-                Filters.eq("_id", customerId),
-                Updates.addToSet("saleIds", sale.getId())
-        );
-        tvCollection.updateOne(
-                Filters.eq("_id", televisionId),
-                Updates.addToSet("saleIds", sale.getId())
-        );
+        addSales(List.of(sale));
+        return WriteResult.ok(sale);
     }
 
-    public void modifySale(ObjectId id, ObjectId customerId, ObjectId televisionId, LocalDate saleDate, int quantity, double totalPrice) {
-        MongoCollection<Sale> saleCollection = database.getCollection("sales", Sale.class);
-        MongoCollection<Customer> customerCollection = database.getCollection("customers", Customer.class);
-        MongoCollection<Television> tvCollection = database.getCollection("televisions", Television.class);
-
-        Sale existingSale = saleCollection.find(Filters.eq("_id", id)).first();
-        if (existingSale != null) {
-            if (!existingSale.getCustomerId().equals(customerId)) {
-                customerCollection.updateOne(
-                        Filters.eq("_id", existingSale.getCustomerId()),
-                        Updates.pull("saleIds", id)
-                );
-                customerCollection.updateOne(
-                        Filters.eq("_id", customerId),
-                        Updates.addToSet("saleIds", id)
-                );
-            }
-            if (!existingSale.getTelevisionId().equals(televisionId)) {
-                tvCollection.updateOne(
-                        Filters.eq("_id", existingSale.getTelevisionId()),
-                        Updates.pull("saleIds", id)
-                );
-                tvCollection.updateOne(
-                        Filters.eq("_id", televisionId),
-                        Updates.addToSet("saleIds", id)
-                );
+    /**
+     * Inserts many sales at once, as in the end-of-day sync of a point of sale. However many sales there are, it
+     * takes one insert, one bulk write on the customers, one on the televisions and one on the daily rollup.
+     *
+     * @param sales The sales to insert. Those without id are given one.
+     * @return The inserted sales.
+     */
+    public List<Sale> addSales(List<Sale> sales) {
+        if (sales.isEmpty()) {
+            return sales;
+        }
+
+        for (Sale sale : sales) {
+            if (sale.getId() == null) {
+                sale.setId(new ObjectId());
             }
         }
+        return inSession((session, counted) -> {
+            database.getCollection("sales", Sale.class).insertMany(session, sales);
+
+            ReferenceBatch customers = ReferenceBatch.of("saleIds", referenceMode);
+            ReferenceBatch televisions = ReferenceBatch.of("saleIds", referenceMode);
+            sales.forEach(sale -> referenceSale(customers, televisions, null, sale));
+            customers.write(session, database.getCollection("customers"));
+            writeTelevisions(session, televisions, counted);
+            salesRollup.applyAll(session, List.of(), sales.stream().map(SaleRow::of).toList());
+            return sales;
+        });
+    }
+
+    public WriteResult<Sale> modifySale(ObjectId id, ObjectId customerId, ObjectId televisionId, LocalDate saleDate, int quantity, double totalPrice) {
+        Sale sale = new Sale();
+        sale.setId(id);
+        sale.setCustomerId(customerId);
+        sale.setTelevisionId(televisionId);
+        sale.setSaleDate(saleDate);
+        sale.setQuantity(quantity);
+        sale.setTotal(totalPrice);
 
+        // The previous state is returned by the update itself, so the rollup is corrected by the exact difference
         Bson filter = Filters.eq("_id", id);
         Bson updates = Updates.combine(
                 Updates.set("customerId", customerId),
                 Updates.set("televisionId", televisionId),
                 Updates.set("saleDate", saleDate),
                 Updates.set("quantity", quantity),
-                Updates.set("total", totalPrice)
+                Updates.set("total", totalPrice),
+                ChangeFeed.touch()
         );
-        saleCollection.updateOne(filter, updates);
+        return inSession((session, counted) -> {
+            Sale existingSale = findAndUpdateSale(session, database.getCollection("sales", Sale.class), filter, updates);
+            if (existingSale == null) {
+                return WriteResult.notFound();
+            }
+
+            ReferenceBatch customers = ReferenceBatch.of("saleIds", referenceMode);
+            ReferenceBatch televisions = ReferenceBatch.of("saleIds", referenceMode);
+            referenceSale(customers, televisions, existingSale, sale);
+            customers.write(session, database.getCollection("customers"));
+            writeTelevisions(session, televisions, counted);
+            salesRollup.applyAll(session, List.of(SaleRow.of(existingSale)), List.of(SaleRow.of(sale)));
+            return WriteResult.ok(sale);
+        });
+    }
+
+    /**
+     * Sets the same fields on many sales, with a single update in a transaction or one per sale otherwise. The
+     * back-references, the units on hand and the daily rollup are corrected from the states before and after the
+     * update, with one bulk write per collection.
+     *
+     * @param ids  The ids of the sales.
+     * @param edit The fields to set.
+     * @return The updated sales.
+     */
+    public List<Sale> modifySales(Collection<ObjectId> ids, BulkEdit edit) {
+        return inSession((session, counted) -> {
+            MongoCollection<Sale> saleCollection = database.getCollection("sales", Sale.class);
+            Bson update = edit.toUpdate();
+            List<Edited<Sale>> edited = edit(session, saleCollection, ids, edit, Sale::getId,
+                    filter -> findAndUpdateSale(session, saleCollection, filter, update));
+
+            ReferenceBatch customers = ReferenceBatch.of("saleIds", referenceMode);
+            ReferenceBatch televisions = ReferenceBatch.of("saleIds", referenceMode);
+            edited.forEach(sale -> referenceSale(customers, televisions, sale.before(), sale.after()));
+            customers.write(session, database.getCollection("customers"));
+            writeTelevisions(session, televisions, counted);
+            salesRollup.applyAll(session, edited.stream().map(sale -> SaleRow.of(sale.before())).toList(),
+                    edited.stream().map(sale -> SaleRow.of(sale.after())).toList());
+            return edited.stream().map(Edited::after).toList();
+        });
+    }
+
+    /**
+     * Deletes many sales with a single delete, pulling them from the customers and televisions that reference
+     * them with one bulk write per collection.
+     *
+     * @param ids The ids of the sales.
+     */
+    public void deleteSales(Collection<ObjectId> ids) {
+        inSession((session, counted) -> {
+            MongoCollection<Sale> saleCollection = database.getCollection("sales", Sale.class);
+            // A single batch, so the sales are read in one round trip
+            List<Sale> sales = saleCollection.find(session, Filters.in("_id", ids))
+                    .batchSize(CascadeDelete.BATCH_SIZE)
+                    .into(new ArrayList<>());
+            if (sales.isEmpty()) {
+                return null;
+            }
+            saleCollection.deleteMany(session, Filters.in("_id", sales.stream().map(Sale::getId).toList()));
+
+            ReferenceBatch customers = ReferenceBatch.of("saleIds", referenceMode);
+            ReferenceBatch televisions = ReferenceBatch.of("saleIds", referenceMode);
+            sales.forEach(sale -> referenceSale(customers, televisions, sale, null));
+            customers.write(session, database.getCollection("customers"));
+            writeTelevisions(session, televisions, counted);
+            salesRollup.applyAll(session, sales.stream().map(SaleRow::of).toList(), List.of());
+            return null;
+        });
     }
 
     public void deleteSale(ObjectId id) {
-        MongoCollection<Sale> saleCollection = database.getCollection("sales", Sale.class);
-        MongoCollection<Customer> customerCollection = database.getCollection("customers", Customer.class);
-        MongoCollection<Television> tvCollection = database.getCollection("televisions", Television.class);
+        inSession((session, counted) -> {
+            Sale sale = findAndDeleteSale(session, database.getCollection("sales", Sale.class), Filters.eq("_id", id));
+            if (sale != null) {
+                ReferenceBatch customers = ReferenceBatch.of("saleIds", referenceMode);
+                ReferenceBatch televisions = ReferenceBatch.of("saleIds", referenceMode);
+                referenceSale(customers, televisions, sale, null);
+                customers.write(session, database.getCollection("customers"));
+                writeTelevisions(session, televisions, counted);
+                salesRollup.applyAll(session, List.of(SaleRow.of(sale)), List.of());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Updates a sale and returns its previous state. Time-series collections do not support
+     * {@code findAndModify}, so there the sale is read before being updated.
+     */
+    private Sale findAndUpdateSale(ClientSession session, MongoCollection<Sale> collection, Bson filter, Bson updates) {
+        if (salesStorage == SalesStorage.TIME_SERIES) {
+            Sale existing = collection.find(session, filter).first();
+            if (existing != null) {
+                collection.updateOne(session, filter, updates);
+            }
+            return existing;
+        }
+        return collection.findOneAndUpdate(session, filter, updates, new FindOneAndUpdateOptions().returnDocument(ReturnDocument.BEFORE));
+    }
+
+    /**
+     * Deletes a sale and returns it, reading it first on a time-series collection as {@link #findAndUpdateSale} does.
+     */
+    private Sale findAndDeleteSale(ClientSession session, MongoCollection<Sale> collection, Bson filter) {
+        if (salesStorage == SalesStorage.TIME_SERIES) {
+            Sale existing = collection.find(session, filter).first();
+            if (existing != null) {
+                collection.deleteOne(session, filter);
+            }
+            return existing;
+        }
+        return collection.findOneAndDelete(session, filter);
+    }
+
+    /**
+     * Applies a bulk edit to sales or stock entries and returns their states before and after it, from which the
+     * references, the counters and the rollup are corrected. In a transaction they are read, updated with a single
+     * update and read again on the same snapshot. Without one another client could write between those steps and
+     * skew the differences, so each document is updated on its own, returning its previous state, and its new
+     * state is derived from it.
+     *
+     * @param updateOne Updates the document matching a filter and returns its previous state, or {@code null}.
+     */
+    private <T> List<Edited<T>> edit(ClientSession session, MongoCollection<T> collection, Collection<ObjectId> ids,
+                                     BulkEdit edit, Function<T, ObjectId> idOf, Function<Bson, T> updateOne) {
+        List<Edited<T>> edited = new ArrayList<>();
+        if (session.hasActiveTransaction()) {
+            Bson filter = Filters.in("_id", ids);
+            Map<ObjectId, T> before = new HashMap<>();
+            collection.find(session, filter).batchSize(CascadeDelete.BATCH_SIZE)
+                    .forEach(document -> before.put(idOf.apply(document), document));
+            collection.updateMany(session, filter, edit.toUpdate());
+            for (T after : collection.find(session, filter).batchSize(CascadeDelete.BATCH_SIZE)) {
+                T previous = before.get(idOf.apply(after));
+                if (previous != null) {
+                    edited.add(new Edited<>(previous, after));
+                }
+            }
+            return edited;
+        }
+
+        for (ObjectId id : ids) {
+            T before = updateOne.apply(Filters.eq("_id", id));
+            if (before != null) {
+                edited.add(new Edited<>(before, edit.applyTo(before, collection.getDocumentClass(), collection.getCodecRegistry())));
+            }
+        }
+        return edited;
+    }
+
+    /**
+     * The states of a document before and after an edit.
+     */
+    private record Edited<T>(T before, T after) {
+    }
+
+    /**
+     * Runs a sale or stock write on the session of the cascades, so it is applied in a transaction wherever they
+     * are, and evicts the televisions whose units on hand it changed once it finishes, so neither the cache nor
+     * the tables serve a stale counter.
+     *
+     * @param write The write, given the session and the set collecting the televisions it counts.
+     * @return The result of the write.
+     */
+    private <T> T inSession(BiFunction<ClientSession, Set<ObjectId>, T> write) {
+        Set<ObjectId> counted = ConcurrentHashMap.newKeySet();
+        try {
+            return cascade.run(session -> write.apply(session, counted));
+        } finally {
+            counted.forEach(televisionCache::invalidate);
+        }
+    }
+
+    /**
+     * Writes the changes a batch of sales or stock entries makes on their televisions, recording those whose units
+     * on hand changed.
+     */
+    private void writeTelevisions(ClientSession session, ReferenceBatch televisions, Set<ObjectId> counted) {
+        televisions.write(session, database.getCollection("televisions"));
+        counted.addAll(televisions.counted());
+    }
 
-        Sale sale = saleCollection.find(Filters.eq("_id", id)).first();
-        if (sale != null) {
-            customerCollection.updateOne(
-                    Filters.eq("_id", sale.getCustomerId()),
-                    Updates.pull("saleIds", id)
-            );
-            tvCollection.updateOne(
-                    Filters.eq("_id", sale.getTelevisionId()),
-                    Updates.pull("saleIds", id)
-            );
+    /**
+     * Records the changes a sale write makes on its customer and television: the move of the back-references and
+     * the units on hand given back by the old state and taken by the new one.
+     *
+     * @param before The sale before the write, or {@code null} if it has been inserted.
+     * @param after  The sale after the write, or {@code null} if it has been deleted.
+     */
+    private static void referenceSale(ReferenceBatch customers, ReferenceBatch televisions, Sale before, Sale after) {
+        ObjectId id = before != null ? before.getId() : after.getId();
+        customers.move(before != null ? before.getCustomerId() : null, after != null ? after.getCustomerId() : null, id);
+        televisions.move(before != null ? before.getTelevisionId() : null, after != null ? after.getTelevisionId() : null, id);
+        if (before != null) {
+            televisions.changeOnHand(before.getTelevisionId(), Objects.requireNonNullElse(before.getQuantity(), 0));
+        }
+        if (after != null) {
+            televisions.changeOnHand(after.getTelevisionId(), -Objects.requireNonNullElse(after.getQuantity(), 0));
         }
-        saleCollection.deleteOne(Filters.eq("_id", id));
     }
 
     // Supplier Methods
     public List<Supplier> getSuppliers() {
-        MongoCollection<Supplier> collection = database.getCollection("suppliers", Supplier.class);
-        return collection.find().into(new ArrayList<>());
+        return getSuppliers(null);
+    }
+
+    public List<Supplier> getSuppliers(SortOrder order) {
+        return supplierCache.query("all " + order, () -> sorted(database.getCollection("suppliers", Supplier.class), order));
+    }
+
+    public List<Summary> getSupplierSummaries(String prefix, int limit) {
+        return summaries("suppliers", Supplier.class, Summary::of, prefix, limit, "name");
     }
 
-    public void addSupplier(String name, String phone, String address, String mail) {
+    public List<Supplier> searchSuppliers(String name) {
+        return searchSuppliers(name, null);
+    }
+
+    public List<Supplier> searchSuppliers(String name, SortOrder order) {
+        return supplierCache.query("search " + name + " " + order,
+                () -> search(database.getCollection("suppliers", Supplier.class), "name", name, order));
+    }
+
+    public WriteResult<Supplier> addSupplier(String name, String phone, String address, String mail) {
         MongoCollection<Supplier> collection = database.getCollection("suppliers", Supplier.class);
         Supplier supplier = new Supplier();
         supplier.setId(new ObjectId());
@@ -268,10 +1102,10 @@ public class Model {
         supplier.setPhone(phone);
         supplier.setAddress(address);
         supplier.setEmail(mail);
-        collection.insertOne(supplier);
+        return cached(supplierCache, supplierNames, insert(collection, supplier, Filters.eq("email", mail)));
     }
 
-    public void modifySupplier(ObjectId id, String name, String phone, String address, String mail) {
+    public WriteResult<Supplier> modifySupplier(ObjectId id, String name, String phone, String address, String mail) {
         MongoCollection<Supplier> collection = database.getCollection("suppliers", Supplier.class);
         Bson filter = Filters.eq("_id", id);
         Bson updates = Updates.combine(
@@ -280,115 +1114,227 @@ public class Model {
                 Updates.set("address", address),
                 Updates.set("email", mail)
         );
-        collection.updateOne(filter, updates);
+        return cached(supplierCache, supplierNames, update(collection, filter, updates, Filters.eq("email", mail)));
     }
 
-    public void deleteSupplier(ObjectId id) {
-        MongoCollection<Supplier> supplierCollection = database.getCollection("suppliers", Supplier.class);
-        MongoCollection<Stock> stockCollection = database.getCollection("stock", Stock.class);
+    /**
+     * Sets the same fields on many suppliers with a single update.
+     *
+     * @param ids  The ids of the suppliers.
+     * @param edit The fields to set.
+     * @return The updated suppliers.
+     */
+    public List<Supplier> modifySuppliers(Collection<ObjectId> ids, BulkEdit edit) {
+        return updateMany(database.getCollection("suppliers", Supplier.class), supplierCache, supplierNames, ids, edit);
+    }
 
-        stockCollection.deleteMany(Filters.eq("supplierId", id));
-        supplierCollection.deleteOne(Filters.eq("_id", id));
+    public void deleteSupplier(ObjectId id) {
+        deleteSuppliers(List.of(id));
     }
 
-    public boolean checkSupplierExists(String email, ObjectId id) {
-        MongoCollection<Supplier> collection = database.getCollection("suppliers", Supplier.class);
-        Supplier supplier = collection.find(Filters.and(
-                Filters.eq("email", email),
-                Filters.ne("_id", id)
-        )).first();
-        return supplier != null;
+    /**
+     * Deletes many suppliers along with their stock entries, pulling them from the televisions that reference them.
+     *
+     * @param ids The ids of the suppliers.
+     */
+    public void deleteSuppliers(Collection<ObjectId> ids) {
+        cascade.suppliers(ids).forEach(televisionCache::invalidate);
+        ids.forEach(supplierCache::invalidate);
     }
 
     // Stock Methods
-    public List<Stock> getStock() {
-        MongoCollection<Stock> collection = database.getCollection("stock", Stock.class);
+    public List<StockRow> getStock() {
+        MongoCollection<StockRow> collection = database.getCollection("stock", StockRow.class);
         return collection.find().into(new ArrayList<>());
     }
 
-    public void addStock(ObjectId televisionId, ObjectId supplierId, LocalDate stockDate, int total) {
-        MongoCollection<Stock> stockCollection = database.getCollection("stock", Stock.class);
-        MongoCollection<Television> tvCollection = database.getCollection("televisions", Television.class);
-        MongoCollection<Supplier> supplierCollection = database.getCollection("suppliers", Supplier.class);
+    public long countStock() {
+        return database.getCollection("stock", Stock.class).estimatedDocumentCount();
+    }
+
+    public List<StockRow> getStock(StockRow after, int skip, int limit, SortOrder order) {
+        order = order != null ? order : SortOrder.BY_ID;
+        return page(database.getCollection("stock", StockRow.class), Filters.empty(), stockAfter(after, order), skip, limit, order);
+    }
+
+    public long countStockBySupplier(ObjectId supplierId) {
+        return countBy(database.getCollection("stock", Stock.class), "supplierId", supplierId);
+    }
+
+    public List<StockRow> getStockBySupplier(ObjectId supplierId, StockRow after, int skip, int limit) {
+        return pageBy(database.getCollection("stock", StockRow.class), "supplierId", supplierId, after != null ? after.id() : null, skip, limit);
+    }
+
+    public long countStockByTelevision(ObjectId televisionId) {
+        return countBy(database.getCollection("stock", Stock.class), "televisionId", televisionId);
+    }
+
+    public List<StockRow> getStockByTelevision(ObjectId televisionId, StockRow after, int skip, int limit) {
+        return pageBy(database.getCollection("stock", StockRow.class), "televisionId", televisionId, after != null ? after.id() : null, skip, limit);
+    }
 
+    public WriteResult<Stock> addStock(ObjectId televisionId, ObjectId supplierId, LocalDate stockDate, int total) {
         Stock stock = new Stock();
         stock.setId(new ObjectId());
         stock.setTelevisionId(televisionId);
         stock.setSupplierId(supplierId);
         stock.setEntryDate(stockDate);
         stock.setQuantity(total);
-        stockCollection.insertOne(stock);
-
-        tvCollection.updateOne(
-                Filters.eq("_id", televisionId),
-                Updates.addToSet("stockIds", stock.getId())
-        );
-        supplierCollection.updateOne(
-                Filters.eq("_id", supplierId),
-                Updates.addToSet("stockIds", stock.getId())
-        );
+        addStockEntries(List.of(stock));
+        return WriteResult.ok(stock);
     }
 
-    public void modifyStock(ObjectId id, ObjectId televisionId, ObjectId supplierId, LocalDate stockDate, int total) {
-        MongoCollection<Stock> stockCollection = database.getCollection("stock", Stock.class);
-        MongoCollection<Television> tvCollection = database.getCollection("televisions", Television.class);
-        MongoCollection<Supplier> supplierCollection = database.getCollection("suppliers", Supplier.class);
-
-        Stock existingStock = stockCollection.find(Filters.eq("_id", id)).first();
-        if (existingStock != null) {
-            if (!existingStock.getTelevisionId().equals(televisionId)) {
-                tvCollection.updateOne(
-                        Filters.eq("_id", existingStock.getTelevisionId()),
-                        Updates.pull("stockIds", id)
-                );
-                tvCollection.updateOne(
-                        Filters.eq("_id", televisionId),
-                        Updates.addToSet("stockIds", id)
-                );
-            }
-            if (!existingStock.getSupplierId().equals(supplierId)) {
-                supplierCollection.updateOne(
-                        Filters.eq("_id", existingStock.getSupplierId()),
-                        Updates.pull("stockIds", id)
-                );
-                supplierCollection.updateOne(
-                        Filters.eq("_id", supplierId),
-                        Updates.addToSet("stockIds", id)
-                );
+    /**
+     * Inserts many stock entries at once, as when a delivery is received. However many entries there are, it
+     * takes one insert, one bulk write on the televisions and one on the suppliers.
+     *
+     * @param entries The stock entries to insert. Those without id are given one.
+     * @return The inserted stock entries.
+     */
+    public List<Stock> addStockEntries(List<Stock> entries) {
+        if (entries.isEmpty()) {
+            return entries;
+        }
+
+        for (Stock stock : entries) {
+            if (stock.getId() == null) {
+                stock.setId(new ObjectId());
             }
         }
+        return inSession((session, counted) -> {
+            database.getCollection("stock", Stock.class).insertMany(session, entries);
+
+            ReferenceBatch televisions = ReferenceBatch.of("stockIds", referenceMode);
+            ReferenceBatch suppliers = ReferenceBatch.of("stockIds", referenceMode);
+            entries.forEach(stock -> referenceStock(televisions, suppliers, null, stock));
+            writeTelevisions(session, televisions, counted);
+            suppliers.write(session, database.getCollection("suppliers"));
+            return entries;
+        });
+    }
+
+    public WriteResult<Stock> modifyStock(ObjectId id, ObjectId televisionId, ObjectId supplierId, LocalDate stockDate, int total) {
+        Stock stock = new Stock();
+        stock.setId(id);
+        stock.setTelevisionId(televisionId);
+        stock.setSupplierId(supplierId);
+        stock.setEntryDate(stockDate);
+        stock.setQuantity(total);
 
+        // The previous state is returned by the update itself, so the counter is corrected by the exact difference
         Bson filter = Filters.eq("_id", id);
         Bson updates = Updates.combine(
                 Updates.set("televisionId", televisionId),
                 Updates.set("supplierId", supplierId),
                 Updates.set("entryDate", stockDate),
-                Updates.set("quantity", total)
+                Updates.set("quantity", total),
+                ChangeFeed.touch()
         );
-        stockCollection.updateOne(filter, updates);
+        return inSession((session, counted) -> {
+            Stock existingStock = database.getCollection("stock", Stock.class).findOneAndUpdate(session, filter, updates,
+                    new FindOneAndUpdateOptions().returnDocument(ReturnDocument.BEFORE));
+            if (existingStock == null) {
+                return WriteResult.notFound();
+            }
+
+            ReferenceBatch televisions = ReferenceBatch.of("stockIds", referenceMode);
+            ReferenceBatch suppliers = ReferenceBatch.of("stockIds", referenceMode);
+            referenceStock(televisions, suppliers, existingStock, stock);
+            writeTelevisions(session, televisions, counted);
+            suppliers.write(session, database.getCollection("suppliers"));
+            return WriteResult.ok(stock);
+        });
+    }
+
+    /**
+     * Sets the same fields on many stock entries, with a single update in a transaction or one per entry otherwise.
+     * The back-references and the units on hand are corrected from the states before and after the update, with
+     * one bulk write per collection.
+     *
+     * @param ids  The ids of the stock entries.
+     * @param edit The fields to set.
+     * @return The updated stock entries.
+     */
+    public List<Stock> modifyStockEntries(Collection<ObjectId> ids, BulkEdit edit) {
+        return inSession((session, counted) -> {
+            MongoCollection<Stock> stockCollection = database.getCollection("stock", Stock.class);
+            Bson update = edit.toUpdate();
+            List<Edited<Stock>> edited = edit(session, stockCollection, ids, edit, Stock::getId,
+                    filter -> stockCollection.findOneAndUpdate(session, filter, update,
+                            new FindOneAndUpdateOptions().returnDocument(ReturnDocument.BEFORE)));
+
+            ReferenceBatch televisions = ReferenceBatch.of("stockIds", referenceMode);
+            ReferenceBatch suppliers = ReferenceBatch.of("stockIds", referenceMode);
+            edited.forEach(stock -> referenceStock(televisions, suppliers, stock.before(), stock.after()));
+            writeTelevisions(session, televisions, counted);
+            suppliers.write(session, database.getCollection("suppliers"));
+            return edited.stream().map(Edited::after).toList();
+        });
+    }
+
+    /**
+     * Deletes many stock entries with a single delete, pulling them from the televisions and suppliers that
+     * reference them with one bulk write per collection.
+     *
+     * @param ids The ids of the stock entries.
+     */
+    public void deleteStockEntries(Collection<ObjectId> ids) {
+        inSession((session, counted) -> {
+            MongoCollection<Stock> stockCollection = database.getCollection("stock", Stock.class);
+            // A single batch, so the entries are read in one round trip
+            List<Stock> entries = stockCollection.find(session, Filters.in("_id", ids))
+                    .batchSize(CascadeDelete.BATCH_SIZE)
+                    .into(new ArrayList<>());
+            if (entries.isEmpty()) {
+                return null;
+            }
+            stockCollection.deleteMany(session, Filters.in("_id", entries.stream().map(Stock::getId).toList()));
+
+            ReferenceBatch televisions = ReferenceBatch.of("stockIds", referenceMode);
+            ReferenceBatch suppliers = ReferenceBatch.of("stockIds", referenceMode);
+            entries.forEach(stock -> referenceStock(televisions, suppliers, stock, null));
+            writeTelevisions(session, televisions, counted);
+            suppliers.write(session, database.getCollection("suppliers"));
+            return null;
+        });
     }
 
     public void deleteStock(ObjectId id) {
-        MongoCollection<Stock> stockCollection = database.getCollection("stock", Stock.class);
-        MongoCollection<Television> tvCollection = database.getCollection("televisions", Television.class);
-        MongoCollection<Supplier> supplierCollection = database.getCollection("suppliers", Supplier.class);
+        inSession((session, counted) -> {
+            Stock stock = database.getCollection("stock", Stock.class).findOneAndDelete(session, Filters.eq("_id", id));
+            if (stock != null) {
+                ReferenceBatch televisions = ReferenceBatch.of("stockIds", referenceMode);
+                ReferenceBatch suppliers = ReferenceBatch.of("stockIds", referenceMode);
+                referenceStock(televisions, suppliers, stock, null);
+                writeTelevisions(session, televisions, counted);
+                suppliers.write(session, database.getCollection("suppliers"));
+            }
+            return null;
+        });
+    }
 
-        Stock stock = stockCollection.find(Filters.eq("_id", id)).first();
-        if (stock != null) {
-            tvCollection.updateOne(
-                    Filters.eq("_id", stock.getTelevisionId()),
-                    Updates.pull("stockIds", id)
-            );
-            supplierCollection.updateOne(
-                    Filters.eq("_id", stock.getSupplierId()),
-                    Updates.pull("stockIds", id)
-            );
+    /**
+     * Records the changes a stock write makes on its television and supplier: the move of the back-references and
+     * the units on hand taken out by the old state and entered by the new one.
+     *
+     * @param before The stock entry before the write, or {@code null} if it has been inserted.
+     * @param after  The stock entry after the write, or {@code null} if it has been deleted.
+     */
+    private static void referenceStock(ReferenceBatch televisions, ReferenceBatch suppliers, Stock before, Stock after) {
+        ObjectId id = before != null ? before.getId() : after.getId();
+        televisions.move(before != null ? before.getTelevisionId() : null, after != null ? after.getTelevisionId() : null, id);
+        suppliers.move(before != null ? before.getSupplierId() : null, after != null ? after.getSupplierId() : null, id);
+        if (before != null) {
+            televisions.changeOnHand(before.getTelevisionId(), -Objects.requireNonNullElse(before.getQuantity(), 0));
+        }
+        if (after != null) {
+            televisions.changeOnHand(after.getTelevisionId(), Objects.requireNonNullElse(after.getQuantity(), 0));
         }
-        stockCollection.deleteOne(Filters.eq("_id", id));
     }
 
     // Cleanup method
     public void close() {
+        changeFeed.stop();
         if (mongoClient != null) {
             mongoClient.close();
         }
@@ -0,0 +1,133 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.raulrh.tiendatelevisiones.base.enums.ReferenceMode;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.*;
+
+/**
+ * Changes to the back-reference arrays ({@code saleIds}, {@code stockIds}) and the {@link StockLedger} counters
+ * of the documents referenced by many sales or stock entries at once. Changes are grouped by referenced document,
+ * so each one gets a single {@code $pullAll}, {@code $addToSet $each} and {@code $inc}, and each collection a single
+ * bulk write, instead of one update per sale or stock entry.
+ */
+class ReferenceBatch {
+    private final String field;
+    private final Map<ObjectId, List<ObjectId>> pulls = new LinkedHashMap<>();
+    private final Map<ObjectId, List<ObjectId>> adds = new LinkedHashMap<>();
+    private final Map<ObjectId, Integer> onHand = new LinkedHashMap<>();
+
+    /**
+     * Constructs a ReferenceBatch.
+     *
+     * @param field The back-reference array of the referenced documents, or {@code null} if they keep none,
+     *              so only the counters are written.
+     */
+    ReferenceBatch(String field) {
+        this.field = field;
+    }
+
+    /**
+     * Creates a batch for the back-reference array of the referenced documents, if the mode keeps them.
+     *
+     * @param field The back-reference array of the referenced documents.
+     * @param mode  The reference mode of the database.
+     * @return A batch writing the array and the counters, or only the counters.
+     */
+    static ReferenceBatch of(String field, ReferenceMode mode) {
+        return new ReferenceBatch(mode == ReferenceMode.EMBEDDED ? field : null);
+    }
+
+    void pull(ObjectId owner, ObjectId id) {
+        if (field != null && owner != null) {
+            pulls.computeIfAbsent(owner, key -> new ArrayList<>()).add(id);
+        }
+    }
+
+    void add(ObjectId owner, ObjectId id) {
+        if (field != null && owner != null) {
+            adds.computeIfAbsent(owner, key -> new ArrayList<>()).add(id);
+        }
+    }
+
+    /**
+     * Moves a reference from one document to another, if they differ.
+     */
+    void move(ObjectId from, ObjectId to, ObjectId id) {
+        if (!Objects.equals(from, to)) {
+            pull(from, id);
+            add(to, id);
+        }
+    }
+
+    void changeOnHand(ObjectId owner, int units) {
+        if (owner != null && units != 0) {
+            // Changes that cancel each other out leave nothing to write
+            onHand.merge(owner, units, (current, change) -> current + change != 0 ? current + change : null);
+        }
+    }
+
+    /**
+     * Returns the referenced documents whose counter changes.
+     *
+     * @return The ids of the documents.
+     */
+    Set<ObjectId> counted() {
+        return Set.copyOf(onHand.keySet());
+    }
+
+    /**
+     * Writes the grouped changes to the referenced collection in a single unordered bulk write, within a session.
+     *
+     * @param session    The session of the write.
+     * @param collection The collection of the referenced documents.
+     */
+    void write(ClientSession session, MongoCollection<?> collection) {
+        List<WriteModel<Document>> writes = writes();
+        if (!writes.isEmpty()) {
+            collection.withDocumentClass(Document.class).bulkWrite(session, writes, new BulkWriteOptions().ordered(false));
+        }
+    }
+
+    /**
+     * Groups the changes into the updates of the bulk write, one per referenced document, plus a separate
+     * {@code $addToSet} for the documents an id is both pulled from and added to.
+     *
+     * @return The updates.
+     */
+    List<WriteModel<Document>> writes() {
+        Set<ObjectId> owners = new LinkedHashSet<>(pulls.keySet());
+        owners.addAll(adds.keySet());
+        owners.addAll(onHand.keySet());
+
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        for (ObjectId owner : owners) {
+            List<Bson> updates = new ArrayList<>();
+            // Only the counter is shown, so changes to the arrays alone are not stamped
+            if (onHand.containsKey(owner)) {
+                updates.add(StockLedger.change(onHand.get(owner)));
+                updates.add(ChangeFeed.touch());
+            }
+            if (pulls.containsKey(owner)) {
+                updates.add(Updates.pullAll(field, pulls.get(owner)));
+            }
+            // Pulling from and adding to the same array in one update is rejected as a conflict
+            if (adds.containsKey(owner) && pulls.containsKey(owner)) {
+                writes.add(new UpdateOneModel<>(Filters.eq("_id", owner), Updates.addEachToSet(field, adds.get(owner))));
+            } else if (adds.containsKey(owner)) {
+                updates.add(Updates.addEachToSet(field, adds.get(owner)));
+            }
+            writes.add(new UpdateOneModel<>(Filters.eq("_id", owner), Updates.combine(updates)));
+        }
+        return writes;
+    }
+}
@@ -0,0 +1,114 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.*;
+import com.raulrh.tiendatelevisiones.base.enums.ReferenceMode;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The {@code ReferenceMigration} class rewrites the documents of the televisions, customers and suppliers to the
+ * {@link ReferenceMode} of the database. Moving to {@link ReferenceMode#FOREIGN_KEYS} removes the {@code saleIds}
+ * and {@code stockIds} arrays, as the sales and stock are found through their indexed foreign keys; moving to
+ * {@link ReferenceMode#EMBEDDED} rebuilds them from the sales and stock.
+ * <p>
+ * The migration only runs when asked for through {@link Model#migrateReferences}, as it rewrites documents
+ * shared by every client. It runs online: documents are rewritten in batches of {@link #BATCH_SIZE}, each a short write, so
+ * the application keeps working meanwhile. Rebuilt arrays are added to with {@code $addToSet}, so the ids added
+ * by concurrent writes are never lost.
+ */
+public class ReferenceMigration {
+    public static final int BATCH_SIZE = 1_000;
+
+    /**
+     * Back-reference array, with the collection holding it and the collection and foreign key it is built from.
+     */
+    private record Reference(String owner, String field, String source, String foreignKey) {
+    }
+
+    private static final List<Reference> REFERENCES = List.of(
+            new Reference("customers", "saleIds", "sales", "customerId"),
+            new Reference("televisions", "saleIds", "sales", "televisionId"),
+            new Reference("televisions", "stockIds", "stock", "televisionId"),
+            new Reference("suppliers", "stockIds", "stock", "supplierId")
+    );
+
+    private final Supplier<MongoDatabase> database;
+
+    /**
+     * Constructs a ReferenceMigration.
+     *
+     * @param database The database of the current connection.
+     */
+    public ReferenceMigration(Supplier<MongoDatabase> database) {
+        this.database = database;
+    }
+
+    /**
+     * Rewrites the documents to the given mode. It blocks, so it must not run on the EDT.
+     *
+     * @param mode The reference mode of the database.
+     * @return The number of documents rewritten.
+     */
+    public long migrate(ReferenceMode mode) {
+        long rewritten = 0;
+        for (Reference reference : REFERENCES) {
+            rewritten += mode == ReferenceMode.EMBEDDED ? embed(reference) : unset(reference);
+        }
+        return rewritten;
+    }
+
+    /**
+     * Removes an array from the documents holding it, by batches of ids.
+     */
+    private long unset(Reference reference) {
+        MongoCollection<Document> owners = database.get().getCollection(reference.owner());
+        Bson holding = Filters.exists(reference.field());
+
+        long rewritten = 0;
+        List<ObjectId> batch = new ArrayList<>(BATCH_SIZE);
+        for (Document document : owners.find(holding).projection(Projections.include("_id")).batchSize(BATCH_SIZE)) {
+            batch.add(document.getObjectId("_id"));
+            if (batch.size() == BATCH_SIZE) {
+                rewritten += owners.updateMany(Filters.in("_id", batch), Updates.unset(reference.field())).getModifiedCount();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            rewritten += owners.updateMany(Filters.in("_id", batch), Updates.unset(reference.field())).getModifiedCount();
+        }
+        return rewritten;
+    }
+
+    /**
+     * Rebuilds an array from the foreign keys of its source, with a bulk write per batch of documents.
+     */
+    private long embed(Reference reference) {
+        MongoDatabase db = database.get();
+        MongoCollection<Document> owners = db.getCollection(reference.owner());
+
+        long rewritten = 0;
+        List<WriteModel<Document>> batch = new ArrayList<>(BATCH_SIZE);
+        for (Document group : db.getCollection(reference.source()).aggregate(List.of(
+                Aggregates.match(Filters.ne(reference.foreignKey(), null)),
+                Aggregates.group("$" + reference.foreignKey(), Accumulators.push("ids", "$_id"))
+        )).allowDiskUse(true).batchSize(BATCH_SIZE)) {
+            batch.add(new UpdateOneModel<>(Filters.eq("_id", group.get("_id")),
+                    Updates.addEachToSet(reference.field(), group.getList("ids", ObjectId.class))));
+            if (batch.size() == BATCH_SIZE) {
+                rewritten += owners.bulkWrite(batch, new BulkWriteOptions().ordered(false)).getModifiedCount();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            rewritten += owners.bulkWrite(batch, new BulkWriteOptions().ordered(false)).getModifiedCount();
+        }
+        return rewritten;
+    }
+}
@@ -0,0 +1,120 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import org.bson.types.ObjectId;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cache of the display names of the entities referenced by foreign keys.
+ * Tables resolve the ids of a whole page at once with {@link #resolve(Collection)}, which fetches only the
+ * ids not cached yet in a single query, and then read the names with {@link #getName(ObjectId)}, which never
+ * queries the database. The cache keeps the most recently used names up to {@link #MAX_CACHED_NAMES}.
+ *
+ * @param <T> The type of the referenced entities.
+ */
+public class ReferenceResolver<T> {
+    public static final int MAX_CACHED_NAMES = 10_000;
+    public static final String MISSING_NAME = "(eliminado)";
+
+    private final Function<Collection<ObjectId>, List<T>> fetch;
+    private final Function<T, ObjectId> idOf;
+    private final Function<T, String> nameOf;
+    private final Map<ObjectId, String> names = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ObjectId, String> eldest) {
+            return size() > MAX_CACHED_NAMES;
+        }
+    });
+    private final AtomicLong queries = new AtomicLong();
+
+    /**
+     * Constructs a ReferenceResolver.
+     *
+     * @param fetch  The query returning the entities with the given ids, projected to the fields of their name.
+     * @param idOf   The id of an entity.
+     * @param nameOf The display name of an entity.
+     */
+    public ReferenceResolver(Function<Collection<ObjectId>, List<T>> fetch, Function<T, ObjectId> idOf, Function<T, String> nameOf) {
+        this.fetch = fetch;
+        this.idOf = idOf;
+        this.nameOf = nameOf;
+    }
+
+    /**
+     * Fetches the names of the ids not cached yet with a single query. It blocks, so it must not run on the EDT.
+     * Ids whose entity no longer exists are cached as {@link #MISSING_NAME} so they are not queried again.
+     *
+     * @param ids The ids to resolve.
+     */
+    public void resolve(Collection<ObjectId> ids) {
+        Set<ObjectId> missing = new HashSet<>();
+        for (ObjectId id : ids) {
+            if (id != null && !names.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        queries.incrementAndGet();
+        for (T entity : fetch.apply(missing)) {
+            ObjectId id = idOf.apply(entity);
+            names.put(id, nameOf.apply(entity));
+            missing.remove(id);
+        }
+        missing.forEach(id -> names.put(id, MISSING_NAME));
+    }
+
+    /**
+     * Returns whether the name of every id is cached, so {@link #resolve(Collection)} would not query.
+     *
+     * @param ids The ids to check.
+     * @return {@code true} if every id is cached; {@code false} otherwise.
+     */
+    public boolean isResolved(Collection<ObjectId> ids) {
+        return ids.stream().allMatch(id -> id == null || names.containsKey(id));
+    }
+
+    /**
+     * Returns the cached name of an entity.
+     *
+     * @param id The id of the entity.
+     * @return The name, or the id itself if it has not been resolved.
+     */
+    public String getName(ObjectId id) {
+        if (id == null) {
+            return null;
+        }
+
+        String name = names.get(id);
+        return name != null ? name : id.toString();
+    }
+
+    /**
+     * Caches the name of an entity that has just been written.
+     *
+     * @param entity The entity as stored.
+     */
+    public void update(T entity) {
+        names.put(idOf.apply(entity), nameOf.apply(entity));
+    }
+
+    /**
+     * Discards every cached name.
+     */
+    public void clear() {
+        names.clear();
+    }
+
+    /**
+     * Returns the number of queries issued to resolve names.
+     *
+     * @return The number of queries.
+     */
+    public long getQueryCount() {
+        return queries.get();
+    }
+}
@@ -0,0 +1,167 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import com.raulrh.tiendatelevisiones.analytics.SalesFilter;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The {@code ReportService} class computes the revenue reports on the database through aggregation pipelines,
+ * so only the grouped totals leave the server instead of every sale.
+ * Reports not limited to one customer read the {@link DailySalesRollup} instead of the raw sales, adding up one
+ * document per day and television. Each pipeline starts with a {@code $match} on the indexed fields: the foreign
+ * key when the report is limited to one television or customer, and the date otherwise, so reports keep reading
+ * only the documents in range as history grows.
+ */
+public class ReportService {
+    private final IndexManager indexManager;
+    private final Supplier<MongoDatabase> database;
+
+    /**
+     * Constructs a ReportService.
+     *
+     * @param indexManager The index manager auditing the filters of the reports.
+     * @param database     The database of the current connection.
+     */
+    public ReportService(IndexManager indexManager, Supplier<MongoDatabase> database) {
+        this.indexManager = indexManager;
+        this.database = database;
+    }
+
+    /**
+     * Returns the televisions with the highest revenue among the matching sales.
+     *
+     * @param filter The sales to include.
+     * @param limit  The maximum number of televisions returned.
+     * @return The revenue of each television, from highest to lowest.
+     */
+    public List<Revenue<ObjectId>> revenueByTelevision(SalesFilter filter, int limit) {
+        return revenueBy(source(filter), filter, "$televisionId", limit);
+    }
+
+    /**
+     * Returns the customers with the highest revenue among the matching sales.
+     *
+     * @param filter The sales to include.
+     * @param limit  The maximum number of customers returned.
+     * @return The revenue of each customer, from highest to lowest.
+     */
+    public List<Revenue<ObjectId>> revenueByCustomer(SalesFilter filter, int limit) {
+        return revenueBy(Source.SALES, filter, "$customerId", limit);
+    }
+
+    /**
+     * Returns the revenue of the matching sales by month. Sales without date are left out.
+     *
+     * @param filter The sales to include.
+     * @return The revenue of each month with sales, in chronological order.
+     */
+    public List<Revenue<YearMonth>> revenueByMonth(SalesFilter filter) {
+        Source source = source(filter);
+        Document month = new Document("year", new Document("$year", "$" + source.dateField))
+                .append("month", new Document("$month", "$" + source.dateField));
+        Bson match = Filters.and(match(source, filter), Filters.type(source.dateField, "date"));
+
+        return aggregate(source, match, month, Sorts.ascending("_id"), 0, document -> {
+            Document key = document.get("_id", Document.class);
+            return YearMonth.of(key.getInteger("year"), key.getInteger("month"));
+        });
+    }
+
+    /**
+     * Collection a report reads, with the names of its date field and of the values summed by the report.
+     */
+    private enum Source {
+        SALES("sales", "saleDate", 1, "$quantity", "$total"),
+        ROLLUP(DailySalesRollup.COLLECTION, "day", "$sales", "$units", "$revenue");
+
+        final String collection;
+        final String dateField;
+        final Object sales;
+        final Object units;
+        final Object revenue;
+
+        Source(String collection, String dateField, Object sales, Object units, Object revenue) {
+            this.collection = collection;
+            this.dateField = dateField;
+            this.sales = sales;
+            this.units = units;
+            this.revenue = revenue;
+        }
+    }
+
+    // The rollup has no customer, so only reports over every customer can read it
+    private static Source source(SalesFilter filter) {
+        return filter.customerId() == null ? Source.ROLLUP : Source.SALES;
+    }
+
+    private List<Revenue<ObjectId>> revenueBy(Source source, SalesFilter filter, String field, int limit) {
+        return aggregate(source, match(source, filter), field,
+                Sorts.orderBy(Sorts.descending("revenue"), Sorts.ascending("_id")), limit,
+                document -> document.getObjectId("_id"));
+    }
+
+    private <K> List<Revenue<K>> aggregate(Source source, Bson match, Object groupKey, Bson sort, int limit, Function<Document, K> keyOf) {
+        MongoCollection<Document> collection = database.get().getCollection(source.collection);
+
+        List<Bson> pipeline = new ArrayList<>();
+        pipeline.add(Aggregates.match(match));
+        pipeline.add(Aggregates.group(groupKey,
+                Accumulators.sum("sales", source.sales),
+                Accumulators.sum("units", source.units),
+                Accumulators.sum("revenue", source.revenue)));
+        // Rollup documents whose sales have all been deleted are left with zero totals
+        pipeline.add(Aggregates.match(Filters.gt("sales", 0)));
+        pipeline.add(Aggregates.sort(sort));
+        if (limit > 0) {
+            pipeline.add(Aggregates.limit(limit));
+        }
+
+        List<Revenue<K>> result = new ArrayList<>();
+        for (Document document : collection.aggregate(pipeline).allowDiskUse(true)) {
+            result.add(new Revenue<>(keyOf.apply(document),
+                    document.get("sales", Number.class).longValue(),
+                    document.get("units", Number.class).longValue(),
+                    document.get("revenue", Number.class).doubleValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Builds the {@code $match} stage filter. The equality on a foreign key comes first, so the planner can use
+     * its index; otherwise the date range is served by the sale date index.
+     */
+    private Bson match(Source source, SalesFilter filter) {
+        List<Bson> conditions = new ArrayList<>();
+        if (filter.televisionId() != null) {
+            conditions.add(Filters.eq("televisionId", filter.televisionId()));
+        }
+        if (filter.customerId() != null) {
+            conditions.add(Filters.eq("customerId", filter.customerId()));
+        }
+        if (filter.from() != null) {
+            conditions.add(Filters.gte(source.dateField, filter.from()));
+        }
+        if (filter.to() != null) {
+            conditions.add(Filters.lte(source.dateField, filter.to()));
+        }
+
+        // A report over the whole history has to read every document, so there is no index to audit
+        if (conditions.isEmpty()) {
+            return Filters.empty();
+        }
+        return indexManager.audit(database.get().getCollection(source.collection), Filters.and(conditions));
+    }
+}
@@ -0,0 +1,13 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+/**
+ * Row of a revenue report of {@link ReportService}: the totals of the sales sharing a group key.
+ *
+ * @param key     The group: the id of a television or customer, or a month.
+ * @param sales   The number of sales.
+ * @param units   The number of televisions sold.
+ * @param revenue The sum of the sale totals.
+ * @param <K>     The type of the group key.
+ */
+public record Revenue<K>(K key, long sales, long units, double revenue) {
+}
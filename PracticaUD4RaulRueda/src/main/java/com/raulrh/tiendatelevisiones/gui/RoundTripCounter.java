@@ -0,0 +1,68 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Command listener registered by {@link Model} on its client, which counts the commands sent to the server.
+ * Totals are kept by command name, and {@link #count(Runnable)} counts the round trips of a single operation:
+ * the synchronous driver notifies the listener on the thread running the command, so the commands sent meanwhile
+ * by the change feed or by background tasks are not counted. All methods are thread-safe.
+ */
+public class RoundTripCounter implements CommandListener {
+    private final Map<String, LongAdder> totals = new ConcurrentHashMap<>();
+    private final ThreadLocal<int[]> current = new ThreadLocal<>();
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        totals.computeIfAbsent(event.getCommandName(), name -> new LongAdder()).increment();
+
+        int[] counter = current.get();
+        if (counter != null) {
+            counter[0]++;
+        }
+    }
+
+    /**
+     * Runs an operation on the current thread and counts the commands it sends to the server.
+     *
+     * @param operation The operation to run.
+     * @return The number of round trips made by the operation.
+     */
+    public int count(Runnable operation) {
+        int[] outer = current.get();
+        int[] counter = new int[1];
+        current.set(counter);
+        try {
+            operation.run();
+        } finally {
+            current.set(outer);
+        }
+
+        // A nested count is also part of the enclosing one
+        if (outer != null) {
+            outer[0] += counter[0];
+        }
+        return counter[0];
+    }
+
+    /**
+     * Returns the number of commands sent since the client was created, by command name.
+     *
+     * @return The totals, sorted by command name.
+     */
+    public Map<String, Long> getTotals() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        totals.forEach((name, total) -> snapshot.put(name, total.sum()));
+        return snapshot;
+    }
+
+    public void reset() {
+        totals.clear();
+    }
+}
@@ -0,0 +1,198 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.*;
+import com.raulrh.tiendatelevisiones.base.enums.SalesStorage;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The {@code SalesStorageMigration} class moves the sales between a standard collection and a time-series
+ * collection, with {@link #TIME_FIELD} as time field and {@link #META_FIELD} as meta field. The documents keep the
+ * same fields in both, so the codecs and the queries are shared; the server groups the sales of each television
+ * into buckets of contiguous dates, which take less space and are cheaper to scan by date range.
+ * <p>
+ * A time-series collection cannot be renamed and does not support transactions, and updating or deleting any of
+ * its documents requires MongoDB 7.0. The migration copies the sales into a new collection in batches of
+ * {@link #BATCH_SIZE} and swaps it for the old one only once it holds every sale, so it must run with the
+ * application closed: sales written meanwhile would be lost. A migration interrupted before the swap leaves the
+ * sales set aside in another collection, which the next one restores or, if it cannot tell which copy is complete,
+ * refuses to touch.
+ */
+public class SalesStorageMigration {
+    public static final String COLLECTION = "sales";
+    public static final String TIME_FIELD = "saleDate";
+    // The televisions are far fewer than the customers, so their sales fill larger buckets
+    public static final String META_FIELD = "televisionId";
+    public static final int BATCH_SIZE = 10_000;
+
+    private static final String LEGACY_COLLECTION = COLLECTION + "_legacy";
+    private static final String MIGRATION_COLLECTION = COLLECTION + "_migration";
+
+    private static final System.Logger LOGGER = System.getLogger(SalesStorageMigration.class.getName());
+
+    private final Supplier<MongoDatabase> database;
+
+    /**
+     * Constructs a SalesStorageMigration.
+     *
+     * @param database The database of the current connection.
+     */
+    public SalesStorageMigration(Supplier<MongoDatabase> database) {
+        this.database = database;
+    }
+
+    /**
+     * Returns how a collection is stored.
+     *
+     * @param database The database holding the collection.
+     * @param name     The name of the collection.
+     * @return {@link SalesStorage#TIME_SERIES} for a time-series collection; {@link SalesStorage#STANDARD} otherwise,
+     * including when the collection does not exist yet.
+     */
+    public static SalesStorage detect(MongoDatabase database, String name) {
+        Document collection = database.listCollections().filter(Filters.eq("name", name)).first();
+        return collection != null && "timeseries".equals(collection.getString("type"))
+                ? SalesStorage.TIME_SERIES
+                : SalesStorage.STANDARD;
+    }
+
+    /**
+     * Creates a time-series collection for sales. Sales are dated by day, so it uses the coarsest
+     * granularity, whose buckets span up to 30 days.
+     *
+     * @param database The database to create the collection in.
+     * @param name     The name of the collection.
+     */
+    public static void createTimeSeries(MongoDatabase database, String name) {
+        database.createCollection(name, new CreateCollectionOptions().timeSeriesOptions(
+                new TimeSeriesOptions(TIME_FIELD).metaField(META_FIELD).granularity(TimeSeriesGranularity.HOURS)));
+    }
+
+    /**
+     * Returns how the sales are stored in the database of the current connection.
+     *
+     * @return The storage of the sales collection.
+     */
+    public SalesStorage detect() {
+        return detect(database.get(), COLLECTION);
+    }
+
+    /**
+     * Moves the sales to the given storage. The indexes of the sales are not copied; they are created again by the
+     * {@link IndexManager}. The copy is counted against the sales before it replaces them, and any failure restores
+     * the sales as they were. It blocks, so it must not run on the EDT.
+     *
+     * @param storage The storage to move the sales to.
+     * @return The number of sales copied, or 0 if they were already in the given storage.
+     * @throws IllegalStateException If moving to a time-series collection and some sale has no date, if the copy
+     *                               misses some sale, or if an interrupted migration left the sales in two collections.
+     */
+    public long migrate(SalesStorage storage) {
+        resumeInterrupted();
+        if (detect() == storage) {
+            return 0;
+        }
+        return storage == SalesStorage.TIME_SERIES ? toTimeSeries() : toStandard();
+    }
+
+    /**
+     * Finishes the swap of a migration interrupted after the sales were moved aside. If both the sales and the
+     * collection left aside exist, it cannot tell which one is complete, so it refuses to go on.
+     */
+    private void resumeInterrupted() {
+        MongoDatabase db = database.get();
+        for (String leftover : List.of(LEGACY_COLLECTION, MIGRATION_COLLECTION)) {
+            if (!exists(db, leftover)) {
+                continue;
+            }
+            if (exists(db, COLLECTION)) {
+                throw new IllegalStateException("An interrupted migration left sales in both " + COLLECTION + " and "
+                        + leftover + "; check which one holds all of them and drop the other");
+            }
+            // The only copy of the sales left is the one set aside, so it takes the name back
+            LOGGER.log(System.Logger.Level.INFO, "Restoring the sales left in {0} by an interrupted migration", leftover);
+            db.getCollection(leftover).renameCollection(new MongoNamespace(db.getName(), COLLECTION));
+        }
+    }
+
+    private long toTimeSeries() {
+        MongoDatabase db = database.get();
+        MongoCollection<Document> sales = db.getCollection(COLLECTION);
+        long undated = sales.countDocuments(Filters.or(Filters.exists(TIME_FIELD, false), Filters.type(TIME_FIELD, "null")));
+        if (undated > 0) {
+            throw new IllegalStateException(undated + " sales have no " + TIME_FIELD + " and cannot be stored as a time series");
+        }
+
+        // The time-series collection takes the name, so the standard one is moved aside first
+        sales.renameCollection(new MongoNamespace(db.getName(), LEGACY_COLLECTION));
+        MongoCollection<RawBsonDocument> legacy = db.getCollection(LEGACY_COLLECTION, RawBsonDocument.class);
+        try {
+            createTimeSeries(db, COLLECTION);
+            // Inserting the sales of each television in date order fills each bucket before opening the next one
+            long copied = copy(legacy, db.getCollection(COLLECTION, RawBsonDocument.class), Sorts.ascending(META_FIELD, TIME_FIELD));
+            legacy.drop();
+            return copied;
+        } catch (RuntimeException e) {
+            db.getCollection(COLLECTION).drop();
+            legacy.renameCollection(new MongoNamespace(db.getName(), COLLECTION));
+            throw e;
+        }
+    }
+
+    private long toStandard() {
+        MongoDatabase db = database.get();
+        MongoCollection<RawBsonDocument> target = db.getCollection(MIGRATION_COLLECTION, RawBsonDocument.class);
+        long copied;
+        try {
+            copied = copy(db.getCollection(COLLECTION, RawBsonDocument.class), target, Sorts.ascending("_id"));
+        } catch (RuntimeException e) {
+            target.drop();
+            throw e;
+        }
+
+        // The time-series collection cannot be renamed, so the copy takes its name once it is dropped
+        db.getCollection(COLLECTION).drop();
+        target.renameCollection(new MongoNamespace(db.getName(), COLLECTION));
+        return copied;
+    }
+
+    private static boolean exists(MongoDatabase database, String name) {
+        return database.listCollections().filter(Filters.eq("name", name)).first() != null;
+    }
+
+    /**
+     * Copies every document of a collection into another, and checks that the target ends up holding as many
+     * documents as the source before anything is dropped.
+     */
+    private static long copy(MongoCollection<RawBsonDocument> source, MongoCollection<RawBsonDocument> target, Bson sort) {
+        long copied = 0;
+        List<RawBsonDocument> batch = new ArrayList<>(BATCH_SIZE);
+        for (RawBsonDocument document : source.find().sort(sort).allowDiskUse(true).batchSize(BATCH_SIZE)) {
+            batch.add(document);
+            if (batch.size() == BATCH_SIZE) {
+                target.insertMany(batch, new InsertManyOptions().ordered(false));
+                copied += batch.size();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            target.insertMany(batch, new InsertManyOptions().ordered(false));
+            copied += batch.size();
+        }
+
+        long expected = source.countDocuments();
+        long written = target.countDocuments();
+        if (copied != expected || written != expected) {
+            throw new IllegalStateException("Copied " + written + " of " + expected + " sales; the migration has been undone");
+        }
+        return copied;
+    }
+}
@@ -0,0 +1,71 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+/**
+ * Sort key and direction of a query on {@link Model}.
+ *
+ * @param field     The field to sort by.
+ * @param ascending Whether the documents are sorted in ascending order.
+ * @param text      Whether the field holds text, so it is sorted with {@link IndexManager#SEARCH_COLLATION}.
+ */
+public record SortOrder(String field, boolean ascending, boolean text) {
+    public static final SortOrder BY_ID = ascending("_id");
+
+    public static SortOrder ascending(String field) {
+        return new SortOrder(field, true, false);
+    }
+
+    public static SortOrder ascendingText(String field) {
+        return new SortOrder(field, true, true);
+    }
+
+    public SortOrder reversed() {
+        return new SortOrder(field, !ascending, text);
+    }
+
+    /**
+     * Returns the sort specification of the query.
+     *
+     * @param tieBreak Whether to add {@code _id} as a second key, so documents with equal values keep a stable
+     *                 order across pages.
+     * @return The sort specification.
+     */
+    public Bson toBson(boolean tieBreak) {
+        if (!tieBreak || field.equals("_id")) {
+            return direction(field);
+        }
+        return Sorts.orderBy(direction(field), direction("_id"));
+    }
+
+    /**
+     * Returns the filter of the documents sorted after a given one, with {@code _id} as second key, so a page can
+     * start from the last row of the previous one instead of skipping every row before it.
+     *
+     * @param value The value of the sort field in the document, or {@code null} if it has none.
+     * @param id    The id of the document.
+     * @return The range filter.
+     */
+    public Bson after(Object value, ObjectId id) {
+        Bson nextId = ascending ? Filters.gt("_id", id) : Filters.lt("_id", id);
+        if (field.equals("_id")) {
+            return nextId;
+        }
+
+        // Missing values sort first and are never matched by a range, so they are handled apart
+        Bson tie = Filters.and(Filters.eq(field, value), nextId);
+        if (value == null) {
+            return ascending ? Filters.or(tie, Filters.ne(field, null)) : tie;
+        }
+        return ascending
+                ? Filters.or(Filters.gt(field, value), tie)
+                : Filters.or(Filters.lt(field, value), tie, Filters.eq(field, null));
+    }
+
+    private Bson direction(String key) {
+        return ascending ? Sorts.ascending(key) : Sorts.descending(key);
+    }
+}
@@ -0,0 +1,192 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.*;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * The {@code StockLedger} class keeps the units on hand of each television in its {@code onHand} field: the units
+ * entered by the stock entries minus the units sold. {@link Model} folds the change of every stock and sale write
+ * into the update it already makes on the television, as an atomic {@code $inc}, so the counter is read with the
+ * television instead of adding up both collections.
+ * <p>
+ * Televisions are inserted with an empty counter. The counters of a database written before the ledger existed are
+ * computed once by {@link #bootstrapOnce()}; counters drifted by writes made outside the application are fixed by
+ * {@link #reconcile()}.
+ */
+public class StockLedger {
+    public static final String FIELD = "onHand";
+
+    private static final String BOOTSTRAP_KEY = "stockLedgerBootstrapped";
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final System.Logger LOGGER = System.getLogger(StockLedger.class.getName());
+
+    private final Supplier<MongoDatabase> database;
+    private final DatabaseMetadata metadata;
+    private final CascadeDelete cascade;
+
+    /**
+     * Constructs a StockLedger.
+     *
+     * @param database The database of the current connection.
+     * @param metadata The metadata of the database, recording whether the counters have been bootstrapped.
+     * @param cascade  The runner of the writes, recomputing the counters in a transaction when there is one.
+     */
+    public StockLedger(Supplier<MongoDatabase> database, DatabaseMetadata metadata, CascadeDelete cascade) {
+        this.database = database;
+        this.metadata = metadata;
+        this.cascade = cascade;
+    }
+
+    /**
+     * Returns the update adding units to the counter of a television, to combine with other updates on it.
+     *
+     * @param units The units entered, or negative for the units taken out.
+     * @return The {@code $inc} update.
+     */
+    public static Bson change(int units) {
+        return Updates.inc(FIELD, units);
+    }
+
+    /**
+     * Computes the counters of the televisions that have none on a background thread, once per database: the
+     * bootstrap is recorded in the metadata of the database, so later connections skip it. Only missing counters
+     * are set, so it never overwrites a counter the writes already keep.
+     */
+    public void bootstrapOnce() {
+        Thread.ofVirtual().name("ledger-bootstrap").start(() -> {
+            try {
+                if (metadata.get(BOOTSTRAP_KEY) != null) {
+                    return;
+                }
+                MongoCollection<Document> televisions = database.get().getCollection("televisions");
+                if (televisions.countDocuments(Filters.exists(FIELD, false), new CountOptions().limit(1)) > 0) {
+                    reconcile(Filters.exists(FIELD, false));
+                }
+                metadata.set(BOOTSTRAP_KEY, Instant.now().toString());
+            } catch (Exception e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Could not bootstrap the stock ledger", e);
+            }
+        });
+    }
+
+    /**
+     * Recomputes every counter from the stock entries and the sales, and corrects the ones that differ in a single
+     * bulk write. It blocks, so it must not run on the EDT.
+     *
+     * @return The number of counters corrected.
+     */
+    public int reconcile() {
+        return reconcile(Filters.empty());
+    }
+
+    /**
+     * Recomputes the counters of the televisions matching a filter, in a transaction when the server supports one.
+     * Otherwise a sale or stock entry may be written while they are recomputed, so each counter is corrected by the
+     * difference with the value read, with a filter on that value: a counter changed in between is left as it is,
+     * and recomputed again up to {@link #MAX_ATTEMPTS} times.
+     */
+    private int reconcile(Bson filter) {
+        int corrected = 0;
+        Bson pass = filter;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            Bson televisions = pass;
+            Pass result = cascade.run(session -> reconcile(session, televisions));
+            corrected += result.corrected();
+            if (result.skipped().isEmpty()) {
+                return corrected;
+            }
+            pass = Filters.in("_id", result.skipped());
+        }
+        LOGGER.log(System.Logger.Level.WARNING, "Some stock counters kept changing while they were reconciled");
+        return corrected;
+    }
+
+    private Pass reconcile(ClientSession session, Bson filter) {
+        MongoDatabase db = database.get();
+        // The counters are read before their sources, so any write made in between changes the counter and misses
+        // the filter of its correction
+        Map<ObjectId, Long> counters = new HashMap<>();
+        db.getCollection("televisions").find(session, filter).projection(Projections.include(FIELD))
+                .forEach(document -> {
+                    Number counter = document.get(FIELD, Number.class);
+                    counters.put(document.getObjectId("_id"), counter != null ? counter.longValue() : null);
+                });
+        if (counters.isEmpty()) {
+            return new Pass(0, List.of());
+        }
+
+        Map<ObjectId, Long> entered;
+        Map<ObjectId, Long> sold;
+        if (session.hasActiveTransaction()) {
+            // A session runs one command at a time
+            entered = unitsByTelevision(session, db.getCollection("stock"));
+            sold = unitsByTelevision(session, db.getCollection("sales"));
+        } else {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                Future<Map<ObjectId, Long>> enteredTask = executor.submit(() -> unitsByTelevision(null, db.getCollection("stock")));
+                Future<Map<ObjectId, Long>> soldTask = executor.submit(() -> unitsByTelevision(null, db.getCollection("sales")));
+                entered = enteredTask.get();
+                sold = soldTask.get();
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not read the stock ledger sources", e);
+            }
+        }
+
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        List<ObjectId> written = new ArrayList<>();
+        counters.forEach((id, counter) -> {
+            long onHand = entered.getOrDefault(id, 0L) - sold.getOrDefault(id, 0L);
+            if (counter != null && counter == onHand) {
+                return;
+            }
+            long current = counter != null ? counter : 0L;
+            writes.add(new UpdateOneModel<>(
+                    Filters.and(Filters.eq("_id", id), counter != null ? Filters.eq(FIELD, counter) : Filters.exists(FIELD, false)),
+                    Updates.combine(Updates.inc(FIELD, onHand - current), ChangeFeed.touch())));
+            written.add(id);
+        });
+
+        if (writes.isEmpty()) {
+            return new Pass(0, List.of());
+        }
+        BulkWriteResult result = db.getCollection("televisions").bulkWrite(session, writes, new BulkWriteOptions().ordered(false));
+        // The write does not tell which filters missed, so every counter written is checked again
+        return new Pass(result.getModifiedCount(), result.getMatchedCount() < writes.size() ? written : List.of());
+    }
+
+    /**
+     * The outcome of one pass of {@link #reconcile(Bson)}: the counters corrected and, if some correction missed
+     * its filter, the televisions to recompute again.
+     */
+    private record Pass(int corrected, List<ObjectId> skipped) {
+    }
+
+    /**
+     * Adds up the units of the sales or stock entries of each television, on the given session, if any.
+     */
+    private static Map<ObjectId, Long> unitsByTelevision(ClientSession session, MongoCollection<?> source) {
+        Map<ObjectId, Long> units = new HashMap<>();
+        List<Bson> pipeline = List.of(Aggregates.group("$televisionId", Accumulators.sum("units", "$quantity")));
+        for (Document group : (session != null ? source.aggregate(session, pipeline, Document.class) : source.aggregate(pipeline, Document.class))) {
+            ObjectId id = group.getObjectId("_id");
+            if (id != null) {
+                units.put(id, group.get("units", Number.class).longValue());
+            }
+        }
+        return units;
+    }
+}
@@ -2,9 +2,7 @@ package com.raulrh.tiendatelevisiones.gui;
 
 import com.github.lgooddatepicker.components.DatePicker;
 import com.raulrh.tiendatelevisiones.base.LimitedDocument;
-import com.raulrh.tiendatelevisiones.entities.Customer;
-import com.raulrh.tiendatelevisiones.entities.Supplier;
-import com.raulrh.tiendatelevisiones.entities.Television;
+import com.raulrh.tiendatelevisiones.entities.Summary;
 import com.raulrh.tiendatelevisiones.gui.controllers.MainController;
 import com.raulrh.tiendatelevisiones.util.Preferences;
 
@@ -51,8 +49,8 @@ public class View extends JFrame {
     public JButton salesAdd;
     public JButton salesModify;
     public JButton salesDelete;
-    public JComboBox<Customer> customersComboBox;
-    public JComboBox<Television> televisionsComboBox;
+    public JComboBox<Summary> customersComboBox;
+    public JComboBox<Summary> televisionsComboBox;
     public DatePicker saleDate;
     public JSpinner saleTotal;
     public JSpinner saleTotalPrice;
@@ -74,12 +72,26 @@ public class View extends JFrame {
     public JButton stockDelete;
     public JSpinner stockTotal;
     public DatePicker stockDate;
-    public JComboBox<Television> televisionsComboBox1;
-    public JComboBox<Supplier> suppliersComboBox;
+    public JComboBox<Summary> televisionsComboBox1;
+    public JComboBox<Summary> suppliersComboBox;
+
+    // Report-related components
+    public JTable reportsTable;
+    public JComboBox<String> reportsType;
+    public DatePicker reportsFrom;
+    public DatePicker reportsTo;
+    public JSpinner reportsLimit;
+    public JButton reportsGenerate;
 
     // Menu actions
     public JMenuItem itemPreferences;
     public JMenuItem itemDisconnect;
+    public JMenuItem itemCancel;
+    public JMenuItem itemIndexes;
+    public JMenuItem itemCacheStats;
+    public JMenuItem itemRebuildRollup;
+    public JMenuItem itemReconcileStock;
+    public JMenuItem itemReferenceMode;
 
     // Admin dialog components
     public JPanel televisionsPanel;
@@ -87,6 +99,7 @@ public class View extends JFrame {
     public JPanel salesPanel;
     public JPanel suppliersPanel;
     public JPanel stockPanel;
+    public JPanel reportsPanel;
 
     // Panels
     private JPanel mainPanel;
@@ -145,15 +158,32 @@ public class View extends JFrame {
         JMenu menu = new JMenu("Archivo");
         itemPreferences = new JMenuItem("Preferencias");
         itemDisconnect = new JMenuItem("Conectar");
+        itemCancel = new JMenuItem("Cancelar operaciones");
+        itemCancel.setEnabled(false);
+        itemIndexes = new JMenuItem("Estado de índices");
+        itemCacheStats = new JMenuItem("Estadísticas de caché");
+        itemRebuildRollup = new JMenuItem("Reconstruir resumen diario");
+        itemRebuildRollup.setEnabled(false);
+        itemReconcileStock = new JMenuItem("Conciliar existencias");
+        itemReconcileStock.setEnabled(false);
+        itemReferenceMode = new JMenuItem("Modo de referencias");
+        itemReferenceMode.setEnabled(false);
 
         MainController.setPanelEnabled(televisionsPanel, false);
         MainController.setPanelEnabled(customersPanel, false);
         MainController.setPanelEnabled(salesPanel, false);
         MainController.setPanelEnabled(suppliersPanel, false);
         MainController.setPanelEnabled(stockPanel, false);
+        MainController.setPanelEnabled(reportsPanel, false);
 
         menu.add(itemPreferences);
         menu.add(itemDisconnect);
+        menu.add(itemCancel);
+        menu.add(itemIndexes);
+        menu.add(itemCacheStats);
+        menu.add(itemRebuildRollup);
+        menu.add(itemReconcileStock);
+        menu.add(itemReferenceMode);
 
         menuBar.add(menu);
         menuBar.add(Box.createHorizontalGlue());
@@ -182,5 +212,7 @@ public class View extends JFrame {
         supplierMail.setDocument(new LimitedDocument(100));
 
         stockTotal.setModel(new SpinnerNumberModel(0, 0, 100000, 1));
+
+        reportsLimit.setModel(new SpinnerNumberModel(10, 1, 1000, 1));
     }
 }
\ No newline at end of file
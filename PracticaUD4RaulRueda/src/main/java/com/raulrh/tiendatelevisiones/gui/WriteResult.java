@@ -0,0 +1,36 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+/**
+ * Result of a write operation on {@link Model}.
+ * It carries the written entity when the operation succeeds, or the reason why it was rejected.
+ *
+ * @param status The outcome of the operation.
+ * @param entity The entity as stored after the operation, or {@code null} if it did not succeed.
+ * @param <T>    The type of the written entity.
+ */
+public record WriteResult<T>(Status status, T entity) {
+    /**
+     * Outcome of a write operation.
+     */
+    public enum Status {
+        OK,          // The entity has been written
+        DUPLICATE,   // A unique index rejected the entity
+        NOT_FOUND    // The entity to modify does not exist
+    }
+
+    public static <T> WriteResult<T> ok(T entity) {
+        return new WriteResult<>(Status.OK, entity);
+    }
+
+    public static <T> WriteResult<T> duplicate() {
+        return new WriteResult<>(Status.DUPLICATE, null);
+    }
+
+    public static <T> WriteResult<T> notFound() {
+        return new WriteResult<>(Status.NOT_FOUND, null);
+    }
+
+    public boolean isOk() {
+        return status == Status.OK;
+    }
+}
@@ -2,18 +2,25 @@ package com.raulrh.tiendatelevisiones.gui.controllers;
 
 import com.raulrh.tiendatelevisiones.base.Controller;
 import com.raulrh.tiendatelevisiones.entities.Customer;
+import com.raulrh.tiendatelevisiones.entities.Summary;
 import com.raulrh.tiendatelevisiones.entities.Supplier;
+import com.raulrh.tiendatelevisiones.gui.AsyncModel;
+import com.raulrh.tiendatelevisiones.gui.BulkEdit;
+import com.raulrh.tiendatelevisiones.gui.ChangeEvent;
+import com.raulrh.tiendatelevisiones.gui.SortOrder;
+import com.raulrh.tiendatelevisiones.gui.WriteResult;
 import com.raulrh.tiendatelevisiones.gui.dialogs.SaleDialog;
 import com.raulrh.tiendatelevisiones.gui.models.CustomerTableModel;
 import com.raulrh.tiendatelevisiones.gui.models.SupplierTableModel;
+import com.raulrh.tiendatelevisiones.gui.models.SummaryListModel;
 import com.raulrh.tiendatelevisiones.util.Preferences;
 import com.raulrh.tiendatelevisiones.util.Util;
 import org.bson.types.ObjectId;
 
 import javax.swing.*;
-import javax.swing.event.DocumentEvent;
-import javax.swing.event.DocumentListener;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controller class for managing customer-related actions such as adding, modifying, deleting,
@@ -22,6 +29,9 @@ import java.util.List;
  */
 public class CustomerController extends Controller {
     private CustomerTableModel customerTableModel;
+    private SearchPipeline<List<Customer>> searchPipeline;
+    private HeaderSorter headerSorter;
+    private SummaryListModel customerSummaries;
 
     /**
      * Constructs a CustomerController with the given MainController.
@@ -45,25 +55,31 @@ public class CustomerController extends Controller {
                 return;
             }
 
+            String name = mainController.view.customerName.getText();
+            String surname = mainController.view.customerSurname.getText();
             String mail = mainController.view.customerMail.getText();
-            if (mainController.model.checkCustomerExists(mail, new ObjectId())) {
-                Util.showWarningDialog("El cliente ya existe.");
-                return;
-            }
+            String phone = mainController.view.customerPhone.getText();
+            LocalDate date = mainController.view.customerDate.getDate();
+            short type = (short) mainController.view.customerType.getSelectedIndex();
 
-            mainController.model.addCustomer(
-                    mainController.view.customerName.getText(),
-                    mainController.view.customerSurname.getText(),
-                    mail,
-                    mainController.view.customerPhone.getText(),
-                    mainController.view.customerDate.getDate(),
-                    (short) mainController.view.customerType.getSelectedIndex());
+            AsyncModel.onEdt(mainController.asyncModel.addCustomer(name, surname, mail, phone, date, type), result -> {
+                if (result.status() == WriteResult.Status.DUPLICATE) {
+                    Util.showWarningDialog("El cliente ya existe.");
+                    return;
+                }
 
-            refreshTable();
-            clearFields();
+                applyInsert(result.entity());
+                clearFields();
+            });
         });
 
         mainController.view.customersModify.addActionListener(e -> {
+            List<ObjectId> ids = Util.getSelectedIds(mainController.view.customersTable);
+            if (ids.size() > 1) {
+                modifySelected(ids);
+                return;
+            }
+
             if (!validateFields()) {
                 Util.showWarningDialog("Por favor, revisa los campos.");
                 return;
@@ -76,80 +92,69 @@ public class CustomerController extends Controller {
             }
 
             ObjectId id = (ObjectId) mainController.view.customersTable.getValueAt(row, 0);
+            String name = mainController.view.customerName.getText();
+            String surname = mainController.view.customerSurname.getText();
             String mail = mainController.view.customerMail.getText();
-            if (mainController.model.checkCustomerExists(mail, id)) {
-                Util.showWarningDialog("El cliente ya existe.");
-                return;
-            }
+            String phone = mainController.view.customerPhone.getText();
+            LocalDate date = mainController.view.customerDate.getDate();
+            int type = mainController.view.customerType.getSelectedIndex();
 
-            mainController.model.modifyCustomer(
-                    id,
-                    mainController.view.customerName.getText(),
-                    mainController.view.customerSurname.getText(),
-                    mail,
-                    mainController.view.customerPhone.getText(),
-                    mainController.view.customerDate.getDate(),
-                    mainController.view.customerType.getSelectedIndex());
+            AsyncModel.onEdt(mainController.asyncModel.modifyCustomer(id, name, surname, mail, phone, date, type), result -> {
+                if (result.status() == WriteResult.Status.DUPLICATE) {
+                    Util.showWarningDialog("El cliente ya existe.");
+                    return;
+                }
 
-            refreshTable();
-            clearFields();
+                if (result.isOk()) {
+                    applyUpdate(result.entity());
+                }
+                clearFields();
+            });
         });
 
         mainController.view.customersDelete.addActionListener(e -> {
-            int row = mainController.view.customersTable.getSelectedRow();
-            if (row == -1) {
+            List<ObjectId> ids = Util.getSelectedIds(mainController.view.customersTable);
+            if (ids.isEmpty()) {
                 Util.showWarningDialog("Selecciona un cliente.");
                 return;
             }
 
             Preferences preferences = Preferences.getInstance();
             if (preferences.isConfirmDelete()) {
-                int confirm = Util.showConfirm("¿Estás seguro de que quieres eliminar el cliente?", "Eliminar cliente");
+                String message = ids.size() == 1
+                        ? "¿Estás seguro de que quieres eliminar el cliente?"
+                        : "¿Estás seguro de que quieres eliminar los " + ids.size() + " clientes?";
+                int confirm = Util.showConfirm(message, "Eliminar cliente");
                 if (confirm != JOptionPane.OK_OPTION) {
                     return;
                 }
             }
 
-            ObjectId id = (ObjectId) mainController.view.customersTable.getValueAt(row, 0);
-            mainController.model.deleteCustomer(id);
-
-            refreshTable();
-            clearFields();
-            mainController.salesController.refreshTable();
-        });
-
-        mainController.view.searchClient.getDocument().addDocumentListener(new DocumentListener() {
-            @Override
-            public void insertUpdate(DocumentEvent e) {
-                filterTelevisions();
-            }
-
-            @Override
-            public void removeUpdate(DocumentEvent e) {
-                filterTelevisions();
-            }
-
-            @Override
-            public void changedUpdate(DocumentEvent e) {
-                filterTelevisions();
+            if (ids.size() > 1) {
+                // The rows are reloaded once, instead of applying the deletes one by one
+                AsyncModel.onEdt(mainController.asyncModel.deleteCustomers(ids), result -> {
+                    refreshTable();
+                    clearFields();
+                });
+                return;
             }
 
-            private void filterTelevisions() {
-                String searchText = mainController.view.searchClient.getText().trim().toLowerCase();
-                List<Customer> allCustomers = mainController.model.getCustomers();
-                List<Customer> filteredCustomers;
-
-                if (searchText.isEmpty()) {
-                    filteredCustomers = allCustomers;
-                } else {
-                    filteredCustomers = allCustomers.stream()
-                            .filter(customer -> customer.getEmail().toLowerCase().contains(searchText)).toList();
-                }
-
-                customerTableModel = new CustomerTableModel(filteredCustomers);
-                mainController.view.customersTable.setModel(customerTableModel);
-            }
+            ObjectId id = ids.get(0);
+            AsyncModel.onEdt(mainController.asyncModel.deleteCustomer(id), result -> {
+                // The sales deleted in cascade reach their table through the change feed
+                applyDelete(id);
+                clearFields();
+            });
         });
+
+        searchPipeline = new SearchPipeline<>(mainController.view.searchClient,
+                searchText -> searchText.isEmpty()
+                        ? mainController.asyncModel.getCustomers(headerSorter.getSortOrder())
+                        : mainController.asyncModel.searchCustomers(searchText, headerSorter.getSortOrder()),
+                filteredCustomers -> {
+                    customerTableModel = new CustomerTableModel(filteredCustomers);
+                    mainController.view.customersTable.setModel(customerTableModel);
+                });
     }
 
     /**
@@ -158,13 +163,16 @@ public class CustomerController extends Controller {
      */
     @Override
     public void setupTable() {
+        customerTableModel = new CustomerTableModel(List.of());
+        mainController.view.customersTable.setModel(customerTableModel);
         mainController.view.customersTable.setCellSelectionEnabled(true);
         mainController.view.customersTable.setDefaultEditor(Object.class, null);
         ListSelectionModel cellSelectionModel = mainController.view.customersTable.getSelectionModel();
-        cellSelectionModel.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        cellSelectionModel.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
 
         cellSelectionModel.addListSelectionListener(e -> {
-            if (!cellSelectionModel.isSelectionEmpty()) {
+            // Several selected rows are edited in bulk, so only a single one fills the form
+            if (mainController.view.customersTable.getSelectedRowCount() == 1) {
                 int row = mainController.view.customersTable.getSelectedRow();
                 fillFields(row);
             } else {
@@ -172,6 +180,17 @@ public class CustomerController extends Controller {
             }
         });
 
+        // Only the columns backed by an index can be sorted
+        headerSorter = new HeaderSorter(mainController.view.customersTable, Map.of(
+                0, SortOrder.BY_ID,
+                3, SortOrder.ascendingText("email")
+        ), order -> searchPipeline.refresh());
+
+        customerSummaries = new SummaryListModel(mainController.asyncModel.getCustomerNames()::getName);
+        new TypeAhead(mainController.view.customersComboBox, customerSummaries, mainController.asyncModel::getCustomerSummaries);
+
+        mainController.asyncModel.addChangeListener(Customer.class, this::applyChange);
+
         mainController.view.customersTable.addMouseListener(new java.awt.event.MouseAdapter() {
             @Override
             public void mouseClicked(java.awt.event.MouseEvent evt) {
@@ -184,7 +203,7 @@ public class CustomerController extends Controller {
                     int row = table.getSelectedRow();
                     if (row != -1) {
                         Customer customer = customerTableModel.getCustomer(row);
-                        SaleDialog saleDialog = new SaleDialog(mainController.view, customer, mainController.model);
+                        SaleDialog saleDialog = new SaleDialog(mainController.view, customer, mainController.asyncModel);
                         saleDialog.setVisible(true);
                     }
                 }
@@ -193,29 +212,87 @@ public class CustomerController extends Controller {
     }
 
     /**
-     * Refreshes the customer table and updates the combo box with customer data.
-     * Catches and handles any SQL exceptions that may occur.
+     * Refreshes the customer table with the current search text and sort order, and updates the combo boxes.
+     * The data is retrieved in the background and the associated components are updated on the EDT.
      */
     @Override
     public void refreshTable() {
-        try {
-            customerTableModel = new CustomerTableModel(mainController.model.getCustomers());
-            mainController.view.customersTable.setModel(customerTableModel);
-            refreshComboBox();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        searchPipeline.refresh();
+        refreshComboBox();
+    }
+
+    /**
+     * Applies a change made to the customers by this or any other client.
+     *
+     * @param event The change to apply.
+     */
+    private void applyChange(ChangeEvent<Customer> event) {
+        switch (event.type()) {
+            case INSERT -> applyInsert(event.entity());
+            case UPDATE -> applyUpdate(event.entity());
+            case DELETE -> applyDelete(event.id());
+            case RESYNC -> refreshTable();
         }
     }
 
+    private void applyInsert(Customer customer) {
+        customerTableModel.addRow(customer);
+        customerSummaries.put(Summary.of(customer));
+    }
+
+    private void applyUpdate(Customer customer) {
+        customerTableModel.updateRow(customer);
+        customerSummaries.put(Summary.of(customer));
+        // The sales table shows the name of the customer
+        mainController.view.salesTable.repaint();
+    }
+
+    private void applyDelete(ObjectId id) {
+        customerTableModel.removeRow(id);
+        customerSummaries.remove(id);
+    }
+
     /**
      * Refreshes the combo box with the updated customer list.
-     * The combo box will display customer name and surname.
+     * Only the id, name and surname of the first customers are loaded; the rest are found by typing in it.
      */
     public void refreshComboBox() {
-        mainController.view.customersComboBox.removeAllItems();
-        for (Customer customer : customerTableModel.getCustomers()) {
-            mainController.view.customersComboBox.addItem(customer);
+        AsyncModel.onEdt(mainController.asyncModel.getCustomerSummaries("", TypeAhead.MAX_MATCHES), customerSummaries::setAll);
+    }
+
+    /**
+     * Returns the search-as-you-type pipeline of the customer search box,
+     * to tune its debounce window and read its statistics.
+     *
+     * @return The customer search pipeline.
+     */
+    public SearchPipeline<List<Customer>> getSearchPipeline() {
+        return searchPipeline;
+    }
+
+    /**
+     * Sets the filled fields on every selected customer with a single update.
+     * The email is left out, as it identifies each customer.
+     *
+     * @param ids the IDs of the selected customers
+     */
+    private void modifySelected(List<ObjectId> ids) {
+        int type = mainController.view.customerType.getSelectedIndex();
+        BulkEdit edit = new BulkEdit()
+                .set("firstName", mainController.view.customerName.getText())
+                .set("lastName", mainController.view.customerSurname.getText())
+                .set("phone", mainController.view.customerPhone.getText())
+                .set("registrationDate", mainController.view.customerDate.getDate())
+                .set("type", type != -1 ? (short) type : null);
+        if (edit.isEmpty()) {
+            Util.showWarningDialog("Rellena algún campo distinto del correo para modificar los clientes seleccionados.");
+            return;
         }
+
+        AsyncModel.onEdt(mainController.asyncModel.modifyCustomers(ids, edit), customers -> {
+            refreshTable();
+            clearFields();
+        });
     }
 
     /**
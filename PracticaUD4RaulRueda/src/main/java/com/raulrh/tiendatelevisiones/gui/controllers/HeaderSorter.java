@@ -0,0 +1,88 @@
+package com.raulrh.tiendatelevisiones.gui.controllers;
+
+import com.raulrh.tiendatelevisiones.gui.SortOrder;
+
+import javax.swing.*;
+import javax.swing.table.TableColumn;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Header-click sorting for a table whose rows are sorted by the database.
+ * Clicking a sortable column sorts by it in ascending order, clicking it again reverses the direction.
+ * The table is not sorted locally: the new {@link SortOrder} is handed to a callback that queries the model again,
+ * and the header shows the sorted column with an arrow.
+ * All methods are expected to be called on the Event Dispatch Thread.
+ */
+public class HeaderSorter {
+    private final JTable table;
+    private final Map<Integer, SortOrder> sortableColumns;
+    private final Consumer<SortOrder> onSort;
+
+    private int sortedColumn = -1;
+    private SortOrder sortOrder;
+
+    /**
+     * Constructs a HeaderSorter and attaches it to the header of the table.
+     *
+     * @param table           The table to sort.
+     * @param sortableColumns The ascending sort order of each sortable column, by model index.
+     *                        Columns not listed are not backed by an index and ignore clicks.
+     * @param onSort          The callback receiving the new sort order when it changes.
+     */
+    public HeaderSorter(JTable table, Map<Integer, SortOrder> sortableColumns, Consumer<SortOrder> onSort) {
+        this.table = table;
+        this.sortableColumns = sortableColumns;
+        this.onSort = onSort;
+
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int viewColumn = table.columnAtPoint(e.getPoint());
+                if (viewColumn != -1) {
+                    sortBy(table.convertColumnIndexToModel(viewColumn));
+                }
+            }
+        });
+
+        // Replacing the table model recreates the columns, losing the arrow
+        table.addPropertyChangeListener("model", e -> updateHeaders());
+    }
+
+    /**
+     * Returns the current sort order.
+     *
+     * @return The sort order, or {@code null} if no column has been clicked yet.
+     */
+    public SortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    private void sortBy(int column) {
+        SortOrder ascending = sortableColumns.get(column);
+        if (ascending == null) {
+            return;
+        }
+
+        sortOrder = column == sortedColumn ? sortOrder.reversed() : ascending;
+        sortedColumn = column;
+        updateHeaders();
+        onSort.accept(sortOrder);
+    }
+
+    private void updateHeaders() {
+        Enumeration<TableColumn> columns = table.getColumnModel().getColumns();
+        while (columns.hasMoreElements()) {
+            TableColumn column = columns.nextElement();
+            String name = table.getModel().getColumnName(column.getModelIndex());
+            if (column.getModelIndex() == sortedColumn) {
+                name += sortOrder.ascending() ? " ▲" : " ▼";
+            }
+            column.setHeaderValue(name);
+        }
+        table.getTableHeader().repaint();
+    }
+}
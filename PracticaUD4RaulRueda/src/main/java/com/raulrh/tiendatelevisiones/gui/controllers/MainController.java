@@ -1,13 +1,21 @@
 package com.raulrh.tiendatelevisiones.gui.controllers;
 
 import com.raulrh.tiendatelevisiones.base.enums.CustomerType;
+import com.raulrh.tiendatelevisiones.base.enums.ReferenceMode;
 import com.raulrh.tiendatelevisiones.base.enums.TelevisionType;
+import com.raulrh.tiendatelevisiones.gui.AsyncModel;
+import com.raulrh.tiendatelevisiones.gui.EntityCache;
+import com.raulrh.tiendatelevisiones.gui.IndexManager;
 import com.raulrh.tiendatelevisiones.gui.Model;
 import com.raulrh.tiendatelevisiones.gui.PreferencesDialog;
 import com.raulrh.tiendatelevisiones.gui.View;
+import com.raulrh.tiendatelevisiones.util.Util;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * The MainController class is the main controller that handles the logic for managing the application's views, models,
@@ -19,6 +27,7 @@ public class MainController {
                     + "[A-Za-z0-9-]+(\\.[A-Za-z0-9]+)*(\\.[A-Za-z]{2,})$";
 
     public final Model model;
+    public final AsyncModel asyncModel;
     public final View view;
 
     public final TelevisionController televisionController;
@@ -26,6 +35,7 @@ public class MainController {
     public final SalesController salesController;
     public final SupplierController supplierController;
     public final StockController stockController;
+    public final ReportsController reportsController;
 
     public boolean isConnected = false;
 
@@ -37,6 +47,7 @@ public class MainController {
      */
     public MainController(Model model, View view) {
         this.model = model;
+        this.asyncModel = new AsyncModel(model);
         this.view = view;
 
         televisionController = new TelevisionController(this);
@@ -44,6 +55,7 @@ public class MainController {
         salesController = new SalesController(this);
         supplierController = new SupplierController(this);
         stockController = new StockController(this);
+        reportsController = new ReportsController(this);
 
         setupButtons();
 
@@ -73,6 +85,144 @@ public class MainController {
         }
     }
 
+    /**
+     * Shows a wait cursor and enables the cancel action while database operations are in flight.
+     *
+     * @param busy true if there are operations in flight, false otherwise.
+     */
+    private void setBusy(boolean busy) {
+        view.setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+        view.itemCancel.setEnabled(busy);
+    }
+
+    /**
+     * Shows the build status of the required indexes and the queries that no index supports.
+     */
+    private void showIndexStatus() {
+        IndexManager indexManager = model.getIndexManager();
+        StringBuilder message = new StringBuilder("Índices:\n");
+        for (Map.Entry<IndexManager.IndexSpec, IndexManager.Status> entry : indexManager.getStatus().entrySet()) {
+            message.append("  ").append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+
+        message.append("\nConsultas sin índice:\n");
+        if (indexManager.getUnindexedQueries().isEmpty()) {
+            message.append("  Ninguna\n");
+        }
+        for (String query : indexManager.getUnindexedQueries()) {
+            message.append("  ").append(query).append('\n');
+        }
+
+        JOptionPane.showMessageDialog(view, message.toString(), "Estado de índices", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    /**
+     * Shows the indexes whose creation failed, once the build started on connect finishes. A failed unique index
+     * leaves duplicates to be caught by a query before each write, which two users saving at once can slip past.
+     */
+    private void showFailedIndexes() {
+        List<IndexManager.IndexSpec> failed = model.getIndexManager().getFailedIndexes();
+        if (failed.isEmpty()) {
+            return;
+        }
+
+        StringBuilder message = new StringBuilder("No se pudieron crear los índices:\n");
+        for (IndexManager.IndexSpec spec : failed) {
+            message.append("  ").append(spec).append('\n');
+        }
+        if (failed.stream().anyMatch(IndexManager.IndexSpec::unique)) {
+            message.append("\nLos índices únicos suelen fallar porque ya hay documentos duplicados. Hasta eliminarlos y ")
+                    .append("volver a conectar, los duplicados se comprueban antes de guardar, pero dos guardados ")
+                    .append("simultáneos podrían duplicarse.");
+        }
+        JOptionPane.showMessageDialog(view, message.toString(), "Estado de índices", JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * Shows the hit and miss counters of the entity caches in front of the model.
+     */
+    private void showCacheStats() {
+        StringBuilder message = new StringBuilder("Cachés:\n");
+        for (Map.Entry<String, EntityCache<?>> entry : new TreeMap<>(model.getCaches()).entrySet()) {
+            EntityCache<?> cache = entry.getValue();
+            message.append("  ").append(entry.getKey())
+                    .append(": ").append(cache.size()).append(" entidades")
+                    .append(", ").append(cache.getHitCount()).append(" aciertos")
+                    .append(", ").append(cache.getMissCount()).append(" fallos")
+                    .append(String.format(" (%.0f%%)", cache.getHitRate() * 100))
+                    .append(", ").append(cache.getEvictionCount()).append(" expulsiones\n");
+        }
+
+        JOptionPane.showMessageDialog(view, message.toString(), "Estadísticas de caché", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    /**
+     * Once confirmed, recomputes the daily sales rollup from the sales on a background thread and reports how many
+     * were read. The sales recorded meanwhile would be missed, so the user is warned first.
+     *
+     * @param reason The reason to rebuild it, shown before the warning.
+     */
+    private void rebuildSalesRollup(String reason) {
+        if (Util.showConfirm(reason + " No deben registrarse ventas mientras se reconstruye. ¿Continuar?",
+                "Resumen diario") != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        view.itemRebuildRollup.setEnabled(false);
+        AsyncModel.onEdt(asyncModel.rebuildSalesRollup(), count -> JOptionPane.showMessageDialog(view,
+                "Resumen diario reconstruido a partir de " + count + " ventas.",
+                "Resumen diario", JOptionPane.INFORMATION_MESSAGE)
+        ).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> view.itemRebuildRollup.setEnabled(isConnected)));
+    }
+
+    /**
+     * Once confirmed, recomputes the units on hand of every television on a background thread and reports how many
+     * were wrong.
+     */
+    private void reconcileStock() {
+        if (Util.showConfirm("Se recalcularán las existencias de todos los televisores a partir de las entradas y las "
+                + "ventas. No deben registrarse ventas ni entradas mientras se concilian. ¿Continuar?",
+                "Existencias") != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        view.itemReconcileStock.setEnabled(false);
+        AsyncModel.onEdt(asyncModel.reconcileStock(), corrected -> {
+            JOptionPane.showMessageDialog(view,
+                    "Existencias conciliadas: " + corrected + " televisiones corregidas.",
+                    "Existencias", JOptionPane.INFORMATION_MESSAGE);
+            if (corrected > 0) {
+                televisionController.refreshTable();
+            }
+        }).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> view.itemReconcileStock.setEnabled(isConnected)));
+    }
+
+    /**
+     * Asks for the reference mode of the database and, once confirmed, rewrites the existing documents to it on a
+     * background thread and reports how many were rewritten.
+     */
+    private void changeReferenceMode() {
+        JComboBox<ReferenceMode> modes = new JComboBox<>(ReferenceMode.values());
+        modes.setSelectedItem(model.getReferenceMode());
+        int option = JOptionPane.showConfirmDialog(view, modes, "Modo de referencias",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE);
+        ReferenceMode mode = (ReferenceMode) modes.getSelectedItem();
+        if (option != JOptionPane.OK_OPTION || mode == model.getReferenceMode()) {
+            return;
+        }
+
+        if (Util.showConfirm("Se reescribirán los televisores, clientes y proveedores de la base de datos para "
+                + "todos los usuarios. ¿Continuar?", "Modo de referencias") != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        view.itemReferenceMode.setEnabled(false);
+        AsyncModel.onEdt(asyncModel.migrateReferences(mode), rewritten -> JOptionPane.showMessageDialog(view,
+                "Referencias migradas: " + rewritten + " documentos reescritos.",
+                "Referencias", JOptionPane.INFORMATION_MESSAGE)
+        ).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> view.itemReferenceMode.setEnabled(isConnected)));
+    }
+
     /**
      * Refreshes all controllers' tables.
      */
@@ -92,30 +242,50 @@ public class MainController {
             new PreferencesDialog(view);
         });
 
+        view.itemCancel.addActionListener(e -> asyncModel.cancelAll());
+        view.itemIndexes.addActionListener(e -> showIndexStatus());
+        view.itemCacheStats.addActionListener(e -> showCacheStats());
+        view.itemRebuildRollup.addActionListener(e -> rebuildSalesRollup("Se recalculará el resumen diario a partir de todas las ventas."));
+        view.itemReconcileStock.addActionListener(e -> reconcileStock());
+        view.itemReferenceMode.addActionListener(e -> changeReferenceMode());
+        asyncModel.addBusyListener(this::setBusy);
+
         view.itemDisconnect.addActionListener(e -> {
-            try {
-                if (!isConnected) {
-                    model.connect();
+            view.itemDisconnect.setEnabled(false);
+            if (!isConnected) {
+                AsyncModel.onEdt(asyncModel.connect(), result -> {
                     refreshAll();
                     setPanelEnabled(view.televisionsPanel, true);
                     setPanelEnabled(view.customersPanel, true);
                     setPanelEnabled(view.salesPanel, true);
                     setPanelEnabled(view.suppliersPanel, true);
                     setPanelEnabled(view.stockPanel, true);
+                    setPanelEnabled(view.reportsPanel, true);
+                    view.itemRebuildRollup.setEnabled(true);
+                    view.itemReconcileStock.setEnabled(true);
+                    view.itemReferenceMode.setEnabled(true);
                     view.itemDisconnect.setText("Desconectar");
                     isConnected = true;
-                } else {
-                    setPanelEnabled(view.televisionsPanel, false);
-                    setPanelEnabled(view.customersPanel, false);
-                    setPanelEnabled(view.salesPanel, false);
-                    setPanelEnabled(view.suppliersPanel, false);
-                    setPanelEnabled(view.stockPanel, false);
-                    view.itemDisconnect.setText("Conectar");
-                    isConnected = false;
-                    model.disconnect();
-                }
-            } catch (Exception ex) {
-                throw new RuntimeException(ex);
+                    model.getIndexBuild().thenRun(() -> SwingUtilities.invokeLater(this::showFailedIndexes));
+                    if (model.isSalesRollupMissing()) {
+                        rebuildSalesRollup("La base de datos no tiene resumen diario de ventas, y los informes no incluirán "
+                                + "las ventas existentes hasta construirlo.");
+                    }
+                }).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> view.itemDisconnect.setEnabled(true)));
+            } else {
+                setPanelEnabled(view.televisionsPanel, false);
+                setPanelEnabled(view.customersPanel, false);
+                setPanelEnabled(view.salesPanel, false);
+                setPanelEnabled(view.suppliersPanel, false);
+                setPanelEnabled(view.stockPanel, false);
+                setPanelEnabled(view.reportsPanel, false);
+                view.itemRebuildRollup.setEnabled(false);
+                view.itemReconcileStock.setEnabled(false);
+                view.itemReferenceMode.setEnabled(false);
+                view.itemDisconnect.setText("Conectar");
+                isConnected = false;
+                asyncModel.disconnect()
+                        .whenComplete((result, error) -> SwingUtilities.invokeLater(() -> view.itemDisconnect.setEnabled(true)));
             }
         });
     }
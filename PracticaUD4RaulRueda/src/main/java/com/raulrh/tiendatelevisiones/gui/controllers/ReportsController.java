@@ -0,0 +1,104 @@
+package com.raulrh.tiendatelevisiones.gui.controllers;
+
+import com.raulrh.tiendatelevisiones.analytics.SalesFilter;
+import com.raulrh.tiendatelevisiones.base.Controller;
+import com.raulrh.tiendatelevisiones.base.enums.ReportType;
+import com.raulrh.tiendatelevisiones.gui.AsyncModel;
+import com.raulrh.tiendatelevisiones.gui.models.ReportTableModel;
+import com.raulrh.tiendatelevisiones.util.Util;
+
+import javax.swing.*;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Controller class responsible for the revenue reports shown in the reports tab.
+ * Reports are computed by the database through {@link com.raulrh.tiendatelevisiones.gui.ReportService}.
+ */
+public class ReportsController extends Controller {
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("MMMM yyyy", Locale.of("es"));
+
+    private ReportTableModel reportTableModel;
+
+    /**
+     * Constructs a ReportsController instance and initializes it with the main controller.
+     *
+     * @param mainController The main controller of the application.
+     */
+    public ReportsController(MainController mainController) {
+        super(mainController);
+    }
+
+    /**
+     * Sets up the report types and the event listener of the generate button.
+     */
+    @Override
+    public void setupButtons() {
+        for (ReportType type : ReportType.values()) {
+            mainController.view.reportsType.addItem(type.toString());
+        }
+        mainController.view.reportsType.setSelectedIndex(0);
+
+        mainController.view.reportsGenerate.addActionListener(e -> {
+            if (!validateFields()) {
+                Util.showWarningDialog("La fecha de inicio no puede ser posterior a la de fin.");
+                return;
+            }
+
+            refreshTable();
+        });
+    }
+
+    /**
+     * Configures the read-only report table.
+     */
+    @Override
+    public void setupTable() {
+        reportTableModel = new ReportTableModel();
+        mainController.view.reportsTable.setModel(reportTableModel);
+        mainController.view.reportsTable.setDefaultEditor(Object.class, null);
+        mainController.view.reportsTable.getSelectionModel().setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    }
+
+    /**
+     * Computes the selected report for the selected date range and shows it in the table.
+     */
+    @Override
+    public void refreshTable() {
+        SalesFilter filter = SalesFilter.between(mainController.view.reportsFrom.getDate(), mainController.view.reportsTo.getDate());
+        int limit = (int) mainController.view.reportsLimit.getValue();
+        AsyncModel asyncModel = mainController.asyncModel;
+
+        switch (ReportType.values()[mainController.view.reportsType.getSelectedIndex()]) {
+            case BY_TELEVISION -> AsyncModel.onEdt(asyncModel.getRevenueByTelevision(filter, limit),
+                    report -> reportTableModel.setReport("Televisión", report, asyncModel.getTelevisionNames()::getName));
+            case BY_CUSTOMER -> AsyncModel.onEdt(asyncModel.getRevenueByCustomer(filter, limit),
+                    report -> reportTableModel.setReport("Cliente", report, asyncModel.getCustomerNames()::getName));
+            case BY_MONTH -> AsyncModel.onEdt(asyncModel.getRevenueByMonth(filter),
+                    report -> reportTableModel.setReport("Mes", report, MONTH_FORMAT::format));
+        }
+    }
+
+    /**
+     * Clears the date range and the report shown.
+     */
+    @Override
+    public void clearFields() {
+        mainController.view.reportsFrom.setDate(null);
+        mainController.view.reportsTo.setDate(null);
+        reportTableModel.clear();
+    }
+
+    /**
+     * Validates that the date range, when both ends are set, is not reversed.
+     *
+     * @return true if the range is valid, false otherwise.
+     */
+    @Override
+    public boolean validateFields() {
+        return mainController.view.reportsFrom.getDate() == null
+                || mainController.view.reportsTo.getDate() == null
+                || !mainController.view.reportsFrom.getDate().isAfter(mainController.view.reportsTo.getDate());
+    }
+}
@@ -1,15 +1,24 @@
 package com.raulrh.tiendatelevisiones.gui.controllers;
 
 import com.raulrh.tiendatelevisiones.base.Controller;
-import com.raulrh.tiendatelevisiones.entities.Customer;
 import com.raulrh.tiendatelevisiones.entities.Sale;
-import com.raulrh.tiendatelevisiones.entities.Television;
+import com.raulrh.tiendatelevisiones.entities.SaleRow;
+import com.raulrh.tiendatelevisiones.entities.Summary;
+import com.raulrh.tiendatelevisiones.gui.AsyncModel;
+import com.raulrh.tiendatelevisiones.gui.BulkEdit;
+import com.raulrh.tiendatelevisiones.gui.ChangeEvent;
+import com.raulrh.tiendatelevisiones.gui.Model;
+import com.raulrh.tiendatelevisiones.gui.SortOrder;
+import com.raulrh.tiendatelevisiones.gui.models.PagedTableModel.PageLoader;
 import com.raulrh.tiendatelevisiones.gui.models.SaleTableModel;
 import com.raulrh.tiendatelevisiones.util.Preferences;
 import com.raulrh.tiendatelevisiones.util.Util;
+import org.bson.types.ObjectId;
 
 import javax.swing.*;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 
 /**
  * The SalesController class handles the user interactions with the sales interface.
@@ -17,6 +26,7 @@ import java.time.LocalDate;
  */
 public class SalesController extends Controller {
     private SaleTableModel saleTableModel;
+    private HeaderSorter headerSorter;
 
     /**
      * Constructs a SalesController with a reference to the MainController.
@@ -41,66 +51,86 @@ public class SalesController extends Controller {
                 return;
             }
 
-            mainController.model.addSale(
-                    ((Customer) mainController.view.customersComboBox.getSelectedItem()).getId(),
-                    ((Television) mainController.view.televisionsComboBox.getSelectedItem()).getId(),
+            AsyncModel.onEdt(mainController.asyncModel.addSale(
+                    ((Summary) mainController.view.customersComboBox.getSelectedItem()).id(),
+                    ((Summary) mainController.view.televisionsComboBox.getSelectedItem()).id(),
                     LocalDate.parse(mainController.view.saleDate.getDate().toString()),
                     (int) mainController.view.saleTotal.getValue(),
                     (double) mainController.view.saleTotalPrice.getValue()
-            );
-
-            refreshTable();
-            clearFields();
+            ), result -> {
+                saleTableModel.addRow(SaleRow.of(result.entity()));
+                clearFields();
+            });
         });
 
         mainController.view.salesModify.addActionListener(e -> {
+            List<ObjectId> ids = Util.getSelectedIds(mainController.view.salesTable);
+            if (ids.size() > 1) {
+                modifySelected(ids);
+                return;
+            }
+
             if (!validateFields()) {
                 Util.showWarningDialog("Por favor, revisa los campos.");
                 return;
             }
 
             int row = mainController.view.salesTable.getSelectedRow();
-            if (row == -1) {
+            SaleRow sale = row != -1 ? saleTableModel.getSale(row) : null;
+            if (sale == null) {
                 Util.showWarningDialog("Selecciona una venta.");
                 return;
             }
 
-            Customer customer = (Customer) mainController.view.customersComboBox.getSelectedItem();
-            Television television = (Television) mainController.view.televisionsComboBox.getSelectedItem();
-            Sale sale = saleTableModel.getSale(row);
-            mainController.model.modifySale(
-                    sale.getId(),
-                    customer.getId(),
-                    television.getId(),
+            Summary customer = (Summary) mainController.view.customersComboBox.getSelectedItem();
+            Summary television = (Summary) mainController.view.televisionsComboBox.getSelectedItem();
+            AsyncModel.onEdt(mainController.asyncModel.modifySale(
+                    sale.id(),
+                    customer.id(),
+                    television.id(),
                     LocalDate.parse(mainController.view.saleDate.getDate().toString()),
                     (int) mainController.view.saleTotal.getValue(),
                     (double) mainController.view.saleTotalPrice.getValue()
-            );
-
-            refreshTable();
-            clearFields();
+            ), result -> {
+                if (result.isOk()) {
+                    saleTableModel.updateRow(SaleRow.of(result.entity()));
+                }
+                clearFields();
+            });
         });
 
         mainController.view.salesDelete.addActionListener(e -> {
-            int row = mainController.view.salesTable.getSelectedRow();
-            if (row == -1) {
+            List<ObjectId> ids = Util.getSelectedIds(mainController.view.salesTable);
+            if (ids.isEmpty()) {
                 Util.showWarningDialog("Selecciona una venta.");
                 return;
             }
 
             Preferences preferences = Preferences.getInstance();
             if (preferences.isConfirmDelete()) {
-                int confirm = Util.showConfirm("¿Estás seguro de que quieres eliminar la venta?", "Eliminar venta");
+                String message = ids.size() == 1
+                        ? "¿Estás seguro de que quieres eliminar la venta?"
+                        : "¿Estás seguro de que quieres eliminar las " + ids.size() + " ventas?";
+                int confirm = Util.showConfirm(message, "Eliminar venta");
                 if (confirm != JOptionPane.OK_OPTION) {
                     return;
                 }
             }
 
-            Sale sale = saleTableModel.getSale(row);
-            mainController.model.deleteSale(sale.getId());
+            if (ids.size() > 1) {
+                // The rows are reloaded once, instead of applying the deletes one by one
+                AsyncModel.onEdt(mainController.asyncModel.deleteSales(ids), result -> {
+                    refreshTable();
+                    clearFields();
+                });
+                return;
+            }
 
-            refreshTable();
-            clearFields();
+            ObjectId id = ids.get(0);
+            AsyncModel.onEdt(mainController.asyncModel.deleteSale(id), result -> {
+                saleTableModel.removeRow(id);
+                clearFields();
+            });
         });
     }
 
@@ -109,19 +139,31 @@ public class SalesController extends Controller {
      */
     @Override
     public void setupTable() {
+        saleTableModel = new SaleTableModel(mainController.asyncModel, PageLoader.of(List.of()));
+        mainController.view.salesTable.setModel(saleTableModel);
         mainController.view.salesTable.setCellSelectionEnabled(true);
         mainController.view.salesTable.setDefaultEditor(Object.class, null);
         ListSelectionModel cellSelectionModel = mainController.view.salesTable.getSelectionModel();
-        cellSelectionModel.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        cellSelectionModel.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
 
         cellSelectionModel.addListSelectionListener(e -> {
-            if (!cellSelectionModel.isSelectionEmpty()) {
+            // Several selected rows are edited in bulk, so only a single one fills the form
+            if (mainController.view.salesTable.getSelectedRowCount() == 1) {
                 int row = mainController.view.salesTable.getSelectedRow();
                 fillFields(row);
             } else {
                 clearFields();
             }
         });
+
+        // Only the columns backed by an index can be sorted
+        headerSorter = new HeaderSorter(mainController.view.salesTable, Map.of(
+                0, SortOrder.BY_ID,
+                3, SortOrder.ascending("saleDate"),
+                5, SortOrder.ascending("total")
+        ), order -> refreshTable());
+
+        mainController.asyncModel.addChangeListener(Sale.class, this::applyChange);
     }
 
     /**
@@ -129,12 +171,53 @@ public class SalesController extends Controller {
      */
     @Override
     public void refreshTable() {
-        try {
-            saleTableModel = new SaleTableModel(mainController.model.getSales());
-            mainController.view.salesTable.setModel(saleTableModel);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        SortOrder order = headerSorter.getSortOrder();
+        saleTableModel = new SaleTableModel(mainController.asyncModel, PageLoader.of(
+                Model::countSales,
+                (model, after, skip, limit) -> model.getSales(after, skip, limit, order)));
+        mainController.view.salesTable.setModel(saleTableModel);
+    }
+
+    /**
+     * Applies a change made to the sales by this or any other client, including the cascade deletes
+     * of the entities they reference.
+     *
+     * @param event The change to apply.
+     */
+    private void applyChange(ChangeEvent<Sale> event) {
+        switch (event.type()) {
+            case INSERT -> saleTableModel.addRow(SaleRow.of(event.entity()));
+            case UPDATE -> saleTableModel.updateRow(SaleRow.of(event.entity()));
+            case DELETE -> saleTableModel.removeRow(event.id());
+            case RESYNC -> saleTableModel.reload();
+        }
+    }
+
+    /**
+     * Sets the filled fields on every selected sale with a single update.
+     *
+     * @param ids The IDs of the selected sales.
+     */
+    private void modifySelected(List<ObjectId> ids) {
+        Summary customer = (Summary) mainController.view.customersComboBox.getSelectedItem();
+        Summary television = (Summary) mainController.view.televisionsComboBox.getSelectedItem();
+        int quantity = ((Number) mainController.view.saleTotal.getValue()).intValue();
+        double total = ((Number) mainController.view.saleTotalPrice.getValue()).doubleValue();
+        BulkEdit edit = new BulkEdit()
+                .set("customerId", customer != null ? customer.id() : null)
+                .set("televisionId", television != null ? television.id() : null)
+                .set("saleDate", mainController.view.saleDate.getDate())
+                .set("quantity", quantity > 0 ? quantity : null)
+                .set("total", total > 0 ? total : null);
+        if (edit.isEmpty()) {
+            Util.showWarningDialog("Rellena algún campo para modificar las ventas seleccionadas.");
+            return;
         }
+
+        AsyncModel.onEdt(mainController.asyncModel.modifySales(ids, edit), sales -> {
+            refreshTable();
+            clearFields();
+        });
     }
 
     /**
@@ -156,12 +239,16 @@ public class SalesController extends Controller {
      */
     @Override
     public void fillFields(int row) {
-        Sale sale = saleTableModel.getSale(row);
-        Util.setSelectedCustomer(mainController.view.customersComboBox, sale.getCustomerId());
-        Util.setSelectedTelevision(mainController.view.televisionsComboBox, sale.getTelevisionId());
-        mainController.view.saleDate.setDate(sale.getSaleDate());
-        mainController.view.saleTotal.setValue(sale.getQuantity());
-        mainController.view.saleTotalPrice.setValue(sale.getTotal());
+        SaleRow sale = saleTableModel.getSale(row);
+        if (sale == null) {
+            return;
+        }
+
+        Util.setSelectedItem(mainController.view.customersComboBox, sale.customerId());
+        Util.setSelectedItem(mainController.view.televisionsComboBox, sale.televisionId());
+        mainController.view.saleDate.setDate(sale.saleDate());
+        mainController.view.saleTotal.setValue(sale.quantity());
+        mainController.view.saleTotalPrice.setValue(sale.total());
     }
 
     /**
@@ -171,8 +258,8 @@ public class SalesController extends Controller {
      */
     @Override
     public boolean validateFields() {
-        return mainController.view.customersComboBox.getSelectedIndex() > -1 &&
-                mainController.view.televisionsComboBox.getSelectedIndex() > -1 &&
+        return mainController.view.customersComboBox.getSelectedItem() != null &&
+                mainController.view.televisionsComboBox.getSelectedItem() != null &&
                 mainController.view.saleDate.getDate() != null &&
                 (int) mainController.view.saleTotal.getValue() > 0 &&
                 (double) mainController.view.saleTotalPrice.getValue() > 0;
@@ -0,0 +1,175 @@
+package com.raulrh.tiendatelevisiones.gui.controllers;
+
+import com.raulrh.tiendatelevisiones.gui.AsyncModel;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.JTextComponent;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Search-as-you-type pipeline for a text component.
+ * Keystrokes are debounced, a new query cancels the one still in flight and only the result of the
+ * latest query is delivered. It also keeps statistics to tune the debounce window.
+ * All methods are expected to be called on the Event Dispatch Thread.
+ *
+ * @param <T> The type of the query result.
+ */
+public class SearchPipeline<T> {
+    public static final int DEFAULT_DEBOUNCE_MS = 250;
+
+    private final JTextComponent field;
+    private final Function<String, CompletableFuture<T>> query;
+    private final Consumer<T> onResult;
+    private final Timer timer;
+
+    private CompletableFuture<T> inFlight;
+    private long generation;
+    private long lastKeystrokeNanos;
+
+    // Statistics
+    private long keystrokes;
+    private long queries;
+    private long cancelledQueries;
+    private long completedQueries;
+    private long totalLatencyNanos;
+    private long lastLatencyNanos;
+
+    /**
+     * Constructs a SearchPipeline with the default debounce window.
+     *
+     * @param field    The text component whose contents are searched.
+     * @param query    The query to run for the trimmed text of the field.
+     * @param onResult The callback receiving the result of the latest query on the EDT.
+     */
+    public SearchPipeline(JTextComponent field, Function<String, CompletableFuture<T>> query, Consumer<T> onResult) {
+        this.field = field;
+        this.query = query;
+        this.onResult = onResult;
+
+        timer = new Timer(DEFAULT_DEBOUNCE_MS, e -> runQuery());
+        timer.setRepeats(false);
+
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                onKeystroke();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                onKeystroke();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Attribute changes do not alter the text
+            }
+        });
+    }
+
+    /**
+     * Runs the query for the current text immediately, skipping the debounce window.
+     */
+    public void refresh() {
+        timer.stop();
+        lastKeystrokeNanos = System.nanoTime();
+        runQuery();
+    }
+
+    private void onKeystroke() {
+        keystrokes++;
+        lastKeystrokeNanos = System.nanoTime();
+        timer.restart();
+    }
+
+    private void runQuery() {
+        if (inFlight != null && !inFlight.isDone()) {
+            inFlight.cancel(true);
+            cancelledQueries++;
+        }
+
+        long current = ++generation;
+        long startedAt = lastKeystrokeNanos;
+        queries++;
+
+        inFlight = query.apply(field.getText().trim());
+        AsyncModel.onEdt(inFlight, result -> {
+            // A newer query has been issued since this one
+            if (current != generation) {
+                return;
+            }
+
+            lastLatencyNanos = System.nanoTime() - startedAt;
+            totalLatencyNanos += lastLatencyNanos;
+            completedQueries++;
+            onResult.accept(result);
+        });
+    }
+
+    /**
+     * Returns the debounce window.
+     *
+     * @return The time in milliseconds to wait after the last keystroke before querying.
+     */
+    public int getDebounceDelay() {
+        return timer.getInitialDelay();
+    }
+
+    /**
+     * Sets the debounce window.
+     *
+     * @param millis The time in milliseconds to wait after the last keystroke before querying.
+     */
+    public void setDebounceDelay(int millis) {
+        timer.setInitialDelay(millis);
+    }
+
+    /**
+     * Returns the number of edits received from the text component.
+     *
+     * @return The number of keystrokes.
+     */
+    public long getKeystrokeCount() {
+        return keystrokes;
+    }
+
+    /**
+     * Returns the number of queries actually issued to the model.
+     *
+     * @return The number of queries.
+     */
+    public long getQueryCount() {
+        return queries;
+    }
+
+    /**
+     * Returns the number of queries cancelled because a newer one superseded them.
+     *
+     * @return The number of cancelled queries.
+     */
+    public long getCancelledQueryCount() {
+        return cancelledQueries;
+    }
+
+    /**
+     * Returns the time between the last keystroke and the table update of the latest completed query.
+     *
+     * @return The latency in milliseconds.
+     */
+    public double getLastLatencyMillis() {
+        return lastLatencyNanos / 1_000_000.0;
+    }
+
+    /**
+     * Returns the average time between the last keystroke and the table update.
+     *
+     * @return The average latency in milliseconds, or 0 if no query has completed yet.
+     */
+    public double getAverageLatencyMillis() {
+        return completedQueries == 0 ? 0 : totalLatencyNanos / 1_000_000.0 / completedQueries;
+    }
+}
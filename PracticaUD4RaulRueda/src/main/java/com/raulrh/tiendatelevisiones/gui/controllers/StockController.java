@@ -2,8 +2,14 @@ package com.raulrh.tiendatelevisiones.gui.controllers;
 
 import com.raulrh.tiendatelevisiones.base.Controller;
 import com.raulrh.tiendatelevisiones.entities.Stock;
-import com.raulrh.tiendatelevisiones.entities.Supplier;
-import com.raulrh.tiendatelevisiones.entities.Television;
+import com.raulrh.tiendatelevisiones.entities.StockRow;
+import com.raulrh.tiendatelevisiones.entities.Summary;
+import com.raulrh.tiendatelevisiones.gui.AsyncModel;
+import com.raulrh.tiendatelevisiones.gui.BulkEdit;
+import com.raulrh.tiendatelevisiones.gui.ChangeEvent;
+import com.raulrh.tiendatelevisiones.gui.Model;
+import com.raulrh.tiendatelevisiones.gui.SortOrder;
+import com.raulrh.tiendatelevisiones.gui.models.PagedTableModel.PageLoader;
 import com.raulrh.tiendatelevisiones.gui.models.StockTableModel;
 import com.raulrh.tiendatelevisiones.gui.models.SupplierTableModel;
 import com.raulrh.tiendatelevisiones.util.Preferences;
@@ -15,12 +21,14 @@ import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controller class responsible for managing the stock-related actions and interactions in the GUI.
  */
 public class StockController extends Controller {
     private StockTableModel stockTableModel;
+    private HeaderSorter headerSorter;
 
     /**
      * Constructs a StockController instance and initializes it with the main controller.
@@ -42,61 +50,82 @@ public class StockController extends Controller {
                 return;
             }
 
-            mainController.model.addStock(
-                    ((Television) mainController.view.televisionsComboBox1.getSelectedItem()).getId(),
-                    ((Supplier) mainController.view.suppliersComboBox.getSelectedItem()).getId(),
+            AsyncModel.onEdt(mainController.asyncModel.addStock(
+                    ((Summary) mainController.view.televisionsComboBox1.getSelectedItem()).id(),
+                    ((Summary) mainController.view.suppliersComboBox.getSelectedItem()).id(),
                     LocalDate.parse(mainController.view.stockDate.getDate().toString()),
                     (int) mainController.view.stockTotal.getValue()
-            );
-
-            refreshTable();
-            clearFields();
+            ), result -> {
+                stockTableModel.addRow(StockRow.of(result.entity()));
+                clearFields();
+            });
         });
 
         mainController.view.stockModify.addActionListener(e -> {
+            List<ObjectId> ids = Util.getSelectedIds(mainController.view.stockTable);
+            if (ids.size() > 1) {
+                modifySelected(ids);
+                return;
+            }
+
             if (!validateFields()) {
                 Util.showWarningDialog("Por favor, revisa los campos.");
                 return;
             }
 
             int row = mainController.view.stockTable.getSelectedRow();
-            if (row == -1) {
+            StockRow stock = row != -1 ? stockTableModel.getStock(row) : null;
+            if (stock == null) {
                 Util.showWarningDialog("Selecciona un inventario.");
                 return;
             }
 
-            mainController.model.modifyStock(
-                    (ObjectId) mainController.view.stockTable.getValueAt(row, 0),
-                    ((Television) mainController.view.televisionsComboBox1.getSelectedItem()).getId(),
-                    ((Supplier) mainController.view.suppliersComboBox.getSelectedItem()).getId(),
+            AsyncModel.onEdt(mainController.asyncModel.modifyStock(
+                    stock.id(),
+                    ((Summary) mainController.view.televisionsComboBox1.getSelectedItem()).id(),
+                    ((Summary) mainController.view.suppliersComboBox.getSelectedItem()).id(),
                     LocalDate.parse(mainController.view.stockDate.getDate().toString()),
                     (int) mainController.view.stockTotal.getValue()
-            );
-
-            refreshTable();
-            clearFields();
+            ), result -> {
+                if (result.isOk()) {
+                    stockTableModel.updateRow(StockRow.of(result.entity()));
+                }
+                clearFields();
+            });
         });
 
         mainController.view.stockDelete.addActionListener(e -> {
-            int row = mainController.view.stockTable.getSelectedRow();
-            if (row == -1) {
+            List<ObjectId> ids = Util.getSelectedIds(mainController.view.stockTable);
+            if (ids.isEmpty()) {
                 Util.showWarningDialog("Selecciona un inventario.");
                 return;
             }
 
             Preferences preferences = Preferences.getInstance();
             if (preferences.isConfirmDelete()) {
-                int confirm = Util.showConfirm("¿Estás seguro de que quieres eliminar el inventario?", "Eliminar inventario");
+                String message = ids.size() == 1
+                        ? "¿Estás seguro de que quieres eliminar el inventario?"
+                        : "¿Estás seguro de que quieres eliminar los " + ids.size() + " inventarios?";
+                int confirm = Util.showConfirm(message, "Eliminar inventario");
                 if (confirm != JOptionPane.OK_OPTION) {
                     return;
                 }
             }
 
-            ObjectId id = (ObjectId) mainController.view.stockTable.getValueAt(row, 0);
-            mainController.model.deleteStock(id);
+            if (ids.size() > 1) {
+                // The rows are reloaded once, instead of applying the deletes one by one
+                AsyncModel.onEdt(mainController.asyncModel.deleteStockEntries(ids), result -> {
+                    refreshTable();
+                    clearFields();
+                });
+                return;
+            }
 
-            refreshTable();
-            clearFields();
+            ObjectId id = ids.get(0);
+            AsyncModel.onEdt(mainController.asyncModel.deleteStock(id), result -> {
+                stockTableModel.removeRow(id);
+                clearFields();
+            });
         });
     }
 
@@ -105,19 +134,30 @@ public class StockController extends Controller {
      */
     @Override
     public void setupTable() {
+        stockTableModel = new StockTableModel(mainController.asyncModel, PageLoader.of(List.of()));
+        mainController.view.stockTable.setModel(stockTableModel);
         mainController.view.stockTable.setCellSelectionEnabled(true);
         mainController.view.stockTable.setDefaultEditor(Object.class, null);
         ListSelectionModel cellSelectionModel = mainController.view.stockTable.getSelectionModel();
-        cellSelectionModel.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        cellSelectionModel.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
 
         cellSelectionModel.addListSelectionListener(e -> {
-            if (!cellSelectionModel.isSelectionEmpty()) {
+            // Several selected rows are edited in bulk, so only a single one fills the form
+            if (mainController.view.stockTable.getSelectedRowCount() == 1) {
                 int row = mainController.view.stockTable.getSelectedRow();
                 fillFields(row);
             } else {
                 clearFields();
             }
         });
+
+        // Only the columns backed by an index can be sorted
+        headerSorter = new HeaderSorter(mainController.view.stockTable, Map.of(
+                0, SortOrder.BY_ID,
+                4, SortOrder.ascending("entryDate")
+        ), order -> refreshTable());
+
+        mainController.asyncModel.addChangeListener(Stock.class, this::applyChange);
     }
 
     /**
@@ -125,12 +165,51 @@ public class StockController extends Controller {
      */
     @Override
     public void refreshTable() {
-        try {
-            stockTableModel = new StockTableModel(mainController.model.getStock());
-            mainController.view.stockTable.setModel(stockTableModel);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        SortOrder order = headerSorter.getSortOrder();
+        stockTableModel = new StockTableModel(mainController.asyncModel, PageLoader.of(
+                Model::countStock,
+                (model, after, skip, limit) -> model.getStock(after, skip, limit, order)));
+        mainController.view.stockTable.setModel(stockTableModel);
+    }
+
+    /**
+     * Applies a change made to the stock by this or any other client, including the cascade deletes
+     * of the entities they reference.
+     *
+     * @param event The change to apply.
+     */
+    private void applyChange(ChangeEvent<Stock> event) {
+        switch (event.type()) {
+            case INSERT -> stockTableModel.addRow(StockRow.of(event.entity()));
+            case UPDATE -> stockTableModel.updateRow(StockRow.of(event.entity()));
+            case DELETE -> stockTableModel.removeRow(event.id());
+            case RESYNC -> stockTableModel.reload();
+        }
+    }
+
+    /**
+     * Sets the filled fields on every selected stock entry with a single update.
+     *
+     * @param ids The IDs of the selected stock entries.
+     */
+    private void modifySelected(List<ObjectId> ids) {
+        Summary television = (Summary) mainController.view.televisionsComboBox1.getSelectedItem();
+        Summary supplier = (Summary) mainController.view.suppliersComboBox.getSelectedItem();
+        int quantity = ((Number) mainController.view.stockTotal.getValue()).intValue();
+        BulkEdit edit = new BulkEdit()
+                .set("televisionId", television != null ? television.id() : null)
+                .set("supplierId", supplier != null ? supplier.id() : null)
+                .set("entryDate", mainController.view.stockDate.getDate())
+                .set("quantity", quantity > 0 ? quantity : null);
+        if (edit.isEmpty()) {
+            Util.showWarningDialog("Rellena algún campo para modificar los inventarios seleccionados.");
+            return;
         }
+
+        AsyncModel.onEdt(mainController.asyncModel.modifyStockEntries(ids, edit), entries -> {
+            refreshTable();
+            clearFields();
+        });
     }
 
     /**
@@ -151,11 +230,15 @@ public class StockController extends Controller {
      */
     @Override
     public void fillFields(int row) {
-        Stock stock = stockTableModel.getStock(row);
-        Util.setSelectedTelevision(mainController.view.televisionsComboBox1, stock.getTelevisionId());
-        Util.setSelectedSupplier(mainController.view.suppliersComboBox, stock.getSupplierId());
-        mainController.view.stockTotal.setValue(stock.getQuantity());
-        mainController.view.stockDate.setDate(stock.getEntryDate());
+        StockRow stock = stockTableModel.getStock(row);
+        if (stock == null) {
+            return;
+        }
+
+        Util.setSelectedItem(mainController.view.televisionsComboBox1, stock.televisionId());
+        Util.setSelectedItem(mainController.view.suppliersComboBox, stock.supplierId());
+        mainController.view.stockTotal.setValue(stock.quantity());
+        mainController.view.stockDate.setDate(stock.entryDate());
     }
 
     /**
@@ -165,8 +248,8 @@ public class StockController extends Controller {
      */
     @Override
     public boolean validateFields() {
-        return mainController.view.televisionsComboBox1.getSelectedIndex() > -1 &&
-                mainController.view.suppliersComboBox.getSelectedIndex() > -1 &&
+        return mainController.view.televisionsComboBox1.getSelectedItem() != null &&
+                mainController.view.suppliersComboBox.getSelectedItem() != null &&
                 mainController.view.stockDate.getDate() != null &&
                 (int) mainController.view.stockTotal.getValue() > 0;
     }
@@ -2,18 +2,24 @@ package com.raulrh.tiendatelevisiones.gui.controllers;
 
 import com.raulrh.tiendatelevisiones.base.Controller;
 import com.raulrh.tiendatelevisiones.entities.Supplier;
+import com.raulrh.tiendatelevisiones.entities.Summary;
 import com.raulrh.tiendatelevisiones.entities.Television;
+import com.raulrh.tiendatelevisiones.gui.AsyncModel;
+import com.raulrh.tiendatelevisiones.gui.BulkEdit;
+import com.raulrh.tiendatelevisiones.gui.ChangeEvent;
+import com.raulrh.tiendatelevisiones.gui.SortOrder;
+import com.raulrh.tiendatelevisiones.gui.WriteResult;
 import com.raulrh.tiendatelevisiones.gui.dialogs.StockDialog;
 import com.raulrh.tiendatelevisiones.gui.models.SupplierTableModel;
 import com.raulrh.tiendatelevisiones.gui.models.TelevisionTableModel;
+import com.raulrh.tiendatelevisiones.gui.models.SummaryListModel;
 import com.raulrh.tiendatelevisiones.util.Preferences;
 import com.raulrh.tiendatelevisiones.util.Util;
 import org.bson.types.ObjectId;
 
 import javax.swing.*;
-import javax.swing.event.DocumentEvent;
-import javax.swing.event.DocumentListener;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controller responsible for managing supplier-related operations in the application.
@@ -21,6 +27,9 @@ import java.util.List;
  */
 public class SupplierController extends Controller {
     private SupplierTableModel supplierTableModel;
+    private SearchPipeline<List<Supplier>> searchPipeline;
+    private HeaderSorter headerSorter;
+    private SummaryListModel supplierSummaries;
 
     /**
      * Constructor to initialize the SupplierController.
@@ -43,24 +52,29 @@ public class SupplierController extends Controller {
                 return;
             }
 
+            String name = mainController.view.supplierName.getText();
+            String phone = mainController.view.supplierPhone.getText();
+            String address = mainController.view.supplierAddress.getText();
             String mail = mainController.view.supplierMail.getText();
-            if (mainController.model.checkSupplierExists(mail, new ObjectId())) {
-                Util.showWarningDialog("El proveedor ya existe.");
-                return;
-            }
 
-            mainController.model.addSupplier(
-                    mainController.view.supplierName.getText(),
-                    mainController.view.supplierPhone.getText(),
-                    mainController.view.supplierAddress.getText(),
-                    mail
-            );
+            AsyncModel.onEdt(mainController.asyncModel.addSupplier(name, phone, address, mail), result -> {
+                if (result.status() == WriteResult.Status.DUPLICATE) {
+                    Util.showWarningDialog("El proveedor ya existe.");
+                    return;
+                }
 
-            refreshTable();
-            clearFields();
+                applyInsert(result.entity());
+                clearFields();
+            });
         });
 
         mainController.view.suppliersModify.addActionListener(e -> {
+            List<ObjectId> ids = Util.getSelectedIds(mainController.view.suppliersTable);
+            if (ids.size() > 1) {
+                modifySelected(ids);
+                return;
+            }
+
             if (!validateFields()) {
                 Util.showWarningDialog("Por favor, revisa los campos.");
                 return;
@@ -73,80 +87,67 @@ public class SupplierController extends Controller {
             }
 
             ObjectId id = (ObjectId) mainController.view.suppliersTable.getValueAt(row, 0);
+            String name = mainController.view.supplierName.getText();
+            String phone = mainController.view.supplierPhone.getText();
+            String address = mainController.view.supplierAddress.getText();
             String mail = mainController.view.supplierMail.getText();
-            if (mainController.model.checkSupplierExists(mail, id)) {
-                Util.showWarningDialog("El proveedor ya existe.");
-                return;
-            }
 
-            mainController.model.modifySupplier(
-                    id,
-                    mainController.view.supplierName.getText(),
-                    mainController.view.supplierPhone.getText(),
-                    mainController.view.supplierAddress.getText(),
-                    mail
-            );
+            AsyncModel.onEdt(mainController.asyncModel.modifySupplier(id, name, phone, address, mail), result -> {
+                if (result.status() == WriteResult.Status.DUPLICATE) {
+                    Util.showWarningDialog("El proveedor ya existe.");
+                    return;
+                }
 
-            refreshTable();
-            clearFields();
+                if (result.isOk()) {
+                    applyUpdate(result.entity());
+                }
+                clearFields();
+            });
         });
 
         mainController.view.suppliersDelete.addActionListener(e -> {
-            int row = mainController.view.suppliersTable.getSelectedRow();
-            if (row == -1) {
+            List<ObjectId> ids = Util.getSelectedIds(mainController.view.suppliersTable);
+            if (ids.isEmpty()) {
                 Util.showWarningDialog("Selecciona un proveedor.");
                 return;
             }
 
             Preferences preferences = Preferences.getInstance();
             if (preferences.isConfirmDelete()) {
-                int confirm = Util.showConfirm("¿Estás seguro de que quieres eliminar el proveedor?", "Eliminar proveedor");
+                String message = ids.size() == 1
+                        ? "¿Estás seguro de que quieres eliminar el proveedor?"
+                        : "¿Estás seguro de que quieres eliminar los " + ids.size() + " proveedores?";
+                int confirm = Util.showConfirm(message, "Eliminar proveedor");
                 if (confirm != JOptionPane.OK_OPTION) {
                     return;
                 }
             }
 
-            ObjectId id = (ObjectId) mainController.view.suppliersTable.getValueAt(row, 0);
-            mainController.model.deleteSupplier(id);
-
-            refreshTable();
-            clearFields();
-
-            mainController.stockController.refreshTable();
-        });
-
-        mainController.view.searchSupplier.getDocument().addDocumentListener(new DocumentListener() {
-            @Override
-            public void insertUpdate(DocumentEvent e) {
-                filterTelevisions();
-            }
-
-            @Override
-            public void removeUpdate(DocumentEvent e) {
-                filterTelevisions();
-            }
-
-            @Override
-            public void changedUpdate(DocumentEvent e) {
-                filterTelevisions();
+            if (ids.size() > 1) {
+                // The rows are reloaded once, instead of applying the deletes one by one
+                AsyncModel.onEdt(mainController.asyncModel.deleteSuppliers(ids), result -> {
+                    refreshTable();
+                    clearFields();
+                });
+                return;
             }
 
-            private void filterTelevisions() {
-                String searchText = mainController.view.searchSupplier.getText().trim().toLowerCase();
-                List<Supplier> allSuppliers = mainController.model.getSuppliers();
-                List<Supplier> filteredSuppliers;
-
-                if (searchText.isEmpty()) {
-                    filteredSuppliers = allSuppliers;
-                } else {
-                    filteredSuppliers = allSuppliers.stream()
-                            .filter(supplier -> supplier.getName().toLowerCase().contains(searchText)).toList();
-                }
-
-                supplierTableModel = new SupplierTableModel(filteredSuppliers);
-                mainController.view.suppliersTable.setModel(supplierTableModel);
-            }
+            ObjectId id = ids.get(0);
+            AsyncModel.onEdt(mainController.asyncModel.deleteSupplier(id), result -> {
+                // The stock deleted in cascade reaches its table through the change feed
+                applyDelete(id);
+                clearFields();
+            });
         });
+
+        searchPipeline = new SearchPipeline<>(mainController.view.searchSupplier,
+                searchText -> searchText.isEmpty()
+                        ? mainController.asyncModel.getSuppliers(headerSorter.getSortOrder())
+                        : mainController.asyncModel.searchSuppliers(searchText, headerSorter.getSortOrder()),
+                filteredSuppliers -> {
+                    supplierTableModel = new SupplierTableModel(filteredSuppliers);
+                    mainController.view.suppliersTable.setModel(supplierTableModel);
+                });
     }
 
     /**
@@ -155,13 +156,16 @@ public class SupplierController extends Controller {
      */
     @Override
     public void setupTable() {
+        supplierTableModel = new SupplierTableModel(List.of());
+        mainController.view.suppliersTable.setModel(supplierTableModel);
         mainController.view.suppliersTable.setCellSelectionEnabled(true);
         mainController.view.suppliersTable.setDefaultEditor(Object.class, null);
         ListSelectionModel cellSelectionModel = mainController.view.suppliersTable.getSelectionModel();
-        cellSelectionModel.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        cellSelectionModel.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
 
         cellSelectionModel.addListSelectionListener(e -> {
-            if (!cellSelectionModel.isSelectionEmpty()) {
+            // Several selected rows are edited in bulk, so only a single one fills the form
+            if (mainController.view.suppliersTable.getSelectedRowCount() == 1) {
                 int row = mainController.view.suppliersTable.getSelectedRow();
                 fillFields(row);
             } else {
@@ -169,6 +173,18 @@ public class SupplierController extends Controller {
             }
         });
 
+        // Only the columns backed by an index can be sorted
+        headerSorter = new HeaderSorter(mainController.view.suppliersTable, Map.of(
+                0, SortOrder.BY_ID,
+                1, SortOrder.ascendingText("name"),
+                4, SortOrder.ascendingText("email")
+        ), order -> searchPipeline.refresh());
+
+        supplierSummaries = new SummaryListModel(mainController.asyncModel.getSupplierNames()::getName);
+        new TypeAhead(mainController.view.suppliersComboBox, supplierSummaries, mainController.asyncModel::getSupplierSummaries);
+
+        mainController.asyncModel.addChangeListener(Supplier.class, this::applyChange);
+
         mainController.view.suppliersTable.addMouseListener(new java.awt.event.MouseAdapter() {
             @Override
             public void mouseClicked(java.awt.event.MouseEvent evt) {
@@ -181,7 +197,7 @@ public class SupplierController extends Controller {
                     int row = table.getSelectedRow();
                     if (row != -1) {
                         Supplier supplier = supplierTableModel.getSupplier(row);
-                        StockDialog stockDialog = new StockDialog(mainController.view, supplier, mainController.model);
+                        StockDialog stockDialog = new StockDialog(mainController.view, supplier, mainController.asyncModel);
                         stockDialog.setVisible(true);
                     }
                 }
@@ -190,28 +206,84 @@ public class SupplierController extends Controller {
     }
 
     /**
-     * Refreshes the supplier table by fetching updated data from the model
-     * and updating the table model and associated combo boxes.
+     * Refreshes the supplier table with the current search text and sort order, and updates the combo boxes.
+     * The data is retrieved in the background and the associated components are updated on the EDT.
      */
     @Override
     public void refreshTable() {
-        try {
-            supplierTableModel = new SupplierTableModel(mainController.model.getSuppliers());
-            mainController.view.suppliersTable.setModel(supplierTableModel);
-            refreshComboBox();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        searchPipeline.refresh();
+        refreshComboBox();
+    }
+
+    /**
+     * Applies a change made to the suppliers by this or any other client.
+     *
+     * @param event The change to apply.
+     */
+    private void applyChange(ChangeEvent<Supplier> event) {
+        switch (event.type()) {
+            case INSERT -> applyInsert(event.entity());
+            case UPDATE -> applyUpdate(event.entity());
+            case DELETE -> applyDelete(event.id());
+            case RESYNC -> refreshTable();
         }
     }
 
+    private void applyInsert(Supplier supplier) {
+        supplierTableModel.addRow(supplier);
+        supplierSummaries.put(Summary.of(supplier));
+    }
+
+    private void applyUpdate(Supplier supplier) {
+        supplierTableModel.updateRow(supplier);
+        supplierSummaries.put(Summary.of(supplier));
+        // The stock table shows the name of the supplier
+        mainController.view.stockTable.repaint();
+    }
+
+    private void applyDelete(ObjectId id) {
+        supplierTableModel.removeRow(id);
+        supplierSummaries.remove(id);
+    }
+
     /**
-     * Refreshes the combo box that lists suppliers based on the current table data.
+     * Refreshes the combo box that lists suppliers, loading only the id and name of the first ones;
+     * the rest are found by typing in it.
      */
     public void refreshComboBox() {
-        mainController.view.suppliersComboBox.removeAllItems();
-        for (Supplier supplier : supplierTableModel.getSuppliers()) {
-            mainController.view.suppliersComboBox.addItem(supplier);
+        AsyncModel.onEdt(mainController.asyncModel.getSupplierSummaries("", TypeAhead.MAX_MATCHES), supplierSummaries::setAll);
+    }
+
+    /**
+     * Returns the search-as-you-type pipeline of the supplier search box,
+     * to tune its debounce window and read its statistics.
+     *
+     * @return The supplier search pipeline.
+     */
+    public SearchPipeline<List<Supplier>> getSearchPipeline() {
+        return searchPipeline;
+    }
+
+    /**
+     * Sets the filled fields on every selected supplier with a single update.
+     * The email is left out, as it identifies each supplier.
+     *
+     * @param ids the IDs of the selected suppliers
+     */
+    private void modifySelected(List<ObjectId> ids) {
+        BulkEdit edit = new BulkEdit()
+                .set("name", mainController.view.supplierName.getText())
+                .set("phone", mainController.view.supplierPhone.getText())
+                .set("address", mainController.view.supplierAddress.getText());
+        if (edit.isEmpty()) {
+            Util.showWarningDialog("Rellena algún campo distinto del correo para modificar los proveedores seleccionados.");
+            return;
         }
+
+        AsyncModel.onEdt(mainController.asyncModel.modifySuppliers(ids, edit), suppliers -> {
+            refreshTable();
+            clearFields();
+        });
     }
 
     /**
@@ -1,17 +1,24 @@
 package com.raulrh.tiendatelevisiones.gui.controllers;
 
 import com.raulrh.tiendatelevisiones.base.Controller;
+import com.raulrh.tiendatelevisiones.entities.Summary;
 import com.raulrh.tiendatelevisiones.entities.Television;
+import com.raulrh.tiendatelevisiones.gui.AsyncModel;
+import com.raulrh.tiendatelevisiones.gui.BulkEdit;
+import com.raulrh.tiendatelevisiones.gui.ChangeEvent;
+import com.raulrh.tiendatelevisiones.gui.SortOrder;
+import com.raulrh.tiendatelevisiones.gui.WriteResult;
 import com.raulrh.tiendatelevisiones.gui.dialogs.SaleStockDialog;
+import com.raulrh.tiendatelevisiones.gui.models.SummaryListModel;
 import com.raulrh.tiendatelevisiones.gui.models.TelevisionTableModel;
 import com.raulrh.tiendatelevisiones.util.Preferences;
 import com.raulrh.tiendatelevisiones.util.Util;
 import org.bson.types.ObjectId;
 
 import javax.swing.*;
-import javax.swing.event.DocumentEvent;
-import javax.swing.event.DocumentListener;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controller class responsible for managing televisions within the application.
@@ -19,6 +26,10 @@ import java.util.List;
  */
 public class TelevisionController extends Controller {
     private TelevisionTableModel televisionTableModel;
+    private SearchPipeline<List<Television>> searchPipeline;
+    private HeaderSorter headerSorter;
+    // Shared by the sales and stock combo boxes, each with a selection of its own
+    private SummaryListModel televisionSummaries;
 
     /**
      * Constructor that initializes the TelevisionController with a reference to the main controller.
@@ -42,24 +53,29 @@ public class TelevisionController extends Controller {
 
             String model = mainController.view.televisionModel.getText();
             String brand = mainController.view.televisionBrand.getText();
-            if (mainController.model.checkTelevisionExists(model, brand, new ObjectId())) {
-                Util.showWarningDialog("La televisión ya existe.");
-                return;
-            }
-
-            mainController.model.addTelevision(
-                    model,
-                    brand,
-                    (double) mainController.view.televisionPrice.getValue(),
-                    mainController.view.televisionDate.getDate(),
-                    (short) mainController.view.televisionType.getSelectedIndex(),
-                    mainController.view.televisionSmartTv.isSelected());
+            double price = (double) mainController.view.televisionPrice.getValue();
+            LocalDate releaseDate = mainController.view.televisionDate.getDate();
+            short type = (short) mainController.view.televisionType.getSelectedIndex();
+            boolean isSmart = mainController.view.televisionSmartTv.isSelected();
+
+            AsyncModel.onEdt(mainController.asyncModel.addTelevision(model, brand, price, releaseDate, type, isSmart), result -> {
+                if (result.status() == WriteResult.Status.DUPLICATE) {
+                    Util.showWarningDialog("La televisión ya existe.");
+                    return;
+                }
 
-            refreshTable();
-            clearFields();
+                applyInsert(result.entity());
+                clearFields();
+            });
         });
 
         mainController.view.televisionsModify.addActionListener(e -> {
+            List<ObjectId> ids = Util.getSelectedIds(mainController.view.televisionsTable);
+            if (ids.size() > 1) {
+                modifySelected(ids);
+                return;
+            }
+
             if (!validateFields()) {
                 Util.showWarningDialog("Por favor, revisa los campos.");
                 return;
@@ -74,81 +90,67 @@ public class TelevisionController extends Controller {
             ObjectId id = (ObjectId) mainController.view.televisionsTable.getValueAt(row, 0);
             String model = mainController.view.televisionModel.getText();
             String brand = mainController.view.televisionBrand.getText();
-            if (mainController.model.checkTelevisionExists(model, brand, id)) {
-                Util.showWarningDialog("La televisión ya existe.");
-                return;
-            }
-
-            mainController.model.modifyTelevision(
-                    id,
-                    model,
-                    brand,
-                    (double) mainController.view.televisionPrice.getValue(),
-                    mainController.view.televisionDate.getDate(),
-                    mainController.view.televisionType.getSelectedIndex(),
-                    mainController.view.televisionSmartTv.isSelected());
+            double price = (double) mainController.view.televisionPrice.getValue();
+            LocalDate releaseDate = mainController.view.televisionDate.getDate();
+            int type = mainController.view.televisionType.getSelectedIndex();
+            boolean isSmart = mainController.view.televisionSmartTv.isSelected();
+
+            AsyncModel.onEdt(mainController.asyncModel.modifyTelevision(id, model, brand, price, releaseDate, type, isSmart), result -> {
+                if (result.status() == WriteResult.Status.DUPLICATE) {
+                    Util.showWarningDialog("La televisión ya existe.");
+                    return;
+                }
 
-            refreshTable();
-            clearFields();
+                if (result.isOk()) {
+                    applyUpdate(result.entity());
+                }
+                clearFields();
+            });
         });
 
         mainController.view.televisionsDelete.addActionListener(e -> {
-            int row = mainController.view.televisionsTable.getSelectedRow();
-            if (row == -1) {
+            List<ObjectId> ids = Util.getSelectedIds(mainController.view.televisionsTable);
+            if (ids.isEmpty()) {
                 Util.showWarningDialog("Selecciona una televisión.");
                 return;
             }
 
             Preferences preferences = Preferences.getInstance();
             if (preferences.isConfirmDelete()) {
-                int confirm = Util.showConfirm("¿Estás seguro de que quieres eliminar la televisión?", "Eliminar televisión");
+                String message = ids.size() == 1
+                        ? "¿Estás seguro de que quieres eliminar la televisión?"
+                        : "¿Estás seguro de que quieres eliminar las " + ids.size() + " televisiones?";
+                int confirm = Util.showConfirm(message, "Eliminar televisión");
                 if (confirm != JOptionPane.OK_OPTION) {
                     return;
                 }
             }
 
-            ObjectId id = (ObjectId) mainController.view.televisionsTable.getValueAt(row, 0);
-            mainController.model.deleteTelevision(id);
-
-            refreshTable();
-            clearFields();
-
-            mainController.stockController.refreshTable();
-            mainController.salesController.refreshTable();
-        });
-
-        mainController.view.searchTv.getDocument().addDocumentListener(new DocumentListener() {
-            @Override
-            public void insertUpdate(DocumentEvent e) {
-                filterTelevisions();
-            }
-
-            @Override
-            public void removeUpdate(DocumentEvent e) {
-                filterTelevisions();
-            }
-
-            @Override
-            public void changedUpdate(DocumentEvent e) {
-                filterTelevisions();
+            if (ids.size() > 1) {
+                // The rows are reloaded once, instead of applying the deletes one by one
+                AsyncModel.onEdt(mainController.asyncModel.deleteTelevisions(ids), result -> {
+                    refreshTable();
+                    clearFields();
+                });
+                return;
             }
 
-            private void filterTelevisions() {
-                String searchText = mainController.view.searchTv.getText().trim().toLowerCase();
-                List<Television> allTelevisions = mainController.model.getTelevisions();
-                List<Television> filteredTelevisions;
-
-                if (searchText.isEmpty()) {
-                    filteredTelevisions = allTelevisions;
-                } else {
-                    filteredTelevisions = allTelevisions.stream()
-                            .filter(tv -> tv.getBrand().toLowerCase().contains(searchText)).toList();
-                }
-
-                televisionTableModel = new TelevisionTableModel(filteredTelevisions);
-                mainController.view.televisionsTable.setModel(televisionTableModel);
-            }
+            ObjectId id = ids.get(0);
+            AsyncModel.onEdt(mainController.asyncModel.deleteTelevision(id), result -> {
+                // The sales and stock deleted in cascade reach their tables through the change feed
+                applyDelete(id);
+                clearFields();
+            });
         });
+
+        searchPipeline = new SearchPipeline<>(mainController.view.searchTv,
+                searchText -> searchText.isEmpty()
+                        ? mainController.asyncModel.getTelevisions(headerSorter.getSortOrder())
+                        : mainController.asyncModel.searchTelevisions(searchText, headerSorter.getSortOrder()),
+                filteredTelevisions -> {
+                    televisionTableModel = new TelevisionTableModel(filteredTelevisions);
+                    mainController.view.televisionsTable.setModel(televisionTableModel);
+                });
     }
 
     /**
@@ -156,13 +158,16 @@ public class TelevisionController extends Controller {
      */
     @Override
     public void setupTable() {
+        televisionTableModel = new TelevisionTableModel(List.of());
+        mainController.view.televisionsTable.setModel(televisionTableModel);
         mainController.view.televisionsTable.setCellSelectionEnabled(true);
         mainController.view.televisionsTable.setDefaultEditor(Object.class, null);
         ListSelectionModel cellSelectionModel = mainController.view.televisionsTable.getSelectionModel();
-        cellSelectionModel.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        cellSelectionModel.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
 
         cellSelectionModel.addListSelectionListener(e -> {
-            if (!cellSelectionModel.isSelectionEmpty()) {
+            // Several selected rows are edited in bulk, so only a single one fills the form
+            if (mainController.view.televisionsTable.getSelectedRowCount() == 1) {
                 int row = mainController.view.televisionsTable.getSelectedRow();
                 fillFields(row);
             } else {
@@ -170,6 +175,19 @@ public class TelevisionController extends Controller {
             }
         });
 
+        // Only the columns backed by an index can be sorted
+        headerSorter = new HeaderSorter(mainController.view.televisionsTable, Map.of(
+                0, SortOrder.BY_ID,
+                2, SortOrder.ascendingText("brand"),
+                3, SortOrder.ascending("price")
+        ), order -> searchPipeline.refresh());
+
+        televisionSummaries = new SummaryListModel(mainController.asyncModel.getTelevisionNames()::getName);
+        new TypeAhead(mainController.view.televisionsComboBox, televisionSummaries, mainController.asyncModel::getTelevisionSummaries);
+        new TypeAhead(mainController.view.televisionsComboBox1, televisionSummaries, mainController.asyncModel::getTelevisionSummaries);
+
+        mainController.asyncModel.addChangeListener(Television.class, this::applyChange);
+
         mainController.view.televisionsTable.addMouseListener(new java.awt.event.MouseAdapter() {
             @Override
             public void mouseClicked(java.awt.event.MouseEvent evt) {
@@ -182,7 +200,7 @@ public class TelevisionController extends Controller {
                     int row = table.getSelectedRow();
                     if (row != -1) {
                         Television television = televisionTableModel.getTelevision(row);
-                        SaleStockDialog saleStockDialog = new SaleStockDialog(mainController.view, television, mainController.model);
+                        SaleStockDialog saleStockDialog = new SaleStockDialog(mainController.view, television, mainController.asyncModel);
                         saleStockDialog.setVisible(true);
                     }
                 }
@@ -191,30 +209,54 @@ public class TelevisionController extends Controller {
     }
 
     /**
-     * Refreshes the television table view by updating its data model.
-     * This method retrieves data from the model and updates the associated components.
+     * Refreshes the television table with the current search text and sort order, and updates the combo boxes.
+     * The data is retrieved in the background and the associated components are updated on the EDT.
      */
     @Override
     public void refreshTable() {
-        try {
-            televisionTableModel = new TelevisionTableModel(mainController.model.getTelevisions());
-            mainController.view.televisionsTable.setModel(televisionTableModel);
-            refreshComboBox();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        searchPipeline.refresh();
+        refreshComboBox();
+    }
+
+    /**
+     * Applies a change made to the televisions by this or any other client.
+     *
+     * @param event The change to apply.
+     */
+    private void applyChange(ChangeEvent<Television> event) {
+        switch (event.type()) {
+            case INSERT -> applyInsert(event.entity());
+            case UPDATE -> applyUpdate(event.entity());
+            case DELETE -> applyDelete(event.id());
+            case RESYNC -> refreshTable();
         }
     }
 
+    private void applyInsert(Television television) {
+        televisionTableModel.addRow(television);
+        televisionSummaries.put(Summary.of(television));
+    }
+
+    private void applyUpdate(Television television) {
+        televisionTableModel.updateRow(television);
+        televisionSummaries.put(Summary.of(television));
+        // The sales and stock tables show the name of the television
+        mainController.view.salesTable.repaint();
+        mainController.view.stockTable.repaint();
+    }
+
+    private void applyDelete(ObjectId id) {
+        televisionTableModel.removeRow(id);
+        televisionSummaries.remove(id);
+    }
+
     /**
      * Refreshes the content of the television-related combo boxes.
+     * Only the id, brand and model of the first televisions are loaded, shared by both combo boxes;
+     * the rest are found by typing in them.
      */
     public void refreshComboBox() {
-        mainController.view.televisionsComboBox.removeAllItems();
-        mainController.view.televisionsComboBox1.removeAllItems();
-        for (Television television : televisionTableModel.getTelevisions()) {
-            mainController.view.televisionsComboBox.addItem(television);
-            mainController.view.televisionsComboBox1.addItem(television);
-        }
+        AsyncModel.onEdt(mainController.asyncModel.getTelevisionSummaries("", TypeAhead.MAX_MATCHES), televisionSummaries::setAll);
     }
 
     /**
@@ -233,6 +275,41 @@ public class TelevisionController extends Controller {
         mainController.view.televisionSmartTv.setSelected(television.getIsSmart());
     }
 
+    /**
+     * Returns the search-as-you-type pipeline of the television search box,
+     * to tune its debounce window and read its statistics.
+     *
+     * @return The television search pipeline.
+     */
+    public SearchPipeline<List<Television>> getSearchPipeline() {
+        return searchPipeline;
+    }
+
+    /**
+     * Sets the filled fields on every selected television with a single update.
+     * The brand and model are left out, as together they identify each television,
+     * and so is the Smart TV checkbox, which cannot be left unfilled.
+     *
+     * @param ids the IDs of the selected televisions
+     */
+    private void modifySelected(List<ObjectId> ids) {
+        double price = ((Number) mainController.view.televisionPrice.getValue()).doubleValue();
+        int type = mainController.view.televisionType.getSelectedIndex();
+        BulkEdit edit = new BulkEdit()
+                .set("price", price > 0 ? price : null)
+                .set("releaseDate", mainController.view.televisionDate.getDate())
+                .set("type", type != -1 ? (short) type : null);
+        if (edit.isEmpty()) {
+            Util.showWarningDialog("Rellena el precio, la fecha o el tipo para modificar las televisiones seleccionadas.");
+            return;
+        }
+
+        AsyncModel.onEdt(mainController.asyncModel.modifyTelevisions(ids, edit), televisions -> {
+            refreshTable();
+            clearFields();
+        });
+    }
+
     /**
      * Clears all fields in the television form.
      */
@@ -0,0 +1,139 @@
+package com.raulrh.tiendatelevisiones.gui.controllers;
+
+import com.raulrh.tiendatelevisiones.entities.Summary;
+import com.raulrh.tiendatelevisiones.gui.models.SummaryListModel;
+import org.bson.types.ObjectId;
+
+import javax.swing.*;
+import javax.swing.plaf.basic.BasicComboBoxEditor;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+/**
+ * Type-ahead search for a combo box listing entity summaries.
+ * The combo box becomes editable: its editor shows the label of the selection, and the text typed in it is searched
+ * as a prefix of the labels in the database through a {@link SearchPipeline}. The popup shows only the first
+ * {@link #MAX_MATCHES} matches, while an empty text shows the shared list again. The entities are never all loaded into the combo box, and its size is computed
+ * from a prototype rather than by rendering every item.
+ * All methods are expected to be called on the Event Dispatch Thread.
+ */
+public class TypeAhead {
+    public static final int MAX_MATCHES = 50;
+
+    private static final Summary PROTOTYPE = new Summary(new ObjectId(), "XXXXXXXXXXXXXXXXXXXXXXXX");
+
+    private final JComboBox<Summary> comboBox;
+    private final SummaryListModel.Selection selection;
+    private final JTextField field;
+    private final SearchPipeline<List<Summary>> searchPipeline;
+
+    /**
+     * Constructs a TypeAhead and attaches it to the combo box, replacing its model with a view over the shared list.
+     *
+     * @param comboBox  The combo box to search from.
+     * @param summaries The list shared with other combo boxes of the same entity.
+     * @param search    The query returning the summaries whose label starts with a prefix, up to a limit.
+     */
+    public TypeAhead(JComboBox<Summary> comboBox, SummaryListModel summaries,
+                     BiFunction<String, Integer, CompletableFuture<List<Summary>>> search) {
+        this.comboBox = comboBox;
+        this.selection = summaries.newComboBoxModel();
+
+        comboBox.setModel(selection);
+        comboBox.setPrototypeDisplayValue(PROTOTYPE);
+        comboBox.setEditor(new SummaryEditor());
+        comboBox.setEditable(true);
+        field = (JTextField) comboBox.getEditor().getEditorComponent();
+
+        // The editor also changes when an item is selected, which must not start a search
+        searchPipeline = new SearchPipeline<>(field,
+                text -> text.isEmpty() || isSelectedText(text)
+                        ? CompletableFuture.completedFuture(null)
+                        : search.apply(text, MAX_MATCHES),
+                this::showMatches);
+    }
+
+    /**
+     * Selects an entity by id without scanning the items nor querying the database.
+     *
+     * @param id The id of the entity.
+     */
+    public void select(ObjectId id) {
+        selection.select(id);
+    }
+
+    /**
+     * Returns the id of the selected entity.
+     *
+     * @return The id, or {@code null} if nothing is selected.
+     */
+    public ObjectId getSelectedId() {
+        Summary selected = (Summary) selection.getSelectedItem();
+        return selected != null ? selected.id() : null;
+    }
+
+    /**
+     * Returns the search pipeline of the editor, to tune its debounce window and read its statistics.
+     *
+     * @return The search pipeline.
+     */
+    public SearchPipeline<List<Summary>> getSearchPipeline() {
+        return searchPipeline;
+    }
+
+    private boolean isSelectedText(String text) {
+        Summary selected = (Summary) selection.getSelectedItem();
+        return selected != null && text.equals(selected.label());
+    }
+
+    private void showMatches(List<Summary> matches) {
+        if (matches == null) {
+            if (field.getText().isBlank()) {
+                selection.showAll();
+            }
+            return;
+        }
+
+        selection.showMatches(matches);
+        if (field.isFocusOwner()) {
+            // Reopened so the popup takes the height of the new matches
+            comboBox.hidePopup();
+            if (!matches.isEmpty()) {
+                comboBox.showPopup();
+            }
+        }
+    }
+
+    /**
+     * Editor showing only the label of the selected summary, so the text typed over it is a prefix of labels,
+     * and turning the committed text into a summary: the current selection if the text is unchanged,
+     * the first match otherwise, or nothing if the text has been cleared.
+     */
+    private class SummaryEditor extends BasicComboBoxEditor {
+        @Override
+        public void setItem(Object item) {
+            super.setItem(item instanceof Summary summary ? summary.label() : item);
+        }
+
+        @Override
+        public Object getItem() {
+            String text = editor.getText().trim();
+            if (text.isEmpty()) {
+                return null;
+            }
+
+            Object selected = selection.getSelectedItem();
+            if (isSelectedText(text)) {
+                return selected;
+            }
+            if (selection.isShowingMatches() && selection.getSize() > 0) {
+                return selection.getElementAt(0);
+            }
+
+            // Nothing matches the text, so it is restored to the current selection
+            SwingUtilities.invokeLater(() -> setItem(selection.getSelectedItem()));
+            return selected;
+        }
+    }
+}
@@ -1,24 +1,22 @@
 package com.raulrh.tiendatelevisiones.gui.dialogs;
 
 import com.raulrh.tiendatelevisiones.entities.Customer;
-import com.raulrh.tiendatelevisiones.entities.Sale;
-import com.raulrh.tiendatelevisiones.gui.Model;
+import com.raulrh.tiendatelevisiones.gui.AsyncModel;
+import com.raulrh.tiendatelevisiones.gui.models.PagedTableModel.PageLoader;
 import com.raulrh.tiendatelevisiones.gui.models.SaleTableModel;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
 
 public class SaleDialog extends JDialog {
-    public SaleDialog(JFrame parent, Customer customer, Model model) {
+    public SaleDialog(JFrame parent, Customer customer, AsyncModel model) {
         super(parent, "Ventas de " + customer.toString(), true);
 
         setLayout(new GridLayout(1, 1));
 
-        List<Sale> customerSales = model.getSales().stream()
-                .filter(sale -> sale.getCustomerId().equals(customer.getId())).toList();
-
-        JTable ventasTable = new JTable(new SaleTableModel(customerSales));
+        JTable ventasTable = new JTable(new SaleTableModel(model, PageLoader.of(
+                m -> m.countSalesByCustomer(customer.getId()),
+                (m, after, skip, limit) -> m.getSalesByCustomer(customer.getId(), after, skip, limit))));
         JScrollPane ventasScroll = new JScrollPane(ventasTable);
         JPanel ventasPanel = new JPanel(new BorderLayout());
         ventasPanel.setBorder(BorderFactory.createTitledBorder("Ventas"));
@@ -1,43 +1,53 @@
 package com.raulrh.tiendatelevisiones.gui.dialogs;
 
-import com.raulrh.tiendatelevisiones.entities.Sale;
-import com.raulrh.tiendatelevisiones.entities.Stock;
 import com.raulrh.tiendatelevisiones.entities.Television;
-import com.raulrh.tiendatelevisiones.gui.Model;
+import com.raulrh.tiendatelevisiones.gui.AsyncModel;
+import com.raulrh.tiendatelevisiones.gui.models.PagedTableModel.PageLoader;
 import com.raulrh.tiendatelevisiones.gui.models.SaleTableModel;
 import com.raulrh.tiendatelevisiones.gui.models.StockTableModel;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
 
 public class SaleStockDialog extends JDialog {
-    public SaleStockDialog(JFrame parent, Television television, Model model) {
+    public SaleStockDialog(JFrame parent, Television television, AsyncModel model) {
         super(parent, "Ventas e Inventario de " + television.toString(), true);
 
-        setLayout(new GridLayout(2, 1));
+        setLayout(new BorderLayout());
 
-        List<Sale> televisionSales = model.getSales().stream()
-                .filter(sale -> sale.getTelevisionId().equals(television.getId())).toList();
+        // Shows the counter of the table row at once and then the one just read from the database
+        JLabel onHandLabel = new JLabel(onHandText(television.getOnHand()));
+        onHandLabel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        AsyncModel.onEdt(model.getOnHand(television.getId()), units -> onHandLabel.setText(onHandText(units)));
 
-        JTable ventasTable = new JTable(new SaleTableModel(televisionSales));
+        JTable ventasTable = new JTable(new SaleTableModel(model, PageLoader.of(
+                m -> m.countSalesByTelevision(television.getId()),
+                (m, after, skip, limit) -> m.getSalesByTelevision(television.getId(), after, skip, limit))));
         JScrollPane ventasScroll = new JScrollPane(ventasTable);
         JPanel ventasPanel = new JPanel(new BorderLayout());
         ventasPanel.setBorder(BorderFactory.createTitledBorder("Ventas"));
         ventasPanel.add(ventasScroll, BorderLayout.CENTER);
 
-        List<Stock> televisionStock = model.getStock().stream()
-                .filter(stock -> stock.getTelevisionId().equals(television.getId())).toList();
-        JTable inventarioTable = new JTable(new StockTableModel(televisionStock));
+        JTable inventarioTable = new JTable(new StockTableModel(model, PageLoader.of(
+                m -> m.countStockByTelevision(television.getId()),
+                (m, after, skip, limit) -> m.getStockByTelevision(television.getId(), after, skip, limit))));
         JScrollPane inventarioScroll = new JScrollPane(inventarioTable);
         JPanel inventarioPanel = new JPanel(new BorderLayout());
         inventarioPanel.setBorder(BorderFactory.createTitledBorder("Inventario"));
         inventarioPanel.add(inventarioScroll, BorderLayout.CENTER);
 
-        add(ventasPanel);
-        add(inventarioPanel);
+        JPanel tablesPanel = new JPanel(new GridLayout(2, 1));
+        tablesPanel.add(ventasPanel);
+        tablesPanel.add(inventarioPanel);
 
-        setSize(600, 300);
+        add(onHandLabel, BorderLayout.NORTH);
+        add(tablesPanel, BorderLayout.CENTER);
+
+        setSize(600, 320);
         setLocationRelativeTo(parent);
     }
+
+    private static String onHandText(Integer units) {
+        return "Existencias: " + (units != null ? units : 0) + " unidades";
+    }
 }
\ No newline at end of file
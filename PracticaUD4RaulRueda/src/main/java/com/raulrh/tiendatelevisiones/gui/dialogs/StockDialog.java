@@ -1,24 +1,22 @@
 package com.raulrh.tiendatelevisiones.gui.dialogs;
 
-import com.raulrh.tiendatelevisiones.entities.Stock;
 import com.raulrh.tiendatelevisiones.entities.Supplier;
-import com.raulrh.tiendatelevisiones.gui.Model;
+import com.raulrh.tiendatelevisiones.gui.AsyncModel;
+import com.raulrh.tiendatelevisiones.gui.models.PagedTableModel.PageLoader;
 import com.raulrh.tiendatelevisiones.gui.models.StockTableModel;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
 
 public class StockDialog extends JDialog {
-    public StockDialog(JFrame parent, Supplier supplier, Model model) {
+    public StockDialog(JFrame parent, Supplier supplier, AsyncModel model) {
         super(parent, "Stock de " + supplier.toString(), true);
 
         setLayout(new GridLayout(1, 1));
 
-        List<Stock> supplierStock = model.getStock().stream()
-                .filter(stock -> stock.getSupplierId().equals(supplier.getId())).toList();
-
-        JTable stockTable = new JTable(new StockTableModel(supplierStock));
+        JTable stockTable = new JTable(new StockTableModel(model, PageLoader.of(
+                m -> m.countStockBySupplier(supplier.getId()),
+                (m, after, skip, limit) -> m.getStockBySupplier(supplier.getId(), after, skip, limit))));
         JScrollPane stockScroll = new JScrollPane(stockTable);
         JPanel stockPanel = new JPanel(new BorderLayout());
         stockPanel.setBorder(BorderFactory.createTitledBorder("Stock"));
@@ -3,43 +3,26 @@ package com.raulrh.tiendatelevisiones.gui.models;
 import com.raulrh.tiendatelevisiones.base.enums.CustomerType;
 import com.raulrh.tiendatelevisiones.entities.Customer;
 
-import javax.swing.table.AbstractTableModel;
 import java.util.List;
 
-public class CustomerTableModel extends AbstractTableModel {
-    private final String[] columnNames = {"ID", "Nombre", "Apellido", "Email", "Teléfono", "Fecha de Registro", "Tipo"};
-    private final List<Customer> customers;
+public class CustomerTableModel extends EntityTableModel<Customer> {
+    private static final String[] COLUMN_NAMES = {"ID", "Nombre", "Apellido", "Email", "Teléfono", "Fecha de Registro", "Tipo"};
 
     public CustomerTableModel(List<Customer> customers) {
-        this.customers = customers;
-    }
-
-    @Override
-    public int getRowCount() {
-        return customers.size();
-    }
-
-    @Override
-    public int getColumnCount() {
-        return columnNames.length;
-    }
-
-    @Override
-    public String getColumnName(int column) {
-        return columnNames[column];
+        super(COLUMN_NAMES, customers, Customer::getId);
     }
 
     public Customer getCustomer(int rowIndex) {
-        return customers.get(rowIndex);
+        return getRow(rowIndex);
     }
 
     public List<Customer> getCustomers() {
-        return customers;
+        return getRows();
     }
 
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        Customer customer = customers.get(rowIndex);
+        Customer customer = getRow(rowIndex);
         return switch (columnIndex) {
             case 0 -> customer.getId();
             case 1 -> customer.getFirstName();
@@ -0,0 +1,139 @@
+package com.raulrh.tiendatelevisiones.gui.models;
+
+import org.bson.types.ObjectId;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Base table model for a list of entities identified by an {@link ObjectId}.
+ * Besides being filled at once, it supports inserting, updating and removing single rows,
+ * notifying the table only about the rows that changed. The row of each entity is kept in a map by id, so finding
+ * it does not scan the rows.
+ *
+ * @param <T> The type of the entities shown in the table.
+ */
+public abstract class EntityTableModel<T> extends AbstractTableModel {
+    private final String[] columnNames;
+    private final List<T> rows;
+    private final Function<T, ObjectId> idOf;
+    private final Map<ObjectId, Integer> rowsById = new HashMap<>();
+
+    protected EntityTableModel(String[] columnNames, List<T> rows, Function<T, ObjectId> idOf) {
+        this.columnNames = columnNames;
+        this.rows = new ArrayList<>(rows);
+        this.idOf = idOf;
+        reindexFrom(0);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    protected T getRow(int rowIndex) {
+        return rows.get(rowIndex);
+    }
+
+    protected List<T> getRows() {
+        return Collections.unmodifiableList(rows);
+    }
+
+    /**
+     * Returns the row showing the entity with the given id.
+     *
+     * @param id The id of the entity.
+     * @return The index of the row, or -1 if the entity is not shown.
+     */
+    public int indexOf(ObjectId id) {
+        return rowsById.getOrDefault(id, -1);
+    }
+
+    /**
+     * Appends a row for the entity, or updates its row if it is already shown.
+     *
+     * @param entity The entity to show.
+     */
+    public void addRow(T entity) {
+        int index = indexOf(idOf.apply(entity));
+        if (index != -1) {
+            rows.set(index, entity);
+            fireTableRowsUpdated(index, index);
+            return;
+        }
+
+        rows.add(entity);
+        rowsById.put(idOf.apply(entity), rows.size() - 1);
+        fireTableRowsInserted(rows.size() - 1, rows.size() - 1);
+    }
+
+    /**
+     * Replaces the row of the entity with its new state. Entities not shown are ignored.
+     *
+     * @param entity The entity to update.
+     */
+    public void updateRow(T entity) {
+        int index = indexOf(idOf.apply(entity));
+        if (index != -1) {
+            rows.set(index, entity);
+            fireTableRowsUpdated(index, index);
+        }
+    }
+
+    /**
+     * Removes the row of the entity with the given id, if shown.
+     *
+     * @param id The id of the entity.
+     */
+    public void removeRow(ObjectId id) {
+        int index = indexOf(id);
+        if (index != -1) {
+            rows.remove(index);
+            rowsById.remove(id);
+            reindexFrom(index);
+            fireTableRowsDeleted(index, index);
+        }
+    }
+
+    /**
+     * Removes every row whose entity matches the condition.
+     *
+     * @param condition The condition of the rows to remove.
+     */
+    public void removeRows(Predicate<T> condition) {
+        int first = rows.size();
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            if (condition.test(rows.get(i))) {
+                rowsById.remove(idOf.apply(rows.remove(i)));
+                fireTableRowsDeleted(i, i);
+                first = i;
+            }
+        }
+        reindexFrom(first);
+    }
+
+    /**
+     * Records the row of every entity from the given one on, whose rows shifted.
+     */
+    private void reindexFrom(int first) {
+        for (int i = first; i < rows.size(); i++) {
+            rowsById.put(idOf.apply(rows.get(i)), i);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.raulrh.tiendatelevisiones.gui.models;
+
+import com.raulrh.tiendatelevisiones.gui.AsyncModel;
+import com.raulrh.tiendatelevisiones.gui.Model;
+import org.bson.types.ObjectId;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Base table model that loads its rows lazily, in fixed-size pages, as the table asks for them.
+ * Only the total count is known upfront; pages are fetched in the background and kept in a bounded LRU cache,
+ * and the page following the one the table asked for is prefetched. A page starts from the last row of the
+ * nearest earlier page loaded, so scrolling reads each page with a range on the sort key instead of skipping every
+ * row before it. Those last rows are kept after their pages are evicted, up to {@link #MAX_START_ROWS}, dropping
+ * the ones farthest from the page last loaded. All methods are expected to be called on the Event Dispatch Thread.
+ *
+ * @param <T> The type of the entities shown in the table.
+ */
+public abstract class PagedTableModel<T> extends AbstractTableModel {
+    public static final int PAGE_SIZE = 100;
+    public static final int MAX_CACHED_PAGES = 20;
+    public static final int MAX_START_ROWS = 4 * MAX_CACHED_PAGES;
+    public static final int RELOAD_DELAY_MS = 200;
+
+    private final String[] columnNames;
+    private final AsyncModel asyncModel;
+    private final PageLoader<T> loader;
+    private final Function<T, ObjectId> idOf;
+
+    private final Map<Integer, List<T>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>();
+    // Last row of every page loaded, the starting point of the pages after it
+    private final TreeMap<Integer, T> lastRows = new TreeMap<>();
+    // Rows added and removed since the last reload, so the same change received twice is applied once
+    private final Set<ObjectId> added = new HashSet<>();
+    private final Set<ObjectId> removed = new HashSet<>();
+    private final Timer reloadTimer;
+    private int rowCount;
+    // Bumped to discard the responses of counts and page loads that are no longer valid
+    private long countGeneration;
+    private long pageGeneration;
+
+    /**
+     * Source of the rows of a {@link PagedTableModel}. Its methods run on a background thread.
+     *
+     * @param <T> The type of the entities loaded.
+     */
+    public interface PageLoader<T> {
+        long count(Model model);
+
+        /**
+         * Loads a page of rows.
+         *
+         * @param model The model to query.
+         * @param after The row the page starts after, or {@code null} to start from the first row.
+         * @param skip  The number of rows to skip after it.
+         * @param limit The maximum number of rows to load.
+         * @return The rows of the page.
+         */
+        List<T> load(Model model, T after, int skip, int limit);
+
+        /**
+         * Returns a loader made of a count query and a page query.
+         */
+        static <T> PageLoader<T> of(ToLongFunction<Model> count, PageQuery<T> query) {
+            return new PageLoader<>() {
+                @Override
+                public long count(Model model) {
+                    return count.applyAsLong(model);
+                }
+
+                @Override
+                public List<T> load(Model model, T after, int skip, int limit) {
+                    return query.load(model, after, skip, limit);
+                }
+            };
+        }
+
+        /**
+         * Returns a loader serving the rows of an in-memory list.
+         */
+        static <T> PageLoader<T> of(List<T> rows) {
+            return new PageLoader<>() {
+                @Override
+                public long count(Model model) {
+                    return rows.size();
+                }
+
+                @Override
+                public List<T> load(Model model, T after, int skip, int limit) {
+                    int start = (after != null ? rows.indexOf(after) + 1 : 0) + skip;
+                    return rows.subList(Math.min(start, rows.size()), Math.min(start + limit, rows.size()));
+                }
+            };
+        }
+    }
+
+    /**
+     * Query returning a page of rows, to build a {@link PageLoader} from a lambda.
+     *
+     * @param <T> The type of the entities loaded.
+     */
+    @FunctionalInterface
+    public interface PageQuery<T> {
+        List<T> load(Model model, T after, int skip, int limit);
+    }
+
+    protected PagedTableModel(String[] columnNames, AsyncModel asyncModel, PageLoader<T> loader, Function<T, ObjectId> idOf) {
+        this.columnNames = columnNames;
+        this.asyncModel = asyncModel;
+        this.loader = loader;
+        this.idOf = idOf;
+
+        // Removals of rows not loaded usually come in bursts, such as cascade deletes
+        reloadTimer = new Timer(RELOAD_DELAY_MS, e -> reload());
+        reloadTimer.setRepeats(false);
+        reload();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        T row = getRow(rowIndex);
+        return row != null ? getColumnValue(row, columnIndex) : null;
+    }
+
+    /**
+     * Returns the value of a column for a loaded row.
+     *
+     * @param row         The entity shown in the row.
+     * @param columnIndex The index of the column.
+     * @return The value of the cell.
+     */
+    protected abstract Object getColumnValue(T row, int columnIndex);
+
+    /**
+     * Resolves whatever the rows reference before they are shown, such as the names of foreign keys.
+     * It runs on a background thread, once per page, so rendering never has to query the database.
+     *
+     * @param rows The rows about to be shown.
+     */
+    protected void resolveReferences(List<T> rows) {
+    }
+
+    /**
+     * Returns whether the references of the rows are already resolved.
+     *
+     * @param rows The rows to check.
+     * @return {@code true} if {@link #resolveReferences(List)} has nothing to fetch for them.
+     */
+    protected boolean isResolved(List<T> rows) {
+        return true;
+    }
+
+    /**
+     * Resolves the references of a row added or updated outside a page load, repainting it afterwards.
+     */
+    private void resolveLater(T entity) {
+        if (isResolved(List.of(entity))) {
+            return;
+        }
+
+        ObjectId id = idOf.apply(entity);
+        AsyncModel.onEdt(asyncModel.execute(m -> resolveReferences(List.of(entity))), ignored -> {
+            int index = indexOf(id);
+            if (index != -1) {
+                fireTableRowsUpdated(index, index);
+            }
+        });
+    }
+
+    /**
+     * Returns the entity of a row, requesting its page if it is not loaded yet.
+     *
+     * @param rowIndex The index of the row.
+     * @return The entity, or {@code null} while its page is being loaded.
+     */
+    protected T getRow(int rowIndex) {
+        int page = rowIndex / PAGE_SIZE;
+        List<T> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page, false);
+            return null;
+        }
+
+        int offset = rowIndex % PAGE_SIZE;
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    /**
+     * Discards every loaded page and counts the rows again.
+     */
+    public void reload() {
+        countGeneration++;
+        pageGeneration++;
+        pages.clear();
+        loading.clear();
+        lastRows.clear();
+        added.clear();
+        removed.clear();
+        reloadTimer.stop();
+
+        long current = countGeneration;
+        AsyncModel.onEdt(asyncModel.submit(loader::count), count -> {
+            if (current != countGeneration) {
+                return;
+            }
+
+            rowCount = (int) Math.min(count, Integer.MAX_VALUE);
+            fireTableDataChanged();
+        });
+    }
+
+    /**
+     * Loads a page in the background, starting from the last row of the nearest earlier page loaded.
+     *
+     * @param page     The index of the page.
+     * @param prefetch Whether the table has not asked for the page yet, so it does not prefetch the next one.
+     */
+    private void requestPage(int page, boolean prefetch) {
+        if (page * PAGE_SIZE >= rowCount || pages.containsKey(page) || !loading.add(page)) {
+            return;
+        }
+
+        Map.Entry<Integer, T> start = lastRows.lowerEntry(page);
+        T after = start != null ? start.getValue() : null;
+        int skip = (page - (start != null ? start.getKey() + 1 : 0)) * PAGE_SIZE;
+
+        long current = pageGeneration;
+        AsyncModel.onEdt(asyncModel.submit(m -> {
+            List<T> rows = loader.load(m, after, skip, PAGE_SIZE);
+            resolveReferences(rows);
+            return rows;
+        }), rows -> {
+            if (current != pageGeneration) {
+                return;
+            }
+
+            loading.remove(page);
+            pages.put(page, new ArrayList<>(rows));
+            if (rows.size() == PAGE_SIZE) {
+                lastRows.put(page, rows.getLast());
+                if (lastRows.size() > MAX_START_ROWS) {
+                    lastRows.remove(page - lastRows.firstKey() > lastRows.lastKey() - page ? lastRows.firstKey() : lastRows.lastKey());
+                }
+            }
+
+            int first = page * PAGE_SIZE;
+            int last = Math.min(first + PAGE_SIZE, rowCount) - 1;
+            if (first <= last) {
+                fireTableRowsUpdated(first, last);
+            }
+
+            // Prefetch the page the user is most likely to scroll to next
+            if (!prefetch) {
+                requestPage(page + 1, true);
+            }
+        }).exceptionally(error -> {
+            // The set is only touched on the EDT, where the page may be requested again
+            SwingUtilities.invokeLater(() -> {
+                if (current == pageGeneration) {
+                    loading.remove(page);
+                }
+            });
+            return null;
+        });
+    }
+
+    /**
+     * Returns the row showing the entity with the given id, looking only at the loaded pages.
+     *
+     * @param id The id of the entity.
+     * @return The index of the row, or -1 if the entity is not loaded.
+     */
+    public int indexOf(ObjectId id) {
+        for (Map.Entry<Integer, List<T>> entry : pages.entrySet()) {
+            List<T> rows = entry.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                if (idOf.apply(rows.get(i)).equals(id)) {
+                    return entry.getKey() * PAGE_SIZE + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Appends a row for a new entity at the end of the table, or updates its row if it has already been added.
+     *
+     * @param entity The entity to show.
+     */
+    public void addRow(T entity) {
+        ObjectId id = idOf.apply(entity);
+        if (added.contains(id) || indexOf(id) != -1) {
+            updateRow(entity);
+            return;
+        }
+        added.add(id);
+
+        int page = rowCount / PAGE_SIZE;
+        List<T> rows = pages.get(page);
+        if (rows != null && rows.size() == rowCount % PAGE_SIZE) {
+            rows.add(entity);
+        } else {
+            pages.remove(page);
+        }
+
+        rowCount++;
+        fireTableRowsInserted(rowCount - 1, rowCount - 1);
+        resolveLater(entity);
+    }
+
+    /**
+     * Replaces the row of the entity with its new state, if loaded.
+     *
+     * @param entity The entity to update.
+     */
+    public void updateRow(T entity) {
+        int index = indexOf(idOf.apply(entity));
+        if (index != -1) {
+            pages.get(index / PAGE_SIZE).set(index % PAGE_SIZE, entity);
+            fireTableRowsUpdated(index, index);
+            resolveLater(entity);
+        }
+    }
+
+    /**
+     * Removes the row of the entity with the given id. The following pages shift, so they are loaded again.
+     * If the row is not loaded its position is unknown, so the whole table is loaded again shortly after.
+     *
+     * @param id The id of the entity.
+     */
+    public void removeRow(ObjectId id) {
+        if (!removed.add(id)) {
+            return;
+        }
+
+        int index = indexOf(id);
+        if (index == -1) {
+            reloadTimer.restart();
+            return;
+        }
+
+        int page = index / PAGE_SIZE;
+        pages.keySet().removeIf(key -> key >= page);
+        lastRows.tailMap(page, true).clear();
+        loading.clear();
+        pageGeneration++;
+        rowCount--;
+        fireTableRowsDeleted(index, index);
+    }
+}
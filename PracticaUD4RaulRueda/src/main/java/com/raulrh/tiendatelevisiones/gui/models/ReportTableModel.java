@@ -0,0 +1,84 @@
+package com.raulrh.tiendatelevisiones.gui.models;
+
+import com.raulrh.tiendatelevisiones.gui.Revenue;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Table model showing the rows of a revenue report. The first column holds the group of each row,
+ * labelled by the report shown, so the same table serves every report.
+ */
+public class ReportTableModel extends AbstractTableModel {
+    private static final String[] COLUMN_NAMES = {"", "Ventas", "Unidades", "Ingresos"};
+
+    private final List<Revenue<?>> rows = new ArrayList<>();
+    private String keyName = "";
+    private Function<Object, String> labelOf = String::valueOf;
+
+    /**
+     * Replaces the rows shown by those of a report.
+     *
+     * @param keyName The header of the group column.
+     * @param report  The rows of the report.
+     * @param labelOf The label shown for the group of a row.
+     * @param <K>     The type of the group key.
+     */
+    @SuppressWarnings("unchecked")
+    public <K> void setReport(String keyName, List<Revenue<K>> report, Function<K, String> labelOf) {
+        boolean renamed = !this.keyName.equals(keyName);
+        this.keyName = keyName;
+        this.labelOf = key -> labelOf.apply((K) key);
+        rows.clear();
+        rows.addAll(report);
+
+        if (renamed) {
+            fireTableStructureChanged();
+        } else {
+            fireTableDataChanged();
+        }
+    }
+
+    public void clear() {
+        rows.clear();
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return column == 0 ? keyName : COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        return switch (columnIndex) {
+            case 1, 2 -> Long.class;
+            case 3 -> Double.class;
+            default -> String.class;
+        };
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Revenue<?> row = rows.get(rowIndex);
+        return switch (columnIndex) {
+            case 0 -> labelOf.apply(row.key());
+            case 1 -> row.sales();
+            case 2 -> row.units();
+            case 3 -> row.revenue();
+            default -> null;
+        };
+    }
+}
@@ -1,51 +1,49 @@
 package com.raulrh.tiendatelevisiones.gui.models;
 
-import com.raulrh.tiendatelevisiones.entities.Sale;
+import com.raulrh.tiendatelevisiones.entities.Customer;
+import com.raulrh.tiendatelevisiones.entities.SaleRow;
+import com.raulrh.tiendatelevisiones.entities.Television;
+import com.raulrh.tiendatelevisiones.gui.AsyncModel;
+import com.raulrh.tiendatelevisiones.gui.ReferenceResolver;
 
-import javax.swing.table.AbstractTableModel;
 import java.util.List;
 
-public class SaleTableModel extends AbstractTableModel {
-    private final String[] columnNames = {"ID", "Cliente", "Televisión", "Fecha de Venta", "Cantidad", "Total"};
-    private final List<Sale> sales;
+public class SaleTableModel extends PagedTableModel<SaleRow> {
+    private static final String[] COLUMN_NAMES = {"ID", "Cliente", "Televisión", "Fecha de Venta", "Cantidad", "Total"};
+    private final ReferenceResolver<Customer> customerNames;
+    private final ReferenceResolver<Television> televisionNames;
 
-    public SaleTableModel(List<Sale> sales) {
-        this.sales = sales;
+    public SaleTableModel(AsyncModel asyncModel, PageLoader<SaleRow> loader) {
+        super(COLUMN_NAMES, asyncModel, loader, SaleRow::id);
+        customerNames = asyncModel.getCustomerNames();
+        televisionNames = asyncModel.getTelevisionNames();
     }
 
-    @Override
-    public int getRowCount() {
-        return sales.size();
+    public SaleRow getSale(int rowIndex) {
+        return getRow(rowIndex);
     }
 
     @Override
-    public int getColumnCount() {
-        return columnNames.length;
+    protected void resolveReferences(List<SaleRow> rows) {
+        customerNames.resolve(rows.stream().map(SaleRow::customerId).toList());
+        televisionNames.resolve(rows.stream().map(SaleRow::televisionId).toList());
     }
 
     @Override
-    public String getColumnName(int column) {
-        return columnNames[column];
-    }
-
-    public Sale getSale(int rowIndex) {
-        return sales.get(rowIndex);
-    }
-
-    public List<Sale> getSales() {
-        return sales;
+    protected boolean isResolved(List<SaleRow> rows) {
+        return customerNames.isResolved(rows.stream().map(SaleRow::customerId).toList())
+                && televisionNames.isResolved(rows.stream().map(SaleRow::televisionId).toList());
     }
 
     @Override
-    public Object getValueAt(int rowIndex, int columnIndex) {
-        Sale sale = sales.get(rowIndex);
+    protected Object getColumnValue(SaleRow sale, int columnIndex) {
         return switch (columnIndex) {
-            case 0 -> sale.getId();
-            case 1 -> sale.getCustomerId();
-            case 2 -> sale.getTelevisionId();
-            case 3 -> sale.getSaleDate();
-            case 4 -> sale.getQuantity();
-            case 5 -> sale.getTotal();
+            case 0 -> sale.id();
+            case 1 -> customerNames.getName(sale.customerId());
+            case 2 -> televisionNames.getName(sale.televisionId());
+            case 3 -> sale.saleDate();
+            case 4 -> sale.quantity();
+            case 5 -> sale.total();
             default -> null;
         };
     }
@@ -1,50 +1,48 @@
 package com.raulrh.tiendatelevisiones.gui.models;
 
-import com.raulrh.tiendatelevisiones.entities.Stock;
+import com.raulrh.tiendatelevisiones.entities.StockRow;
+import com.raulrh.tiendatelevisiones.entities.Supplier;
+import com.raulrh.tiendatelevisiones.entities.Television;
+import com.raulrh.tiendatelevisiones.gui.AsyncModel;
+import com.raulrh.tiendatelevisiones.gui.ReferenceResolver;
 
-import javax.swing.table.AbstractTableModel;
 import java.util.List;
 
-public class StockTableModel extends AbstractTableModel {
-    private final String[] columnNames = {"ID", "Televisión", "Proveedor", "Cantidad", "Fecha de Entrada"};
-    private final List<Stock> stockList;
+public class StockTableModel extends PagedTableModel<StockRow> {
+    private static final String[] COLUMN_NAMES = {"ID", "Televisión", "Proveedor", "Cantidad", "Fecha de Entrada"};
+    private final ReferenceResolver<Television> televisionNames;
+    private final ReferenceResolver<Supplier> supplierNames;
 
-    public StockTableModel(List<Stock> stockList) {
-        this.stockList = stockList;
+    public StockTableModel(AsyncModel asyncModel, PageLoader<StockRow> loader) {
+        super(COLUMN_NAMES, asyncModel, loader, StockRow::id);
+        televisionNames = asyncModel.getTelevisionNames();
+        supplierNames = asyncModel.getSupplierNames();
     }
 
-    @Override
-    public int getRowCount() {
-        return stockList.size();
+    public StockRow getStock(int rowIndex) {
+        return getRow(rowIndex);
     }
 
     @Override
-    public int getColumnCount() {
-        return columnNames.length;
+    protected void resolveReferences(List<StockRow> rows) {
+        televisionNames.resolve(rows.stream().map(StockRow::televisionId).toList());
+        supplierNames.resolve(rows.stream().map(StockRow::supplierId).toList());
     }
 
     @Override
-    public String getColumnName(int column) {
-        return columnNames[column];
-    }
-
-    public Stock getStock(int rowIndex) {
-        return stockList.get(rowIndex);
-    }
-
-    public List<Stock> getStockList() {
-        return stockList;
+    protected boolean isResolved(List<StockRow> rows) {
+        return televisionNames.isResolved(rows.stream().map(StockRow::televisionId).toList())
+                && supplierNames.isResolved(rows.stream().map(StockRow::supplierId).toList());
     }
 
     @Override
-    public Object getValueAt(int rowIndex, int columnIndex) {
-        Stock stock = stockList.get(rowIndex);
+    protected Object getColumnValue(StockRow stock, int columnIndex) {
         return switch (columnIndex) {
-            case 0 -> stock.getId();
-            case 1 -> stock.getTelevisionId();
-            case 2 -> stock.getSupplierId();
-            case 3 -> stock.getQuantity();
-            case 4 -> stock.getEntryDate();
+            case 0 -> stock.id();
+            case 1 -> televisionNames.getName(stock.televisionId());
+            case 2 -> supplierNames.getName(stock.supplierId());
+            case 3 -> stock.quantity();
+            case 4 -> stock.entryDate();
             default -> null;
         };
     }
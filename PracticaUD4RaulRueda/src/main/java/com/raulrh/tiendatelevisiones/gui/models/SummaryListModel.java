@@ -0,0 +1,293 @@
+package com.raulrh.tiendatelevisiones.gui.models;
+
+import com.raulrh.tiendatelevisiones.entities.Summary;
+import org.bson.types.ObjectId;
+
+import javax.swing.*;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * List of entity summaries shared by several combo boxes.
+ * The items are held once, with a hash index by id so that finding an entity never scans the list.
+ * Each combo box gets its own view through {@link #newComboBoxModel()}, which adds the selection and can show
+ * the matches of a type-ahead query instead of the shared items, while following every change made to them.
+ */
+public class SummaryListModel extends AbstractListModel<Summary> {
+    private final IndexedList items = new IndexedList();
+    private final List<Selection> selections = new ArrayList<>();
+    private final Function<ObjectId, String> labelOf;
+
+    /**
+     * Constructs a SummaryListModel.
+     *
+     * @param labelOf The label of an entity that is not listed, used to select it by id without querying.
+     */
+    public SummaryListModel(Function<ObjectId, String> labelOf) {
+        this.labelOf = labelOf;
+    }
+
+    @Override
+    public int getSize() {
+        return items.size();
+    }
+
+    @Override
+    public Summary getElementAt(int index) {
+        return items.get(index);
+    }
+
+    public int indexOf(ObjectId id) {
+        return items.indexOf(id);
+    }
+
+    public void setAll(List<Summary> summaries) {
+        int size = items.size();
+        items.setAll(summaries);
+        if (size > 0) {
+            fireIntervalRemoved(this, 0, size - 1);
+        }
+        if (!items.isEmpty()) {
+            fireIntervalAdded(this, 0, items.size() - 1);
+        }
+        selections.forEach(selection -> selection.sharedReset(size));
+    }
+
+    /**
+     * Adds a summary, or replaces the summary with the same id keeping its position.
+     *
+     * @param summary The summary to show.
+     */
+    public void put(Summary summary) {
+        int replaced = items.indexOf(summary.id());
+        if (replaced != -1) {
+            items.set(replaced, summary);
+            fireContentsChanged(this, replaced, replaced);
+        } else {
+            items.add(summary);
+            fireIntervalAdded(this, items.size() - 1, items.size() - 1);
+        }
+
+        int index = replaced != -1 ? replaced : items.size() - 1;
+        selections.forEach(selection -> selection.sharedPut(index, replaced == -1, summary));
+    }
+
+    public void remove(ObjectId id) {
+        int index = items.remove(id);
+        if (index != -1) {
+            fireIntervalRemoved(this, index, index);
+        }
+        selections.forEach(selection -> selection.sharedRemoved(index, id));
+    }
+
+    /**
+     * Returns a new combo box model over the shared list, with a selection of its own.
+     *
+     * @return The combo box model.
+     */
+    public Selection newComboBoxModel() {
+        Selection selection = new Selection();
+        selections.add(selection);
+        return selection;
+    }
+
+    /**
+     * List of summaries with the position of each id, kept up to date on every change.
+     */
+    private static class IndexedList {
+        private final List<Summary> list = new ArrayList<>();
+        private final Map<ObjectId, Integer> positions = new HashMap<>();
+
+        int size() {
+            return list.size();
+        }
+
+        boolean isEmpty() {
+            return list.isEmpty();
+        }
+
+        Summary get(int index) {
+            return list.get(index);
+        }
+
+        Summary get(ObjectId id) {
+            Integer index = positions.get(id);
+            return index != null ? list.get(index) : null;
+        }
+
+        int indexOf(ObjectId id) {
+            Integer index = positions.get(id);
+            return index != null ? index : -1;
+        }
+
+        void setAll(List<Summary> summaries) {
+            list.clear();
+            positions.clear();
+            summaries.forEach(this::add);
+        }
+
+        void add(Summary summary) {
+            positions.put(summary.id(), list.size());
+            list.add(summary);
+        }
+
+        void set(int index, Summary summary) {
+            list.set(index, summary);
+        }
+
+        int remove(ObjectId id) {
+            Integer index = positions.remove(id);
+            if (index == null) {
+                return -1;
+            }
+
+            list.remove((int) index);
+            for (int i = index; i < list.size(); i++) {
+                positions.put(list.get(i).id(), i);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Combo box model over the shared list. It shows either the shared items or the matches of a query.
+     */
+    public class Selection extends AbstractListModel<Summary> implements ComboBoxModel<Summary> {
+        // null while the shared items are shown
+        private IndexedList matches;
+        private Summary selected;
+
+        private IndexedList view() {
+            return matches != null ? matches : items;
+        }
+
+        @Override
+        public int getSize() {
+            return view().size();
+        }
+
+        @Override
+        public Summary getElementAt(int index) {
+            return view().get(index);
+        }
+
+        /**
+         * Shows the given matches instead of the shared items.
+         *
+         * @param summaries The matches to show.
+         */
+        public void showMatches(List<Summary> summaries) {
+            IndexedList list = new IndexedList();
+            list.setAll(summaries);
+            replaceView(list);
+        }
+
+        /**
+         * Shows the shared items again.
+         */
+        public void showAll() {
+            if (matches != null) {
+                replaceView(null);
+            }
+        }
+
+        public boolean isShowingMatches() {
+            return matches != null;
+        }
+
+        private void replaceView(IndexedList list) {
+            int size = getSize();
+            matches = list;
+            if (size > 0) {
+                fireIntervalRemoved(this, 0, size - 1);
+            }
+            if (getSize() > 0) {
+                fireIntervalAdded(this, 0, getSize() - 1);
+            }
+        }
+
+        /**
+         * Selects an entity by id. A listed entity is found through the index; any other is selected with
+         * the label given by the list, so selecting never scans the items nor queries the database.
+         *
+         * @param id The id of the entity.
+         */
+        public void select(ObjectId id) {
+            Summary summary = items.get(id);
+            if (summary == null && matches != null) {
+                summary = matches.get(id);
+            }
+            setSelectedItem(summary != null ? summary : new Summary(id, labelOf.apply(id)));
+        }
+
+        @Override
+        public void setSelectedItem(Object item) {
+            // Only summaries can be selected; text typed in an editable combo box is resolved by its editor
+            if (item != null && !(item instanceof Summary)) {
+                return;
+            }
+
+            if (!Objects.equals(selected, item)) {
+                selected = (Summary) item;
+                fireContentsChanged(this, -1, -1);
+            }
+        }
+
+        @Override
+        public Object getSelectedItem() {
+            return selected;
+        }
+
+        private void sharedReset(int size) {
+            if (matches != null) {
+                return;
+            }
+            if (size > 0) {
+                fireIntervalRemoved(this, 0, size - 1);
+            }
+            if (!items.isEmpty()) {
+                fireIntervalAdded(this, 0, items.size() - 1);
+            }
+        }
+
+        private void sharedPut(int index, boolean added, Summary summary) {
+            if (matches == null) {
+                if (added) {
+                    fireIntervalAdded(this, index, index);
+                } else {
+                    fireContentsChanged(this, index, index);
+                }
+            } else {
+                int position = matches.indexOf(summary.id());
+                if (position != -1) {
+                    matches.set(position, summary);
+                    fireContentsChanged(this, position, position);
+                }
+            }
+
+            // Keep the selection pointing to the current summary of the selected entity
+            if (selected != null && selected.id().equals(summary.id()) && !selected.equals(summary)) {
+                selected = summary;
+                fireContentsChanged(this, -1, -1);
+            }
+        }
+
+        private void sharedRemoved(int index, ObjectId id) {
+            if (matches == null) {
+                if (index != -1) {
+                    fireIntervalRemoved(this, index, index);
+                }
+            } else {
+                int position = matches.remove(id);
+                if (position != -1) {
+                    fireIntervalRemoved(this, position, position);
+                }
+            }
+
+            if (selected != null && selected.id().equals(id)) {
+                selected = null;
+                fireContentsChanged(this, -1, -1);
+            }
+        }
+    }
+}
@@ -2,43 +2,26 @@ package com.raulrh.tiendatelevisiones.gui.models;
 
 import com.raulrh.tiendatelevisiones.entities.Supplier;
 
-import javax.swing.table.AbstractTableModel;
 import java.util.List;
 
-public class SupplierTableModel extends AbstractTableModel {
-    private final String[] columnNames = {"ID", "Nombre", "Teléfono", "Dirección", "Correo Electrónico"};
-    private final List<Supplier> suppliers;
+public class SupplierTableModel extends EntityTableModel<Supplier> {
+    private static final String[] COLUMN_NAMES = {"ID", "Nombre", "Teléfono", "Dirección", "Correo Electrónico"};
 
     public SupplierTableModel(List<Supplier> suppliers) {
-        this.suppliers = suppliers;
-    }
-
-    @Override
-    public int getRowCount() {
-        return suppliers.size();
-    }
-
-    @Override
-    public int getColumnCount() {
-        return columnNames.length;
-    }
-
-    @Override
-    public String getColumnName(int column) {
-        return columnNames[column];
+        super(COLUMN_NAMES, suppliers, Supplier::getId);
     }
 
     public Supplier getSupplier(int rowIndex) {
-        return suppliers.get(rowIndex);
+        return getRow(rowIndex);
     }
 
     public List<Supplier> getSuppliers() {
-        return suppliers;
+        return getRows();
     }
 
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        Supplier supplier = suppliers.get(rowIndex);
+        Supplier supplier = getRow(rowIndex);
         return switch (columnIndex) {
             case 0 -> supplier.getId();
             case 1 -> supplier.getName();
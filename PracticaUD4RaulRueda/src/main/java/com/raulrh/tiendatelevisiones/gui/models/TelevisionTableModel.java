@@ -3,43 +3,26 @@ package com.raulrh.tiendatelevisiones.gui.models;
 import com.raulrh.tiendatelevisiones.base.enums.TelevisionType;
 import com.raulrh.tiendatelevisiones.entities.Television;
 
-import javax.swing.table.AbstractTableModel;
 import java.util.List;
 
-public class TelevisionTableModel extends AbstractTableModel {
-    private final String[] columnNames = {"ID", "Modelo", "Marca", "Precio", "Fecha de lanzamiento", "Tipo", "Smart TV"};
-    private final List<Television> televisions;
+public class TelevisionTableModel extends EntityTableModel<Television> {
+    private static final String[] COLUMN_NAMES = {"ID", "Modelo", "Marca", "Precio", "Fecha de lanzamiento", "Tipo", "Smart TV", "Existencias"};
 
     public TelevisionTableModel(List<Television> televisions) {
-        this.televisions = televisions;
-    }
-
-    @Override
-    public int getRowCount() {
-        return televisions.size();
-    }
-
-    @Override
-    public int getColumnCount() {
-        return columnNames.length;
-    }
-
-    @Override
-    public String getColumnName(int column) {
-        return columnNames[column];
+        super(COLUMN_NAMES, televisions, Television::getId);
     }
 
     public Television getTelevision(int rowIndex) {
-        return televisions.get(rowIndex);
+        return getRow(rowIndex);
     }
 
     public List<Television> getTelevisions() {
-        return televisions;
+        return getRows();
     }
 
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        Television tv = televisions.get(rowIndex);
+        Television tv = getRow(rowIndex);
         return switch (columnIndex) {
             case 0 -> tv.getId();
             case 1 -> tv.getModel();
@@ -48,6 +31,7 @@ public class TelevisionTableModel extends AbstractTableModel {
             case 4 -> tv.getReleaseDate();
             case 5 -> TelevisionType.fromCode(tv.getType());
             case 6 -> tv.getIsSmart() ? "Sí" : "No";
+            case 7 -> tv.getOnHand() != null ? tv.getOnHand() : 0;
             default -> null;
         };
     }
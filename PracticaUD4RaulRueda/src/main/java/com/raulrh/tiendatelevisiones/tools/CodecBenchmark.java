@@ -0,0 +1,164 @@
+package com.raulrh.tiendatelevisiones.tools;
+
+import com.mongodb.MongoClientSettings;
+import com.raulrh.tiendatelevisiones.entities.Sale;
+import com.raulrh.tiendatelevisiones.entities.Television;
+import com.raulrh.tiendatelevisiones.entities.codecs.EntityCodecProvider;
+import org.bson.*;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+import static org.bson.codecs.configuration.CodecRegistries.fromProviders;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
+/**
+ * Measures the decode throughput of the hand-written entity codecs against the automatic POJO codec.
+ * Documents are generated in memory with the layout written by the seed script, including the
+ * {@code saleIds} and {@code stockIds} arrays, so no database is needed.
+ * <p>
+ * Usage: {@code CodecBenchmark [documents] [rounds]}
+ */
+public class CodecBenchmark {
+    private static final int DEFAULT_DOCUMENTS = 100_000;
+    private static final int DEFAULT_ROUNDS = 10;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int BACK_REFERENCES = 20;
+
+    public static void main(String[] args) {
+        int documents = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DOCUMENTS;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+
+        CodecRegistry pojoRegistry = fromRegistries(
+                MongoClientSettings.getDefaultCodecRegistry(),
+                fromProviders(PojoCodecProvider.builder().automatic(true).build()));
+        CodecRegistry entityRegistry = fromRegistries(
+                MongoClientSettings.getDefaultCodecRegistry(),
+                fromProviders(new EntityCodecProvider()));
+
+        Random random = new Random(42);
+        List<byte[]> televisions = generate(documents, entityRegistry.get(Television.class), i -> television(random));
+        List<byte[]> sales = generate(documents, entityRegistry.get(Sale.class), i -> sale(random));
+        List<byte[]> televisionsWithReferences = withBackReferences(televisions, random);
+
+        System.out.printf("%,d documents, %d rounds%n%n", documents, rounds);
+        System.out.printf("%-28s %15s %15s %8s%n", "Documents", "POJO (docs/s)", "Codec (docs/s)", "Speedup");
+        compare("televisions", televisionsWithReferences, pojoRegistry.get(Television.class), entityRegistry.get(Television.class), rounds);
+        compare("sales", sales, pojoRegistry.get(Sale.class), entityRegistry.get(Sale.class), rounds);
+    }
+
+    private static <T> void compare(String name, List<byte[]> documents, Codec<T> pojo, Codec<T> codec, int rounds) {
+        double pojoThroughput = measure(documents, pojo, rounds);
+        double codecThroughput = measure(documents, codec, rounds);
+        System.out.printf("%-28s %,15.0f %,15.0f %7.2fx%n", name, pojoThroughput, codecThroughput, codecThroughput / pojoThroughput);
+    }
+
+    /**
+     * Decodes every document the given number of rounds, after warming up, and returns the best throughput.
+     */
+    private static <T> double measure(List<byte[]> documents, Codec<T> codec, int rounds) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            decodeAll(documents, codec);
+        }
+
+        double best = 0;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            decodeAll(documents, codec);
+            long elapsed = System.nanoTime() - start;
+            best = Math.max(best, documents.size() / (elapsed / 1e9));
+        }
+        return best;
+    }
+
+    private static <T> int decodeAll(List<byte[]> documents, Codec<T> codec) {
+        int decoded = 0;
+        DecoderContext context = DecoderContext.builder().build();
+        for (byte[] document : documents) {
+            try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(document))) {
+                if (codec.decode(reader, context) != null) {
+                    decoded++;
+                }
+            }
+        }
+        return decoded;
+    }
+
+    private static <T> List<byte[]> generate(int count, Codec<T> codec, IntFunction<T> factory) {
+        List<byte[]> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BasicOutputBuffer buffer = new BasicOutputBuffer();
+            try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+                codec.encode(writer, factory.apply(i), EncoderContext.builder().build());
+            }
+            documents.add(buffer.toByteArray());
+        }
+        return documents;
+    }
+
+    /**
+     * Appends the back-reference arrays the seed script and Model maintain, which the entities do not map.
+     */
+    private static List<byte[]> withBackReferences(List<byte[]> documents, Random random) {
+        List<byte[]> result = new ArrayList<>(documents.size());
+        for (byte[] document : documents) {
+            BsonDocument copy = new BsonDocument();
+            copy.putAll(new RawBsonDocument(document));
+            copy.put("saleIds", ids(random.nextInt(BACK_REFERENCES + 1)));
+            copy.put("stockIds", ids(random.nextInt(BACK_REFERENCES + 1)));
+            result.add(toBytes(copy));
+        }
+        return result;
+    }
+
+    private static BsonArray ids(int count) {
+        BsonArray array = new BsonArray();
+        for (int i = 0; i < count; i++) {
+            array.add(new BsonObjectId(new ObjectId()));
+        }
+        return array;
+    }
+
+    private static byte[] toBytes(BsonDocument document) {
+        RawBsonDocument raw = new RawBsonDocument(document, new BsonDocumentCodec());
+        ByteBuffer buffer = raw.getByteBuffer().asNIO();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static Television television(Random random) {
+        Television television = new Television();
+        television.setId(new ObjectId());
+        television.setModel("Model " + random.nextInt(100_000));
+        television.setBrand(new String[]{"Sony", "Samsung", "LG", "Philips", "TCL"}[random.nextInt(5)]);
+        television.setPrice(200 + random.nextDouble() * 2_000);
+        television.setReleaseDate(LocalDate.of(2015, 1, 1).plusDays(random.nextInt(3_650)));
+        television.setType((short) random.nextInt(4));
+        television.setIsSmart(random.nextBoolean());
+        return television;
+    }
+
+    private static Sale sale(Random random) {
+        Sale sale = new Sale();
+        sale.setId(new ObjectId());
+        sale.setCustomerId(new ObjectId());
+        sale.setTelevisionId(new ObjectId());
+        sale.setSaleDate(LocalDate.of(2020, 1, 1).plusDays(random.nextInt(1_800)));
+        sale.setQuantity(1 + random.nextInt(5));
+        sale.setTotal(200 + random.nextDouble() * 5_000);
+        return sale;
+    }
+}
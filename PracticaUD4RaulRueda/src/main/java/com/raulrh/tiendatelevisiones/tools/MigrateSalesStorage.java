@@ -0,0 +1,48 @@
+package com.raulrh.tiendatelevisiones.tools;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import com.raulrh.tiendatelevisiones.base.enums.SalesStorage;
+import com.raulrh.tiendatelevisiones.gui.IndexManager;
+import com.raulrh.tiendatelevisiones.gui.Model;
+import com.raulrh.tiendatelevisiones.gui.SalesStorageMigration;
+
+/**
+ * Moves the sales of the database of the application between a standard collection and a time-series
+ * collection, through {@link SalesStorageMigration}, and creates the indexes of the new collection. The application
+ * must be closed while it runs, as the sales written meanwhile would be lost. It opens a client of its own rather
+ * than a {@link Model}, so none of its background work touches the sales while they are moved. It exits with
+ * status 1 if the sales cannot be moved.
+ * <p>
+ * Usage: {@code MigrateSalesStorage STANDARD|TIME_SERIES}
+ */
+public class MigrateSalesStorage {
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.out.println("Usage: MigrateSalesStorage STANDARD|TIME_SERIES");
+            System.exit(1);
+        }
+        SalesStorage storage = SalesStorage.valueOf(args[0]);
+
+        boolean failed = false;
+        try (MongoClient client = MongoClients.create(Model.clientSettings().build())) {
+            MongoDatabase database = client.getDatabase(Model.DATABASE);
+            SalesStorageMigration migration = new SalesStorageMigration(() -> database);
+
+            long start = System.nanoTime();
+            // Moving nothing still restores the sales left aside by an interrupted migration
+            long copied = migration.migrate(storage);
+            System.out.printf("Moved %,d sales to: %s in %,d ms%n", copied, migration.detect(),
+                    (System.nanoTime() - start) / 1_000_000);
+            new IndexManager().createMissingIndexes(database).join();
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+            failed = true;
+        }
+
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.raulrh.tiendatelevisiones.tools;
+
+import com.raulrh.tiendatelevisiones.entities.Sale;
+import com.raulrh.tiendatelevisiones.entities.SaleRow;
+import com.raulrh.tiendatelevisiones.entities.codecs.SaleCodec;
+import com.raulrh.tiendatelevisiones.entities.codecs.SaleRowCodec;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares a full scan of the sales decoded into {@link Sale} entities and into {@link SaleRow} rows:
+ * bytes allocated while decoding, heap retained by the result and garbage collections triggered.
+ * Documents are generated in memory, so no database is needed.
+ * <p>
+ * Usage: {@code RowFootprint [documents]}
+ */
+public class RowFootprint {
+    private static final int DEFAULT_DOCUMENTS = 1_000_000;
+    private static final int CUSTOMERS = 10_000;
+    private static final int TELEVISIONS = 500;
+
+    public static void main(String[] args) {
+        int documents = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DOCUMENTS;
+        List<byte[]> sales = generate(documents);
+
+        // Warm up both codecs before measuring
+        scan(sales.subList(0, Math.min(sales.size(), 50_000)), new SaleCodec());
+        scan(sales.subList(0, Math.min(sales.size(), 50_000)), new SaleRowCodec());
+
+        System.out.printf("%,d sales%n%n", documents);
+        System.out.printf("%-10s %18s %18s %8s %10s%n", "Type", "Allocated (B/row)", "Retained (B/row)", "GCs", "GC (ms)");
+        report("Sale", sales, new SaleCodec());
+        report("SaleRow", sales, new SaleRowCodec());
+    }
+
+    private static <T> void report(String name, List<byte[]> documents, Codec<T> codec) {
+        long retainedBefore = usedHeap();
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTime();
+        long allocatedBefore = allocatedBytes();
+
+        List<T> rows = scan(documents, codec);
+
+        long allocated = allocatedBytes() - allocatedBefore;
+        long gcs = gcCount() - gcCountBefore;
+        long gcMillis = gcTime() - gcTimeBefore;
+        long retained = usedHeap() - retainedBefore;
+
+        System.out.printf("%-10s %,18.1f %,18.1f %8d %10d%n", name,
+                (double) allocated / rows.size(), (double) retained / rows.size(), gcs, gcMillis);
+    }
+
+    private static <T> List<T> scan(List<byte[]> documents, Codec<T> codec) {
+        List<T> rows = new ArrayList<>(documents.size());
+        DecoderContext context = DecoderContext.builder().build();
+        for (byte[] document : documents) {
+            try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(document))) {
+                rows.add(codec.decode(reader, context));
+            }
+        }
+        return rows;
+    }
+
+    private static List<byte[]> generate(int count) {
+        Random random = new Random(42);
+        ObjectId[] customers = ids(CUSTOMERS);
+        ObjectId[] televisions = ids(TELEVISIONS);
+        SaleCodec codec = new SaleCodec();
+
+        List<byte[]> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Sale sale = new Sale();
+            sale.setId(new ObjectId());
+            sale.setCustomerId(customers[random.nextInt(CUSTOMERS)]);
+            sale.setTelevisionId(televisions[random.nextInt(TELEVISIONS)]);
+            sale.setSaleDate(LocalDate.of(2020, 1, 1).plusDays(random.nextInt(1_800)));
+            sale.setQuantity(1 + random.nextInt(5));
+            sale.setTotal(200 + random.nextDouble() * 5_000);
+
+            BasicOutputBuffer buffer = new BasicOutputBuffer();
+            try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+                codec.encode(writer, sale, EncoderContext.builder().build());
+            }
+            documents.add(buffer.toByteArray());
+        }
+        return documents;
+    }
+
+    private static ObjectId[] ids(int count) {
+        ObjectId[] ids = new ObjectId[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = new ObjectId();
+        }
+        return ids;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getCurrentThreadAllocatedBytes();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+}
@@ -0,0 +1,181 @@
+package com.raulrh.tiendatelevisiones.tools;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.*;
+import com.raulrh.tiendatelevisiones.entities.Sale;
+import com.raulrh.tiendatelevisiones.gui.Model;
+import com.raulrh.tiendatelevisiones.gui.SalesStorageMigration;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Compares the sales stored in a standard collection against a time-series collection: latency of the queries by
+ * date range, and size on disk of the documents and indexes. The same generated sales are written to two scratch
+ * collections of the database of the application, with the indexes the application declares for them, and both are
+ * dropped once it finishes. Time-series collections require MongoDB 7.0.
+ * <p>
+ * Usage: {@code SalesStorageBenchmark [sales]}
+ */
+public class SalesStorageBenchmark {
+    private static final int DEFAULT_SALES = 1_000_000;
+    private static final int CUSTOMERS = 50_000;
+    private static final int TELEVISIONS = 2_000;
+    private static final int BATCH_SIZE = 10_000;
+    private static final int RUNS = 10;
+
+    private static final String STANDARD = "bench_sales_standard";
+    private static final String TIME_SERIES = "bench_sales_timeseries";
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SALES;
+        Model model = new Model();
+        model.connect();
+        MongoDatabase db = model.getDatabase();
+
+        try {
+            db.getCollection(STANDARD).drop();
+            db.getCollection(TIME_SERIES).drop();
+            db.createCollection(STANDARD);
+            SalesStorageMigration.createTimeSeries(db, TIME_SERIES);
+            MongoCollection<Sale> standard = db.getCollection(STANDARD, Sale.class);
+            MongoCollection<Sale> timeSeries = db.getCollection(TIME_SERIES, Sale.class);
+
+            List<ObjectId> televisions = load(count, standard, timeSeries);
+            createIndexes(standard, false);
+            createIndexes(timeSeries, true);
+
+            System.out.printf("%n%-34s %14s %14s%n", "Size (KiB)", "Standard", "Time series");
+            Document standardStats = storageStats(standard);
+            Document timeSeriesStats = storageStats(timeSeries);
+            for (String field : List.of("storageSize", "totalIndexSize")) {
+                System.out.printf("%-34s %,14d %,14d%n", field,
+                        standardStats.get(field, Number.class).longValue() / 1024,
+                        timeSeriesStats.get(field, Number.class).longValue() / 1024);
+            }
+
+            LocalDate month = LocalDate.of(2024, 3, 1);
+            LocalDate year = LocalDate.of(2024, 1, 1);
+            ObjectId television = televisions.getFirst();
+            System.out.printf("%n%-34s %14s %14s%n", "Query, best of " + RUNS + " (ms)", "Standard", "Time series");
+            compare("Count, one month", standard, timeSeries,
+                    sales -> sales.countDocuments(between(month, month.plusMonths(1))));
+            compare("Count, one year", standard, timeSeries,
+                    sales -> sales.countDocuments(between(year, year.plusYears(1))));
+            compare("Revenue by day, one month", standard, timeSeries,
+                    sales -> revenueByDay(sales, between(month, month.plusMonths(1))));
+            compare("Revenue, one year", standard, timeSeries,
+                    sales -> revenueByDay(sales, between(year, year.plusYears(1))).size());
+            compare("One television, one year", standard, timeSeries,
+                    sales -> sales.find(Filters.and(Filters.eq("televisionId", television), between(year, year.plusYears(1))))
+                            .into(new ArrayList<>()).size());
+        } finally {
+            db.getCollection(STANDARD).drop();
+            db.getCollection(TIME_SERIES).drop();
+            model.close();
+        }
+    }
+
+    /**
+     * Writes the same generated sales to both collections, in batches, and returns the televisions sold.
+     */
+    private static List<ObjectId> load(int count, MongoCollection<Sale> standard, MongoCollection<Sale> timeSeries) {
+        Random random = new Random(42);
+        List<ObjectId> customers = ids(CUSTOMERS);
+        List<ObjectId> televisions = ids(TELEVISIONS);
+        LocalDate firstDay = LocalDate.of(2020, 1, 1);
+
+        long standardTime = 0;
+        long timeSeriesTime = 0;
+        List<Sale> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            Sale sale = new Sale();
+            sale.setId(new ObjectId());
+            sale.setCustomerId(customers.get(random.nextInt(CUSTOMERS)));
+            sale.setTelevisionId(televisions.get(random.nextInt(TELEVISIONS)));
+            sale.setSaleDate(firstDay.plusDays(random.nextInt(1_800)));
+            sale.setQuantity(1 + random.nextInt(5));
+            sale.setTotal(200 + random.nextDouble() * 5_000);
+            batch.add(sale);
+
+            if (batch.size() == BATCH_SIZE || i == count - 1) {
+                long start = System.nanoTime();
+                standard.insertMany(batch);
+                standardTime += System.nanoTime() - start;
+                start = System.nanoTime();
+                timeSeries.insertMany(batch);
+                timeSeriesTime += System.nanoTime() - start;
+                batch.clear();
+            }
+        }
+        System.out.printf("Inserted %,d sales: standard %,d ms, time series %,d ms%n", count,
+                standardTime / 1_000_000, timeSeriesTime / 1_000_000);
+        return televisions;
+    }
+
+    /**
+     * Creates the indexes the application declares for the sales. Time-series collections also need the one on
+     * {@code _id} that standard collections have by default.
+     */
+    private static void createIndexes(MongoCollection<Sale> sales, boolean timeSeries) {
+        if (timeSeries) {
+            sales.createIndex(Indexes.ascending("_id"), new IndexOptions().name("id"));
+        }
+        sales.createIndex(Indexes.ascending("saleDate", "_id"), new IndexOptions().name("saleDate_id"));
+        sales.createIndex(Indexes.ascending("customerId", "_id"), new IndexOptions().name("customerId_id"));
+        sales.createIndex(Indexes.ascending("televisionId", "_id"), new IndexOptions().name("televisionId_id"));
+    }
+
+    private static Document storageStats(MongoCollection<?> collection) {
+        Document stats = collection.aggregate(List.of(
+                new Document("$collStats", new Document("storageStats", new Document()))), Document.class).first();
+        return stats.get("storageStats", Document.class);
+    }
+
+    private static Bson between(LocalDate from, LocalDate to) {
+        return Filters.and(Filters.gte("saleDate", from), Filters.lt("saleDate", to));
+    }
+
+    private static List<Document> revenueByDay(MongoCollection<Sale> sales, Bson filter) {
+        return sales.aggregate(List.of(
+                Aggregates.match(filter),
+                Aggregates.group("$saleDate", Accumulators.sum("revenue", "$total"), Accumulators.sum("units", "$quantity"))
+        ), Document.class).into(new ArrayList<>());
+    }
+
+    private static void compare(String name, MongoCollection<Sale> standard, MongoCollection<Sale> timeSeries,
+                                Function<MongoCollection<Sale>, ?> query) {
+        System.out.printf("%-34s %14.1f %14.1f%n", name, best(() -> query.apply(standard)), best(() -> query.apply(timeSeries)));
+    }
+
+    private static double best(Supplier<?> query) {
+        // The first runs warm up the JIT and the cache of the server
+        for (int i = 0; i < 3; i++) {
+            query.get();
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            query.get();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+
+    private static List<ObjectId> ids(int count) {
+        List<ObjectId> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(new ObjectId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,84 @@
+package com.raulrh.tiendatelevisiones.tools;
+
+import com.raulrh.tiendatelevisiones.analytics.SalesColumnStore;
+import com.raulrh.tiendatelevisiones.analytics.SalesFilter;
+import com.raulrh.tiendatelevisiones.entities.SaleRow;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Measures the analytics queries of {@link SalesColumnStore} over generated sales: revenue by month, top sellers
+ * and filtered totals. Sales are appended in memory, so no database is needed.
+ * <p>
+ * Usage: {@code SalesStoreBenchmark [sales]}
+ */
+public class SalesStoreBenchmark {
+    private static final int DEFAULT_SALES = 5_000_000;
+    private static final int CUSTOMERS = 50_000;
+    private static final int TELEVISIONS = 2_000;
+    private static final int RUNS = 10;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SALES;
+        SalesColumnStore store = new SalesColumnStore();
+
+        long start = System.nanoTime();
+        SalesColumnStore.Snapshot snapshot = store.append(generate(count));
+        System.out.printf("Loaded %,d sales in %,d ms%n%n", snapshot.size(), (System.nanoTime() - start) / 1_000_000);
+
+        SalesFilter lastYear = SalesFilter.between(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        System.out.printf("%-34s %12s %12s%n", "Query", "Best (ms)", "Mean (ms)");
+        time("Revenue by month", () -> snapshot.revenueByMonth(SalesFilter.ALL));
+        time("Revenue by month, one year", () -> snapshot.revenueByMonth(lastYear));
+        time("Top 10 televisions", () -> snapshot.topTelevisions(10, SalesFilter.ALL));
+        time("Top 10 customers, one year", () -> snapshot.topCustomers(10, lastYear));
+        ObjectId television = snapshot.topTelevisions(1, SalesFilter.ALL).getFirst().id();
+        time("Revenue of one television", () -> snapshot.revenue(SalesFilter.ALL.withTelevision(television)));
+    }
+
+    private static void time(String name, Supplier<?> query) {
+        // The first runs warm up the JIT and the fork/join pool
+        for (int i = 0; i < 3; i++) {
+            query.get();
+        }
+
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            query.get();
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            total += elapsed;
+        }
+        System.out.printf("%-34s %12.1f %12.1f%n", name, best / 1e6, total / 1e6 / RUNS);
+    }
+
+    private static List<SaleRow> generate(int count) {
+        Random random = new Random(42);
+        ObjectId[] customers = ids(CUSTOMERS);
+        ObjectId[] televisions = ids(TELEVISIONS);
+        int firstDay = (int) LocalDate.of(2020, 1, 1).toEpochDay();
+
+        List<SaleRow> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new SaleRow(new ObjectId(), customers[random.nextInt(CUSTOMERS)],
+                    televisions[random.nextInt(TELEVISIONS)], firstDay + random.nextInt(1_800),
+                    1 + random.nextInt(5), 200 + random.nextDouble() * 5_000));
+        }
+        return rows;
+    }
+
+    private static ObjectId[] ids(int count) {
+        ObjectId[] ids = new ObjectId[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = new ObjectId();
+        }
+        return ids;
+    }
+}
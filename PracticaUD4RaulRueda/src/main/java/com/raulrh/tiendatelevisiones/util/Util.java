@@ -1,11 +1,12 @@
 package com.raulrh.tiendatelevisiones.util;
 
-import com.raulrh.tiendatelevisiones.entities.Customer;
-import com.raulrh.tiendatelevisiones.entities.Supplier;
-import com.raulrh.tiendatelevisiones.entities.Television;
+import com.raulrh.tiendatelevisiones.entities.Summary;
+import com.raulrh.tiendatelevisiones.gui.models.SummaryListModel;
 import org.bson.types.ObjectId;
 
 import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The Util class provides utility methods for displaying warning and confirmation dialogs.
@@ -21,6 +22,15 @@ public class Util {
         JOptionPane.showMessageDialog(null, message, "Advertencia", JOptionPane.WARNING_MESSAGE);
     }
 
+    /**
+     * Displays an error dialog with the given message.
+     *
+     * @param message the message to display in the error dialog
+     */
+    public static void showErrorDialog(String message) {
+        JOptionPane.showMessageDialog(null, message, "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
     /**
      * Displays a confirmation dialog with the given message and title.
      * It returns the user's choice (either "Si" or "No").
@@ -37,50 +47,32 @@ public class Util {
     }
 
     /**
-     * Selects a television from the JComboBox that matches the given ID.
+     * Selects the item of the JComboBox that matches the given ID.
+     * The item is found through the index of its SummaryListModel, without scanning the items.
      *
-     * @param comboBox the JComboBox containing Television objects
-     * @param id       the ID of the Television to be selected
+     * @param comboBox the JComboBox backed by a SummaryListModel
+     * @param id       the ID of the entity to be selected
      */
-    public static void setSelectedTelevision(JComboBox<Television> comboBox, ObjectId id) {
-        for (int i = 0; i < comboBox.getItemCount(); i++) {
-            Television television = comboBox.getItemAt(i);
-            if (television.getId().equals(id)) {
-                comboBox.setSelectedItem(television);
-                break;
-            }
-        }
-    }
-
-    /**
-     * Selects a customer from the JComboBox that matches the given ID.
-     *
-     * @param comboBox the JComboBox containing Customer objects
-     * @param id       the ID of the Customer to be selected
-     */
-    public static void setSelectedCustomer(JComboBox<Customer> comboBox, ObjectId id) {
-        for (int i = 0; i < comboBox.getItemCount(); i++) {
-            Customer customer = comboBox.getItemAt(i);
-            if (customer.getId().equals(id)) {
-                comboBox.setSelectedItem(customer);
-                break;
-            }
+    public static void setSelectedItem(JComboBox<Summary> comboBox, ObjectId id) {
+        if (comboBox.getModel() instanceof SummaryListModel.Selection selection) {
+            selection.select(id);
         }
     }
 
     /**
-     * Selects a supplier from the JComboBox that matches the given ID.
+     * Returns the IDs of the selected rows of a table, read from its first column.
+     * Rows whose data is not loaded yet are left out.
      *
-     * @param comboBox the JComboBox containing Supplier objects
-     * @param id       the ID of the Supplier to be selected
+     * @param table the JTable whose first column holds the IDs
+     * @return the IDs of the selected rows, in table order
      */
-    public static void setSelectedSupplier(JComboBox<Supplier> comboBox, ObjectId id) {
-        for (int i = 0; i < comboBox.getItemCount(); i++) {
-            Supplier supplier = comboBox.getItemAt(i);
-            if (supplier.getId().equals(id)) {
-                comboBox.setSelectedItem(supplier);
-                break;
+    public static List<ObjectId> getSelectedIds(JTable table) {
+        List<ObjectId> ids = new ArrayList<>();
+        for (int row : table.getSelectedRows()) {
+            if (table.getValueAt(row, 0) instanceof ObjectId id) {
+                ids.add(id);
             }
         }
+        return ids;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,45 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.mongodb.MongoClientSettings;
+import com.raulrh.tiendatelevisiones.entities.Sale;
+import com.raulrh.tiendatelevisiones.entities.codecs.EntityCodecProvider;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BulkEditTest {
+    private static final CodecRegistry REGISTRY = CodecRegistries.fromRegistries(
+            MongoClientSettings.getDefaultCodecRegistry(), CodecRegistries.fromProviders(new EntityCodecProvider()));
+
+    @Test
+    void derivesTheStateAfterTheEdit() {
+        Sale sale = new Sale();
+        sale.setId(new ObjectId());
+        sale.setCustomerId(new ObjectId());
+        sale.setTelevisionId(new ObjectId());
+        sale.setSaleDate(LocalDate.of(2024, 3, 1));
+        sale.setQuantity(2);
+        sale.setTotal(400.0);
+        ObjectId television = new ObjectId();
+
+        BulkEdit edit = new BulkEdit()
+                .set("televisionId", television)
+                .set("saleDate", LocalDate.of(2024, 3, 2))
+                .set("quantity", 3)
+                .set("total", " ");
+        Sale after = edit.applyTo(sale, Sale.class, REGISTRY);
+
+        assertEquals(sale.getId(), after.getId());
+        assertEquals(sale.getCustomerId(), after.getCustomerId());
+        assertEquals(television, after.getTelevisionId());
+        assertEquals(LocalDate.of(2024, 3, 2), after.getSaleDate());
+        assertEquals(3, after.getQuantity());
+        assertEquals(400.0, after.getTotal());
+        assertEquals(2, sale.getQuantity());
+    }
+}
@@ -0,0 +1,190 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.raulrh.tiendatelevisiones.base.enums.SalesStorage;
+import com.raulrh.tiendatelevisiones.entities.Customer;
+import com.raulrh.tiendatelevisiones.entities.Sale;
+import com.raulrh.tiendatelevisiones.entities.Stock;
+import com.raulrh.tiendatelevisiones.entities.Supplier;
+import com.raulrh.tiendatelevisiones.entities.Television;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the number of round trips taken by each sale and stock write of {@link Model} against its budget, counted
+ * by its {@link RoundTripCounter}, with batches large enough to need several cursor batches if they were read with
+ * the default batch size. The writes run against the database of the application on a customer, two televisions and
+ * two suppliers created for the check, which are deleted with everything they reference once it finishes. It is
+ * skipped when no MongoDB server is available.
+ */
+@Tag("mongodb")
+class ModelRoundTripsTest {
+    private static final int BATCH = 500;
+
+    private static Model model;
+    private static RoundTripCounter counter;
+    // A transaction takes one more round trip to commit
+    private static int commit;
+    // Time-series collections do not support findAndModify, so a sale is read before it is updated or deleted
+    private static int read;
+
+    private static Customer customer;
+    private static Television first;
+    private static Television second;
+    private static Supplier supplierOne;
+    private static Supplier supplierTwo;
+
+    @BeforeAll
+    static void connect() {
+        try (MongoClient client = MongoClients.create(Model.clientSettings()
+                .applyToClusterSettings(cluster -> cluster.serverSelectionTimeout(2, TimeUnit.SECONDS))
+                .build())) {
+            client.getDatabase(Model.DATABASE).runCommand(new Document("ping", 1));
+        } catch (MongoException e) {
+            Assumptions.abort("No MongoDB server available: " + e.getMessage());
+        }
+
+        model = new Model();
+        model.connect();
+        counter = model.getRoundTrips();
+        commit = model.isTransactional() ? 1 : 0;
+        read = model.getSalesStorage() == SalesStorage.TIME_SERIES ? 1 : 0;
+
+        String suffix = new ObjectId().toHexString();
+        customer = model.addCustomer("Round", "Trips", "roundtrips-" + suffix + "@example.com", "600000000",
+                LocalDate.now(), (short) 0).entity();
+        first = model.addTelevision("RT-1-" + suffix, "RoundTrips", 100, LocalDate.now(), (short) 0, false).entity();
+        second = model.addTelevision("RT-2-" + suffix, "RoundTrips", 200, LocalDate.now(), (short) 0, false).entity();
+        supplierOne = model.addSupplier("RoundTrips 1", "600000001", "-", "roundtrips-1-" + suffix + "@example.com").entity();
+        supplierTwo = model.addSupplier("RoundTrips 2", "600000002", "-", "roundtrips-2-" + suffix + "@example.com").entity();
+    }
+
+    @AfterAll
+    static void close() {
+        if (model == null) {
+            return;
+        }
+        model.deleteCustomer(customer.getId());
+        model.deleteTelevisions(List.of(first.getId(), second.getId()));
+        model.deleteSuppliers(List.of(supplierOne.getId(), supplierTwo.getId()));
+        model.close();
+    }
+
+    @Test
+    void saleWrites() {
+        // Insert, customers, televisions and rollup
+        Sale sale = assertTrips("addSale", 4 + commit,
+                () -> model.addSale(customer.getId(), first.getId(), LocalDate.now(), 2, 200).entity());
+        // Update, televisions and rollup; the customer does not change
+        assertTrips("modifySale, same television", 3 + read + commit,
+                () -> model.modifySale(sale.getId(), customer.getId(), first.getId(), LocalDate.now(), 3, 300));
+        assertTrips("modifySale, other television", 3 + read + commit,
+                () -> model.modifySale(sale.getId(), customer.getId(), second.getId(), LocalDate.now(), 3, 600));
+        // Delete, customers, televisions and rollup
+        assertTrips("deleteSale", 4 + read + commit, () -> model.deleteSale(sale.getId()));
+    }
+
+    @Test
+    void saleBatches() {
+        List<Sale> sales = assertTrips("addSales", 4 + commit, () -> model.addSales(newSales()));
+        List<ObjectId> ids = sales.stream().map(Sale::getId).toList();
+
+        // Without a transaction each sale is updated on its own, returning its previous state
+        int updates = model.isTransactional() ? 3 : BATCH * (1 + read);
+        assertTrips("modifySales", updates + 3 + commit, () -> model.modifySales(ids, new BulkEdit().set("quantity", 2)));
+        // Read, delete, customers, televisions and rollup
+        assertTrips("deleteSales", 5 + commit, () -> model.deleteSales(ids));
+    }
+
+    @Test
+    void stockWrites() {
+        // Insert, televisions and suppliers
+        Stock stock = assertTrips("addStock", 3 + commit,
+                () -> model.addStock(first.getId(), supplierOne.getId(), LocalDate.now(), 10).entity());
+        // Update and televisions; the supplier does not change
+        assertTrips("modifyStock, same references", 2 + commit,
+                () -> model.modifyStock(stock.getId(), first.getId(), supplierOne.getId(), LocalDate.now(), 12));
+        assertTrips("modifyStock, other references", 3 + commit,
+                () -> model.modifyStock(stock.getId(), second.getId(), supplierTwo.getId(), LocalDate.now(), 12));
+        assertTrips("deleteStock", 3 + commit, () -> model.deleteStock(stock.getId()));
+    }
+
+    @Test
+    void stockBatches() {
+        List<Stock> entries = assertTrips("addStockEntries", 3 + commit, () -> model.addStockEntries(newEntries(first)));
+        List<ObjectId> ids = entries.stream().map(Stock::getId).toList();
+
+        int updates = model.isTransactional() ? 3 : BATCH;
+        assertTrips("modifyStockEntries", updates + 2 + commit,
+                () -> model.modifyStockEntries(ids, new BulkEdit().set("quantity", 4)));
+        // Read, delete, televisions and suppliers
+        assertTrips("deleteStockEntries", 4 + commit, () -> model.deleteStockEntries(ids));
+    }
+
+    @Test
+    void televisionCascade() {
+        String suffix = new ObjectId().toHexString();
+        Television television = model.addTelevision("RT-3-" + suffix, "RoundTrips", 300, LocalDate.now(), (short) 0, false).entity();
+        model.addSales(newSales(television));
+        model.addStockEntries(newEntries(television));
+
+        // Read the sales and the stock, write customers and suppliers, delete sales, stock, rollup and televisions
+        assertTrips("deleteTelevisions", 8 + commit, () -> model.deleteTelevisions(List.of(television.getId())));
+    }
+
+    private static <T> T assertTrips(String name, int budget, java.util.function.Supplier<T> write) {
+        List<T> result = new ArrayList<>(1);
+        int trips = counter.count(() -> result.add(write.get()));
+        assertTrue(trips <= budget, name + " took " + trips + " round trips, over its budget of " + budget);
+        return result.getFirst();
+    }
+
+    private static void assertTrips(String name, int budget, Runnable write) {
+        assertTrips(name, budget, () -> {
+            write.run();
+            return null;
+        });
+    }
+
+    private static List<Sale> newSales(Television... televisions) {
+        Television[] targets = televisions.length > 0 ? televisions : new Television[]{first, second};
+        List<Sale> sales = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            Sale sale = new Sale();
+            sale.setCustomerId(customer.getId());
+            sale.setTelevisionId(targets[i % targets.length].getId());
+            sale.setSaleDate(LocalDate.now().minusDays(i % 30));
+            sale.setQuantity(1);
+            sale.setTotal(targets[i % targets.length].getPrice());
+            sales.add(sale);
+        }
+        return sales;
+    }
+
+    private static List<Stock> newEntries(Television television) {
+        List<Stock> entries = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            Stock stock = new Stock();
+            stock.setTelevisionId(television.getId());
+            stock.setSupplierId((i % 2 == 0 ? supplierOne : supplierTwo).getId());
+            stock.setEntryDate(LocalDate.now().minusDays(i % 30));
+            stock.setQuantity(5);
+            entries.add(stock);
+        }
+        return entries;
+    }
+}
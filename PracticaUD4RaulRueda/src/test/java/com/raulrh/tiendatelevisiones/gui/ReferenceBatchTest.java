@@ -0,0 +1,103 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.raulrh.tiendatelevisiones.base.enums.ReferenceMode;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReferenceBatchTest {
+    private final ObjectId first = new ObjectId();
+    private final ObjectId second = new ObjectId();
+
+    @Test
+    void groupsTheChangesOfEachDocumentInOneUpdate() {
+        ReferenceBatch batch = ReferenceBatch.of("saleIds", ReferenceMode.EMBEDDED);
+        ObjectId[] sales = {new ObjectId(), new ObjectId(), new ObjectId()};
+        for (ObjectId sale : sales) {
+            batch.add(first, sale);
+            batch.changeOnHand(first, -2);
+        }
+        batch.pull(second, sales[0]);
+
+        List<WriteModel<Document>> writes = batch.writes();
+
+        assertEquals(2, writes.size());
+        BsonDocument counted = update(writes, first);
+        assertEquals(-6, counted.getDocument("$inc").getInt32(StockLedger.FIELD).getValue());
+        assertEquals(3, counted.getDocument("$addToSet").getDocument("saleIds").getArray("$each").size());
+        assertTrue(counted.containsKey("$currentDate"));
+        assertEquals(Set.of("$pullAll"), update(writes, second).keySet());
+    }
+
+    @Test
+    void splitsThePullAndTheAddOnTheSameDocument() {
+        ReferenceBatch batch = ReferenceBatch.of("saleIds", ReferenceMode.EMBEDDED);
+        batch.move(first, second, new ObjectId());
+        batch.move(second, first, new ObjectId());
+
+        List<WriteModel<Document>> writes = batch.writes();
+
+        // An $addToSet first, then the $pullAll, for each of the two documents
+        assertEquals(4, writes.size());
+        assertTrue(update(writes.get(0)).containsKey("$addToSet"));
+        assertFalse(update(writes.get(1)).containsKey("$addToSet"));
+        assertTrue(update(writes.get(1)).containsKey("$pullAll"));
+    }
+
+    @Test
+    void skipsMovesWithinTheSameDocument() {
+        ReferenceBatch batch = ReferenceBatch.of("saleIds", ReferenceMode.EMBEDDED);
+        batch.move(first, first, new ObjectId());
+
+        assertTrue(batch.writes().isEmpty());
+    }
+
+    @Test
+    void writesOnlyTheCountersThatChangeWithoutArrays() {
+        ReferenceBatch batch = ReferenceBatch.of("stockIds", ReferenceMode.FOREIGN_KEYS);
+        batch.add(first, new ObjectId());
+        batch.pull(second, new ObjectId());
+        batch.changeOnHand(first, 5);
+        batch.changeOnHand(second, 3);
+        batch.changeOnHand(second, -3);
+
+        List<WriteModel<Document>> writes = batch.writes();
+
+        assertEquals(1, writes.size());
+        assertEquals(Set.of("$inc", "$currentDate"), update(writes.get(0)).keySet());
+        assertEquals(Set.of(first), batch.counted());
+    }
+
+    @Test
+    void doesNotStampChangesToTheArraysAlone() {
+        ReferenceBatch batch = ReferenceBatch.of("saleIds", ReferenceMode.EMBEDDED);
+        batch.add(first, new ObjectId());
+
+        assertEquals(Set.of("$addToSet"), update(batch.writes().get(0)).keySet());
+        assertTrue(batch.counted().isEmpty());
+    }
+
+    private static BsonDocument update(List<WriteModel<Document>> writes, ObjectId id) {
+        BsonDocument filter = new Document("_id", id).toBsonDocument();
+        return writes.stream()
+                .map(write -> (UpdateOneModel<Document>) write)
+                .filter(write -> write.getFilter().toBsonDocument().equals(filter))
+                .map(write -> write.getUpdate().toBsonDocument())
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static BsonDocument update(WriteModel<Document> write) {
+        return ((UpdateOneModel<Document>) write).getUpdate().toBsonDocument();
+    }
+}
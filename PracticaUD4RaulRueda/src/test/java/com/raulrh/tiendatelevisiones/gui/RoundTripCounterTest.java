@@ -0,0 +1,97 @@
+package com.raulrh.tiendatelevisiones.gui;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoundTripCounterTest {
+    private static final ConnectionDescription CONNECTION =
+            new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+
+    private final RoundTripCounter counter = new RoundTripCounter();
+
+    @Test
+    void countsTheCommandsOfAnOperation() {
+        int trips = counter.count(() -> {
+            send("insert");
+            send("update");
+            send("update");
+        });
+
+        assertEquals(3, trips);
+    }
+
+    @Test
+    void keepsTotalsByCommandName() {
+        send("update");
+        counter.count(() -> send("insert"));
+        send("update");
+
+        assertEquals(Map.of("insert", 1L, "update", 2L), counter.getTotals());
+    }
+
+    @Test
+    void addsNestedCountsToTheEnclosingOne() {
+        int[] inner = new int[1];
+        int outer = counter.count(() -> {
+            send("find");
+            inner[0] = counter.count(() -> {
+                send("insert");
+                send("update");
+            });
+            send("commitTransaction");
+        });
+
+        assertEquals(2, inner[0]);
+        assertEquals(4, outer);
+    }
+
+    @Test
+    void ignoresCommandsSentByOtherThreads() {
+        int trips = counter.count(() -> {
+            send("insert");
+            CompletableFuture.runAsync(() -> send("getMore")).join();
+        });
+
+        assertEquals(1, trips);
+        assertEquals(Map.of("getMore", 1L, "insert", 1L), counter.getTotals());
+    }
+
+    @Test
+    void stopsCountingWhenTheOperationFails() {
+        assertThrows(IllegalStateException.class, () -> counter.count(() -> {
+            send("insert");
+            throw new IllegalStateException();
+        }));
+        send("update");
+
+        assertEquals(0, counter.count(() -> {
+        }));
+        assertEquals(Map.of("insert", 1L, "update", 1L), counter.getTotals());
+    }
+
+    @Test
+    void resetClearsTheTotals() {
+        send("insert");
+        counter.reset();
+
+        assertTrue(counter.getTotals().isEmpty());
+    }
+
+    private void send(String command) {
+        counter.commandStarted(new CommandStartedEvent(null, 1, 1, CONNECTION, "TelevisionStore", command,
+                new BsonDocument(command, new BsonInt32(1))));
+    }
+}